@@ -21,12 +21,20 @@ import android.os.Bundle;
 import android.os.Parcel;
 import android.os.Parcelable;
 
+import java.io.IOException;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
 
+import org.reactivestreams.Subscriber;
+
+import io.reactivex.FlowableTransformer;
+import io.reactivex.MaybeObserver;
+import io.reactivex.MaybeTransformer;
 import io.reactivex.ObservableTransformer;
 import io.reactivex.Observer;
+import io.reactivex.SingleObserver;
+import io.reactivex.SingleTransformer;
 
 /**
  * Manges unlocking, locking, and destroying observables based on the lifecycle of an activity or
@@ -58,6 +66,7 @@ public class GroupLifecycleManager {
       @Nullable Bundle savedState, @Nullable Object target) {
 
     ObservableGroup group;
+    State previousState = null;
     if (savedState != null) {
       State state = savedState.getParcelable(KEY_STATE);
 
@@ -69,6 +78,7 @@ public class GroupLifecycleManager {
       // determine when that happens. This is a workaround for that behavior.
       if (state.managerId != observableManager.id()) {
         group = observableManager.newGroup();
+        previousState = state;
       } else {
         group = observableManager.getGroup(state.groupId);
       }
@@ -78,6 +88,10 @@ public class GroupLifecycleManager {
 
     group.lock();
 
+    if (previousState != null) {
+      restoreResults(observableManager, previousState, group);
+    }
+
     GroupLifecycleManager manager = new GroupLifecycleManager(observableManager, group);
 
     if (target != null) {
@@ -87,6 +101,28 @@ public class GroupLifecycleManager {
     return manager;
   }
 
+  /**
+   * Adds the results that the {@link ResultStore} saved for the group of a previous process, eg.:
+   * one killed while the app was in the background, to the new {@code group}. Reads the file on
+   * the main thread, since the results must be added before the Observers resubscribe.
+   */
+  private static void restoreResults(ObservableManager observableManager, State previousState,
+      ObservableGroup group) {
+    ResultStore resultStore = observableManager.resultStore();
+    if (resultStore == null) {
+      return;
+    }
+    try {
+      resultStore.restore(resultStoreKey(previousState.managerId, previousState.groupId), group);
+    } catch (IOException ignored) {
+      // Best effort, the requests are made again.
+    }
+  }
+
+  private static String resultStoreKey(UUID managerId, long groupId) {
+    return "rxgroups-" + managerId + "-" + groupId;
+  }
+
   /** @return the {@link ObservableGroup} associated to this instance */
   public ObservableGroup group() {
     return group;
@@ -109,6 +145,138 @@ public class GroupLifecycleManager {
     return group.transform(observer, observableTag);
   }
 
+  /**
+   * Calls {@link ObservableGroup#transform(Observer, String, InFlightPolicy)}
+   * for the group managed by this instance.
+   */
+  public <T> ObservableTransformer<? super T, T> transform(Observer<? super T> observer,
+          String observableTag, InFlightPolicy inFlightPolicy) {
+    return group.transform(observer, observableTag, inFlightPolicy);
+  }
+
+  /**
+   * Calls {@link ObservableGroup#transform(Observer, String, int)}
+   * for the group managed by this instance.
+   */
+  public <T> ObservableTransformer<? super T, T> transform(Observer<? super T> observer,
+          String observableTag, int priority) {
+    return group.transform(observer, observableTag, priority);
+  }
+
+  /**
+   * Calls {@link ObservableGroup#transform(Observer, String, InFlightPolicy, int)}
+   * for the group managed by this instance.
+   */
+  public <T> ObservableTransformer<? super T, T> transform(Observer<? super T> observer,
+          String observableTag, InFlightPolicy inFlightPolicy, int priority) {
+    return group.transform(observer, observableTag, inFlightPolicy, priority);
+  }
+
+  /**
+   * Calls {@link ObservableGroup#transformSingle(SingleObserver)} for the group managed by
+   * this instance.
+   */
+  public <T> SingleTransformer<? super T, T> transformSingle(SingleObserver<? super T> observer) {
+    return group.transformSingle(observer);
+  }
+
+  /**
+   * Calls {@link ObservableGroup#transformSingle(SingleObserver, String)} for the group managed by
+   * this instance.
+   */
+  public <T> SingleTransformer<? super T, T> transformSingle(SingleObserver<? super T> observer,
+          String observableTag) {
+    return group.transformSingle(observer, observableTag);
+  }
+
+  /**
+   * Calls {@link ObservableGroup#transformSingle(SingleObserver, String, InFlightPolicy)}
+   * for the group managed by this instance.
+   */
+  public <T> SingleTransformer<? super T, T> transformSingle(SingleObserver<? super T> observer,
+          String observableTag, InFlightPolicy inFlightPolicy) {
+    return group.transformSingle(observer, observableTag, inFlightPolicy);
+  }
+
+  /**
+   * Calls {@link ObservableGroup#transformSingle(SingleObserver, String, InFlightPolicy, int)}
+   * for the group managed by this instance.
+   */
+  public <T> SingleTransformer<? super T, T> transformSingle(SingleObserver<? super T> observer,
+          String observableTag, InFlightPolicy inFlightPolicy, int priority) {
+    return group.transformSingle(observer, observableTag, inFlightPolicy, priority);
+  }
+
+  /**
+   * Calls {@link ObservableGroup#transformMaybe(MaybeObserver)} for the group managed by
+   * this instance.
+   */
+  public <T> MaybeTransformer<? super T, T> transformMaybe(MaybeObserver<? super T> observer) {
+    return group.transformMaybe(observer);
+  }
+
+  /**
+   * Calls {@link ObservableGroup#transformMaybe(MaybeObserver, String)} for the group managed by
+   * this instance.
+   */
+  public <T> MaybeTransformer<? super T, T> transformMaybe(MaybeObserver<? super T> observer,
+          String observableTag) {
+    return group.transformMaybe(observer, observableTag);
+  }
+
+  /**
+   * Calls {@link ObservableGroup#transformMaybe(MaybeObserver, String, InFlightPolicy)}
+   * for the group managed by this instance.
+   */
+  public <T> MaybeTransformer<? super T, T> transformMaybe(MaybeObserver<? super T> observer,
+          String observableTag, InFlightPolicy inFlightPolicy) {
+    return group.transformMaybe(observer, observableTag, inFlightPolicy);
+  }
+
+  /**
+   * Calls {@link ObservableGroup#transformMaybe(MaybeObserver, String, InFlightPolicy, int)}
+   * for the group managed by this instance.
+   */
+  public <T> MaybeTransformer<? super T, T> transformMaybe(MaybeObserver<? super T> observer,
+          String observableTag, InFlightPolicy inFlightPolicy, int priority) {
+    return group.transformMaybe(observer, observableTag, inFlightPolicy, priority);
+  }
+
+  /**
+   * Calls {@link ObservableGroup#transformFlowable(Subscriber)} for the group managed by
+   * this instance.
+   */
+  public <T> FlowableTransformer<? super T, T> transformFlowable(Subscriber<? super T> subscriber) {
+    return group.transformFlowable(subscriber);
+  }
+
+  /**
+   * Calls {@link ObservableGroup#transformFlowable(Subscriber, String)} for the group managed by
+   * this instance.
+   */
+  public <T> FlowableTransformer<? super T, T> transformFlowable(Subscriber<? super T> subscriber,
+          String observableTag) {
+    return group.transformFlowable(subscriber, observableTag);
+  }
+
+  /**
+   * Calls {@link ObservableGroup#transformFlowable(Subscriber, String, InFlightPolicy)}
+   * for the group managed by this instance.
+   */
+  public <T> FlowableTransformer<? super T, T> transformFlowable(Subscriber<? super T> subscriber,
+          String observableTag, InFlightPolicy inFlightPolicy) {
+    return group.transformFlowable(subscriber, observableTag, inFlightPolicy);
+  }
+
+  /**
+   * Calls {@link ObservableGroup#transformFlowable(Subscriber, String, InFlightPolicy, int)}
+   * for the group managed by this instance.
+   */
+  public <T> FlowableTransformer<? super T, T> transformFlowable(Subscriber<? super T> subscriber,
+          String observableTag, InFlightPolicy inFlightPolicy, int priority) {
+    return group.transformFlowable(subscriber, observableTag, inFlightPolicy, priority);
+  }
+
   /**
    * Call {@link ObservableGroup#hasObservables(Observer)} for the group managed by
    * this instance.
@@ -125,6 +293,14 @@ public class GroupLifecycleManager {
     return group.hasObservable(observer, observableTag);
   }
 
+  /**
+   * Call {@link ObservableGroup#hasObservablesWithPrefix(String)} for the group managed by
+   * this instance.
+   */
+  public boolean hasObservablesWithPrefix(String observableTagPrefix) {
+    return group.hasObservablesWithPrefix(observableTagPrefix);
+  }
+
   /**
    * Calls
    * {@link ObservableGroup#initializeAutoTaggingAndResubscription(Object)} (Object, Class)}
@@ -161,13 +337,37 @@ public class GroupLifecycleManager {
     group.cancelAndRemove(observer, observableTag);
   }
 
+  /**
+   * Calls {@link ObservableGroup#cancelByPrefix(String)} for the group associated with this
+   * instance.
+   */
+  public void cancelByPrefix(String observableTagPrefix) {
+    group.cancelByPrefix(observableTagPrefix);
+  }
+
+  /**
+   * Calls {@link ObservableGroup#disposeByPrefix(String)} for the group associated with this
+   * instance.
+   */
+  public void disposeByPrefix(String observableTagPrefix) {
+    group.disposeByPrefix(observableTagPrefix);
+  }
+
   private void onDestroy(boolean isFinishing) {
     if (isFinishing) {
       observableManager.destroy(group);
+      ResultStore resultStore = observableManager.resultStore();
+      if (resultStore != null) {
+        resultStore.deleteInBackground(resultStoreKey(observableManager.id(), group.id()));
+      }
     } else {
       group().removeNonResubscribableObservers();
       group.dispose();
     }
+    LeakWatcher leakWatcher = observableManager.leakWatcher();
+    if (leakWatcher != null) {
+      leakWatcher.watch(group);
+    }
   }
 
   /** Call this method from your Activity or Fragment's onDestroy method */
@@ -210,10 +410,18 @@ public class GroupLifecycleManager {
     group.unlock();
   }
 
-  /** Call this method from your Activity or Fragment's onSaveInstanceState method */
+  /**
+   * Call this method from your Activity or Fragment's onSaveInstanceState method. Also saves the
+   * results that were not delivered yet to the {@link ObservableManager#resultStore()}, if any, on
+   * its background thread.
+   */
   public void onSaveInstanceState(Bundle outState) {
     hasSavedState = true;
     outState.putParcelable(KEY_STATE, new State(observableManager.id(), group.id()));
+    ResultStore resultStore = observableManager.resultStore();
+    if (resultStore != null) {
+      resultStore.saveInBackground(resultStoreKey(observableManager.id(), group.id()), group);
+    }
   }
 
   static class State implements Parcelable {
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+
+/**
+ * Frees memory held by an {@link ObservableManager} when the system asks for it. Register it once,
+ * eg.: from {@code Application.onCreate()} with
+ * {@link Context#registerComponentCallbacks(android.content.ComponentCallbacks)}. Only locked
+ * groups, ie.: those of screens in the background, lose Observables, depending on the level:
+ * <ul>
+ * <li>{@link #TRIM_MEMORY_RUNNING_MODERATE}, {@link #TRIM_MEMORY_UI_HIDDEN}: expired results are
+ * removed from the {@link ObservableManager#setResultCache(ResultCache) result cache}.</li>
+ * <li>{@link #TRIM_MEMORY_RUNNING_LOW}: the result cache is cleared.</li>
+ * <li>{@link #TRIM_MEMORY_RUNNING_CRITICAL}, {@link #TRIM_MEMORY_BACKGROUND}: also, items held
+ * with {@link ObservableGroup#setSoftBuffering(boolean) soft buffering} are dropped.</li>
+ * <li>{@link #TRIM_MEMORY_MODERATE}: also, Observables whose source is still running are cancelled
+ * and removed, like once the {@link ObservableGroup#setMaxLockedDuration max locked duration}
+ * elapsed, whose listener is told.</li>
+ * <li>{@link #TRIM_MEMORY_COMPLETE} and {@link #onLowMemory()}: also, Observables that completed
+ * are removed, with the results they did not deliver yet. Use a {@link ResultStore} to keep
+ * them across process death instead.</li>
+ * </ul>
+ */
+public final class GroupMemoryTrimmer implements ComponentCallbacks2 {
+  private final ObservableManager observableManager;
+
+  public GroupMemoryTrimmer(ObservableManager observableManager) {
+    this.observableManager = Preconditions.checkNotNull(observableManager,
+        "observableManager == null");
+  }
+
+  @Override public void onTrimMemory(int level) {
+    boolean critical = level == TRIM_MEMORY_RUNNING_CRITICAL || level >= TRIM_MEMORY_BACKGROUND;
+    ResultCache resultCache = observableManager.resultCache();
+    if (resultCache != null) {
+      if (critical || level == TRIM_MEMORY_RUNNING_LOW) {
+        resultCache.clear();
+      } else {
+        resultCache.removeExpired();
+      }
+    }
+    if (!critical) {
+      return;
+    }
+    for (ObservableGroup group : observableManager.groups()) {
+      if (!group.isLocked()) {
+        continue;
+      }
+      if (level >= TRIM_MEMORY_COMPLETE) {
+        group.shed(true);
+      } else if (level >= TRIM_MEMORY_MODERATE) {
+        group.shed(false);
+      }
+      group.evictSoftBuffers();
+    }
+  }
+
+  @Override public void onLowMemory() {
+    onTrimMemory(TRIM_MEMORY_COMPLETE);
+  }
+
+  @Override public void onConfigurationChanged(Configuration newConfig) {
+  }
+}
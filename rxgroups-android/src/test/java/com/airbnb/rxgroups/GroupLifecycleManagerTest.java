@@ -6,19 +6,31 @@ import android.os.Bundle;
 
 import com.airbnb.rxgroups.android.BuildConfig;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Matchers;
 import org.robolectric.RobolectricGradleTestRunner;
 import org.robolectric.annotation.Config;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import io.reactivex.Observable;
 import io.reactivex.annotations.NonNull;
 import io.reactivex.disposables.Disposable;
 import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.Schedulers;
 import io.reactivex.subjects.PublishSubject;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -28,10 +40,20 @@ import static org.mockito.Mockito.when;
 @Config(sdk = Build.VERSION_CODES.LOLLIPOP, constants = BuildConfig.class)
 @RunWith(RobolectricGradleTestRunner.class)
 public class GroupLifecycleManagerTest {
+  private static final ResultCodec<String> FIRST_ITEM_CODEC = new ResultCodec<String>() {
+    @Override public byte[] encode(List<String> items) {
+      return items.get(0).getBytes();
+    }
+
+    @Override public List<String> decode(byte[] bytes) {
+      return Collections.singletonList(new String(bytes));
+    }
+  };
   private final PublishSubject<String> testSubject = PublishSubject.create();
   private final ObservableManager observableManager = mock(ObservableManager.class);
   private final ObservableGroup group = mock(ObservableGroup.class);
   private final TestTarget target = new TestTarget();
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
 
   static class TestTarget {
     @AutoResubscribe
@@ -65,11 +87,21 @@ public class GroupLifecycleManagerTest {
   public void testSubscribe() {
     when(observableManager.newGroup()).thenReturn(group);
     doCallRealMethod().when(group).initializeAutoTaggingAndResubscription(Matchers.any());
+    when(group.hasObservables(anyInt())).thenReturn(true);
     GroupLifecycleManager.onCreate(observableManager, null, target);
-    verify(group).resubscribeAll(target.observer);
+    verify(group).resubscribeAll(eq(target.observer), anyInt());
     verify(group).resubscribeAll(target.taggedObserver);
   }
 
+  @Test
+  public void testDoesNotResubscribeWithoutObservablesInFlight() {
+    when(observableManager.newGroup()).thenReturn(group);
+    doCallRealMethod().when(group).initializeAutoTaggingAndResubscription(Matchers.any());
+    when(group.hasObservables(anyInt())).thenReturn(false);
+    GroupLifecycleManager.onCreate(observableManager, null, target);
+    verify(group, never()).resubscribeAll(eq(target.observer), anyInt());
+  }
+
   @Test
   public void testSubscribeNoObservables() {
     when(observableManager.newGroup()).thenReturn(group);
@@ -117,6 +149,70 @@ public class GroupLifecycleManagerTest {
     verify(observableManager).destroy(group);
   }
 
+  @Test public void testDestroyWatchesObserversForLeaks() {
+    LeakWatcher leakWatcher = mock(LeakWatcher.class);
+    when(observableManager.newGroup()).thenReturn(group);
+    when(observableManager.leakWatcher()).thenReturn(leakWatcher);
+
+    GroupLifecycleManager lifecycleManager
+        = GroupLifecycleManager.onCreate(observableManager, null, target);
+
+    Activity activity = mock(Activity.class);
+    when(activity.isFinishing()).thenReturn(true);
+    lifecycleManager.onDestroy(activity);
+
+    verify(observableManager).destroy(group);
+    verify(leakWatcher).watch(group);
+  }
+
+  @Test public void testRestoresSavedResultsAfterProcessDeath() throws IOException {
+    ResultStore resultStore = new ResultStore(folder.getRoot(), Schedulers.trampoline());
+    resultStore.register("foo", FIRST_ITEM_CODEC);
+    ObservableManager manager = new ObservableManager();
+    manager.setResultStore(resultStore);
+    GroupLifecycleManager lifecycleManager = GroupLifecycleManager.onCreate(manager, null, target);
+    Observable.just("Roberto").compose(lifecycleManager.transform(target.observer))
+        .subscribe(target.observer);
+    lifecycleManager.onPause();
+    Bundle outState = new Bundle();
+    lifecycleManager.onSaveInstanceState(outState);
+
+    // A new process has a new manager.
+    ObservableManager newManager = new ObservableManager();
+    newManager.setResultStore(resultStore);
+    TestTarget newTarget = new TestTarget();
+    GroupLifecycleManager newLifecycleManager =
+        GroupLifecycleManager.onCreate(newManager, outState, newTarget);
+    newLifecycleManager.onResume();
+
+    newTarget.observer.assertionTarget.assertValue("Roberto");
+    newTarget.observer.assertionTarget.assertComplete();
+  }
+
+  @Test public void testDestroyFinishingActivityDeletesSavedResults() throws IOException {
+    ResultStore resultStore = new ResultStore(folder.getRoot(), Schedulers.trampoline());
+    resultStore.register("foo", FIRST_ITEM_CODEC);
+    UUID managerId = UUID.randomUUID();
+    when(observableManager.newGroup()).thenReturn(new ObservableGroup(1));
+    when(observableManager.resultStore()).thenReturn(resultStore);
+    when(observableManager.id()).thenReturn(managerId);
+    File savedResults = new File(folder.getRoot(), "rxgroups-" + managerId + "-1.rxresults");
+
+    GroupLifecycleManager lifecycleManager
+        = GroupLifecycleManager.onCreate(observableManager, null, target);
+    Observable.just("Roberto").compose(lifecycleManager.transform(target.observer))
+        .subscribe(target.observer);
+    lifecycleManager.onSaveInstanceState(new Bundle());
+
+    assertThat(savedResults.exists()).isTrue();
+
+    Activity activity = mock(Activity.class);
+    when(activity.isFinishing()).thenReturn(true);
+    lifecycleManager.onDestroy(activity);
+
+    assertThat(savedResults.exists()).isFalse();
+  }
+
   @Test public void testNonResubscribableObservablesRemovedAfterNonFinishingDestroy() {
     when(observableManager.newGroup()).thenReturn(new ObservableGroup(1));
 
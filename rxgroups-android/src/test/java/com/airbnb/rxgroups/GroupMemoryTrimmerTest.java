@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import android.content.ComponentCallbacks2;
+import android.os.Build;
+
+import com.airbnb.rxgroups.android.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subjects.PublishSubject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Config(sdk = Build.VERSION_CODES.LOLLIPOP, constants = BuildConfig.class)
+@RunWith(RobolectricGradleTestRunner.class)
+public class GroupMemoryTrimmerTest {
+  private long nowNanos;
+  private final ResultCache resultCache = new ResultCache(10, 10, TimeUnit.SECONDS,
+      new ResultCache.Ticker() {
+        @Override public long nanoTime() {
+          return nowNanos;
+        }
+      });
+  private final ObservableManager observableManager = new ObservableManager();
+  private final GroupMemoryTrimmer trimmer = new GroupMemoryTrimmer(observableManager);
+  private final PublishSubject<String> runningSource = PublishSubject.create();
+  private final TestAutoResubscribingObserver runningObserver =
+      new TestAutoResubscribingObserver("running");
+  private final TestAutoResubscribingObserver completedObserver =
+      new TestAutoResubscribingObserver("completed");
+  private final TestAutoResubscribingObserver foregroundObserver =
+      new TestAutoResubscribingObserver("foreground");
+  private final List<ObservableSnapshot> shed = new ArrayList<>();
+  private ObservableGroup backgroundGroup;
+  private ObservableGroup foregroundGroup;
+
+  @Before public void setUp() {
+    observableManager.setResultCache(resultCache);
+    backgroundGroup = observableManager.newGroup();
+    backgroundGroup.setSoftBuffering(true);
+    backgroundGroup.setMaxLockedDuration(1, TimeUnit.HOURS, new TestScheduler(),
+        new ShedListener() {
+          @Override public void onShed(long groupId, List<ObservableSnapshot> snapshots) {
+            shed.addAll(snapshots);
+          }
+        });
+    foregroundGroup = observableManager.newGroup();
+    foregroundGroup.setSoftBuffering(true);
+
+    backgroundGroup.lock();
+    runningSource.compose(backgroundGroup.transform(runningObserver)).subscribe(runningObserver);
+    runningSource.onNext("Roberto");
+    Observable.just("Gomez").compose(backgroundGroup.transform(completedObserver))
+        .subscribe(completedObserver);
+    runningSource.compose(foregroundGroup.transform(foregroundObserver))
+        .subscribe(foregroundObserver);
+
+    resultCache.put("user/1", Collections.singletonList("Roberto"));
+    nowNanos += TimeUnit.SECONDS.toNanos(10);
+    resultCache.put("user/2", Collections.singletonList("Gomez"));
+  }
+
+  @Test public void testRunningModerateRemovesExpiredResults() {
+    trimmer.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+
+    assertThat(resultCache.size()).isEqualTo(1);
+    assertBackgroundGroupUntouched();
+  }
+
+  @Test public void testUiHiddenRemovesExpiredResults() {
+    trimmer.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+
+    assertThat(resultCache.size()).isEqualTo(1);
+    assertBackgroundGroupUntouched();
+  }
+
+  @Test public void testRunningLowClearsResultCache() {
+    trimmer.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+    assertThat(resultCache.size()).isEqualTo(0);
+    assertBackgroundGroupUntouched();
+  }
+
+  @Test public void testRunningCriticalEvictsSoftBuffersOfLockedGroups() {
+    trimmer.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+
+    assertThat(resultCache.size()).isEqualTo(0);
+    assertSoftBuffersEvicted();
+  }
+
+  @Test public void testBackgroundEvictsSoftBuffersOfLockedGroups() {
+    trimmer.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+
+    assertThat(resultCache.size()).isEqualTo(0);
+    assertSoftBuffersEvicted();
+  }
+
+  @Test public void testModerateShedsRunningObservablesOfLockedGroups() {
+    trimmer.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_MODERATE);
+
+    assertThat(backgroundGroup.hasObservables(runningObserver)).isFalse();
+    assertThat(backgroundGroup.needsRefetch(completedObserver, "completed")).isTrue();
+    assertThat(shed).hasSize(1);
+    assertThat(shed.get(0).observableTag()).isEqualTo("running");
+    assertForegroundGroupUntouched();
+  }
+
+  @Test public void testCompleteRemovesEveryObservableOfLockedGroups() {
+    trimmer.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+
+    assertThat(backgroundGroup.hasObservables(runningObserver)).isFalse();
+    assertThat(backgroundGroup.hasObservables(completedObserver)).isFalse();
+    assertThat(shed).hasSize(2);
+    assertThat(resultCache.size()).isEqualTo(0);
+    assertForegroundGroupUntouched();
+  }
+
+  @Test public void testLowMemoryRemovesEveryObservableOfLockedGroups() {
+    trimmer.onLowMemory();
+
+    assertThat(backgroundGroup.hasObservables(runningObserver)).isFalse();
+    assertThat(backgroundGroup.hasObservables(completedObserver)).isFalse();
+    assertForegroundGroupUntouched();
+  }
+
+  private void assertBackgroundGroupUntouched() {
+    assertThat(backgroundGroup.needsRefetch(runningObserver, "running")).isFalse();
+    assertThat(backgroundGroup.needsRefetch(completedObserver, "completed")).isFalse();
+    assertThat(shed).isEmpty();
+    assertForegroundGroupUntouched();
+  }
+
+  private void assertSoftBuffersEvicted() {
+    assertThat(backgroundGroup.needsRefetch(runningObserver, "running")).isTrue();
+    assertThat(backgroundGroup.needsRefetch(completedObserver, "completed")).isTrue();
+    assertThat(shed).isEmpty();
+    assertForegroundGroupUntouched();
+  }
+
+  private void assertForegroundGroupUntouched() {
+    runningSource.onNext("Bolanos");
+
+    foregroundObserver.assertionTarget.assertValues("Bolanos");
+    assertThat(foregroundGroup.needsRefetch(foregroundObserver, "foreground")).isFalse();
+  }
+}
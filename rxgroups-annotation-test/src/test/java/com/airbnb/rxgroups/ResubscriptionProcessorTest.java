@@ -8,8 +8,10 @@ import com.google.testing.compile.JavaSourceSubjectFactory;
 import org.junit.Test;
 
 import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
 
 public class ResubscriptionProcessorTest {
+  private static final String MODULE_NAME_OPTION = "-Arxgroups.moduleName=test";
 
   @Test public void autoResubscribeObserver_worksWithAll() throws Exception {
     JavaFileObject source = JavaFileObjects.forResource("AutoResubscribingObserver_Pass_All.java");
@@ -21,7 +23,9 @@ public class ResubscriptionProcessorTest {
         + "public class AutoResubscribingObserver_Pass_All_ObservableResubscriber extends BaseObservableResubscriber {\n"
         + "  public AutoResubscribingObserver_Pass_All_ObservableResubscriber(AutoResubscribingObserver_Pass_All target, ObservableGroup group) {\n"
         + "     setTag(target.observer, \"AutoResubscribingObserver_Pass_All_observer\");\n"
-        + "     group.resubscribeAll(target.observer);\n"
+        + "     if (group.hasObservables(RxGroupsTagTable_test.AUTO_RESUBSCRIBING_OBSERVER_PASS_ALL_OBSERVER)) {\n"
+        + "       group.resubscribeAll(target.observer, RxGroupsTagTable_test.AUTO_RESUBSCRIBING_OBSERVER_PASS_ALL_OBSERVER);\n"
+        + "     }\n"
         + "     setTag(target.observer1, \"AutoResubscribingObserver_Pass_All_observer1\");\n"
         + "  }\n"
         + "}\n"
@@ -29,7 +33,42 @@ public class ResubscriptionProcessorTest {
     );
 
     Truth.assertAbout(JavaSourceSubjectFactory.javaSource()).that(source)
-        .withCompilerOptions("-Xlint:-processing")
+        .withCompilerOptions("-Xlint:-processing", MODULE_NAME_OPTION)
+        .processedWith(new ResubscriptionProcessor())
+        .compilesWithoutWarnings()
+        .and()
+        .generatesSources(resubscriberSource);
+  }
+
+  @Test public void autoResubscribeSingleMaybeFlowable_worksWithAll() throws Exception {
+    JavaFileObject source = JavaFileObjects.forResource("AutoResubscribingObserver_Pass_SingleMaybeFlowable.java");
+
+    JavaFileObject resubscriberSource = JavaFileObjects.forSourceString("test.AutoResubscribingObserver_Pass_SingleMaybeFlowable_ObservableResubscriber", ""
+        + "package test;\n"
+        + "import com.airbnb.rxgroups.BaseObservableResubscriber;\n"
+        + "import com.airbnb.rxgroups.ObservableGroup;\n"
+        + "public class AutoResubscribingObserver_Pass_SingleMaybeFlowable_ObservableResubscriber extends BaseObservableResubscriber {\n"
+        + "  public AutoResubscribingObserver_Pass_SingleMaybeFlowable_ObservableResubscriber(AutoResubscribingObserver_Pass_SingleMaybeFlowable target, ObservableGroup group) {\n"
+        + "     setTag(target.singleObserver, \"AutoResubscribingObserver_Pass_SingleMaybeFlowable_singleObserver\");\n"
+        + "     if (group.hasObservables(RxGroupsTagTable_test.AUTO_RESUBSCRIBING_OBSERVER_PASS_SINGLE_MAYBE_FLOWABLE_SINGLE_OBSERVER)) {\n"
+        + "       group.resubscribeAll(target.singleObserver, RxGroupsTagTable_test.AUTO_RESUBSCRIBING_OBSERVER_PASS_SINGLE_MAYBE_FLOWABLE_SINGLE_OBSERVER);\n"
+        + "     }\n"
+        + "     setTag(target.maybeObserver, \"AutoResubscribingObserver_Pass_SingleMaybeFlowable_maybeObserver\");\n"
+        + "     if (group.hasObservables(RxGroupsTagTable_test.AUTO_RESUBSCRIBING_OBSERVER_PASS_SINGLE_MAYBE_FLOWABLE_MAYBE_OBSERVER)) {\n"
+        + "       group.resubscribeAll(target.maybeObserver, RxGroupsTagTable_test.AUTO_RESUBSCRIBING_OBSERVER_PASS_SINGLE_MAYBE_FLOWABLE_MAYBE_OBSERVER);\n"
+        + "     }\n"
+        + "     setTag(target.subscriber, \"AutoResubscribingObserver_Pass_SingleMaybeFlowable_subscriber\");\n"
+        + "     if (group.hasObservables(RxGroupsTagTable_test.AUTO_RESUBSCRIBING_OBSERVER_PASS_SINGLE_MAYBE_FLOWABLE_SUBSCRIBER)) {\n"
+        + "       group.resubscribeAll(target.subscriber, RxGroupsTagTable_test.AUTO_RESUBSCRIBING_OBSERVER_PASS_SINGLE_MAYBE_FLOWABLE_SUBSCRIBER);\n"
+        + "     }\n"
+        + "     setTag(target.autoTag, \"AutoResubscribingObserver_Pass_SingleMaybeFlowable_autoTag\");\n"
+        + "  }\n"
+        + "}\n"
+        + ""
+    );
+
+    Truth.assertAbout(JavaSourceSubjectFactory.javaSource()).that(source)
+        .withCompilerOptions("-Xlint:-processing", MODULE_NAME_OPTION)
         .processedWith(new ResubscriptionProcessor())
         .compilesWithoutWarnings()
         .and()
@@ -52,7 +91,7 @@ public class ResubscriptionProcessorTest {
     );
 
     Truth.assertAbout(JavaSourceSubjectFactory.javaSource()).that(source)
-        .withCompilerOptions("-Xlint:-processing")
+        .withCompilerOptions("-Xlint:-processing", MODULE_NAME_OPTION)
         .processedWith(new ResubscriptionProcessor())
         .compilesWithoutWarnings()
         .and()
@@ -70,7 +109,9 @@ public class ResubscriptionProcessorTest {
         + "public class AutoTaggableObserver_Pass_All_ObservableResubscriber extends BaseObservableResubscriber {\n"
         + "  public AutoTaggableObserver_Pass_All_ObservableResubscriber(AutoTaggableObserver_Pass_All target, ObservableGroup group) {\n"
         + "     setTag(target.resubscribeObserver, \"AutoTaggableObserver_Pass_All_resubscribeObserver\");\n"
-        + "     group.resubscribeAll(target.resubscribeObserver);\n"
+        + "     if (group.hasObservables(RxGroupsTagTable_test.AUTO_TAGGABLE_OBSERVER_PASS_ALL_RESUBSCRIBE_OBSERVER)) {\n"
+        + "       group.resubscribeAll(target.resubscribeObserver, RxGroupsTagTable_test.AUTO_TAGGABLE_OBSERVER_PASS_ALL_RESUBSCRIBE_OBSERVER);\n"
+        + "     }\n"
         + "     setTag(target.autoTag, \"AutoTaggableObserver_Pass_All_autoTag\");\n"
         + "  }\n"
         + "}\n"
@@ -78,7 +119,7 @@ public class ResubscriptionProcessorTest {
     );
 
     Truth.assertAbout(JavaSourceSubjectFactory.javaSource()).that(source)
-        .withCompilerOptions("-Xlint:-processing")
+        .withCompilerOptions("-Xlint:-processing", MODULE_NAME_OPTION)
         .processedWith(new ResubscriptionProcessor())
         .compilesWithoutWarnings()
         .and()
@@ -96,7 +137,9 @@ public class ResubscriptionProcessorTest {
         + "public class AutoTaggableObserver_Pass_All_CustomTag_ObservableResubscriber extends BaseObservableResubscriber {\n"
         + "  public AutoTaggableObserver_Pass_All_CustomTag_ObservableResubscriber(AutoTaggableObserver_Pass_All_CustomTag target, ObservableGroup group) {\n"
         + "     setTag(target.resubscribeObserver, \"tag1\");\n"
-        + "     group.resubscribeAll(target.resubscribeObserver);\n"
+        + "     if (group.hasObservables(RxGroupsTagTable_test.AUTO_TAGGABLE_OBSERVER_PASS_ALL_CUSTOM_TAG_RESUBSCRIBE_OBSERVER)) {\n"
+        + "       group.resubscribeAll(target.resubscribeObserver, RxGroupsTagTable_test.AUTO_TAGGABLE_OBSERVER_PASS_ALL_CUSTOM_TAG_RESUBSCRIBE_OBSERVER);\n"
+        + "     }\n"
         + "     setTag(target.autoTag, \"tag2\");\n"
         + "  }\n"
         + "}\n"
@@ -104,22 +147,85 @@ public class ResubscriptionProcessorTest {
     );
 
     Truth.assertAbout(JavaSourceSubjectFactory.javaSource()).that(source)
-        .withCompilerOptions("-Xlint:-processing")
+        .withCompilerOptions("-Xlint:-processing", MODULE_NAME_OPTION)
         .processedWith(new ResubscriptionProcessor())
         .compilesWithoutWarnings()
         .and()
         .generatesSources(resubscriberSource);
   }
 
+  @Test public void tagTable_generatedWithIdsAndHashCodes() throws Exception {
+    JavaFileObject source = JavaFileObjects.forResource("AutoTaggableObserver_Pass_All_CustomTag.java");
+
+    JavaFileObject tagTableSource = JavaFileObjects.forSourceString("test.RxGroupsTagTable_test", ""
+        + "package test;\n"
+        + "import com.airbnb.rxgroups.TagRegistry;\n"
+        + "import java.lang.String;\n"
+        + "public final class RxGroupsTagTable_test {\n"
+        + "  private static final String[] TAGS = {\"tag1\", \"tag2\"};\n"
+        + "  private static final int[] HASH_CODES = {" + "tag1".hashCode() + ", " + "tag2".hashCode() + "};\n"
+        + "  private static final int[] IDS = TagRegistry.register(TAGS, HASH_CODES);\n"
+        + "  public static final int AUTO_TAGGABLE_OBSERVER_PASS_ALL_CUSTOM_TAG_RESUBSCRIBE_OBSERVER = IDS[0];\n"
+        + "  public static final int AUTO_TAGGABLE_OBSERVER_PASS_ALL_CUSTOM_TAG_AUTO_TAG = IDS[1];\n"
+        + "  private RxGroupsTagTable_test() {\n"
+        + "  }\n"
+        + "}\n"
+        + ""
+    );
+
+    Truth.assertAbout(JavaSourceSubjectFactory.javaSource()).that(source)
+        .withCompilerOptions("-Xlint:-processing", MODULE_NAME_OPTION)
+        .processedWith(new ResubscriptionProcessor())
+        .compilesWithoutWarnings()
+        .and()
+        .generatesSources(tagTableSource);
+  }
+
+  @Test public void tagTable_namedAfterModuleName() throws Exception {
+    JavaFileObject source = JavaFileObjects.forResource("AutoTaggableObserver_Pass_All_CustomTag.java");
+
+    Truth.assertAbout(JavaSourceSubjectFactory.javaSource()).that(source)
+        .withCompilerOptions("-Xlint:-processing", "-Arxgroups.moduleName=:feature-a")
+        .processedWith(new ResubscriptionProcessor())
+        .compilesWithoutWarnings()
+        .and()
+        .generatesFileNamed(StandardLocation.SOURCE_OUTPUT, "test",
+            "RxGroupsTagTable__feature_a.java");
+  }
+
+  @Test public void tagTable_namedAfterAnnotatedClassesByDefault() throws Exception {
+    JavaFileObject source = JavaFileObjects.forResource("AutoTaggableObserver_Pass_All_CustomTag.java");
+    String hash = Integer.toHexString("test.AutoTaggableObserver_Pass_All_CustomTag".hashCode());
+
+    Truth.assertAbout(JavaSourceSubjectFactory.javaSource()).that(source)
+        .withCompilerOptions("-Xlint:-processing")
+        .processedWith(new ResubscriptionProcessor())
+        .compilesWithoutWarnings()
+        .and()
+        .generatesFileNamed(StandardLocation.SOURCE_OUTPUT, "test",
+            "RxGroupsTagTable_" + hash + ".java");
+  }
+
+  @Test public void duplicateTag_fail() throws Exception {
+    JavaFileObject source = JavaFileObjects.forResource("AutoResubscribingObserver_Fail_DuplicateTag.java");
+
+
+    Truth.assertAbout(JavaSourceSubjectFactory.javaSource()).that(source)
+        .withCompilerOptions("-Xlint:-processing", MODULE_NAME_OPTION)
+        .processedWith(new ResubscriptionProcessor())
+        .failsToCompile()
+        .withErrorContaining("Tag duplicateTag is used by more than one observer. Tags must be unique.");
+  }
+
   @Test public void plainObserverFails_autoResubscribe() throws Exception {
     JavaFileObject source = JavaFileObjects.forResource("PlainObserver_Fail_AutoResubscribe.java");
 
 
     Truth.assertAbout(JavaSourceSubjectFactory.javaSource()).that(source)
-        .withCompilerOptions("-Xlint:-processing")
+        .withCompilerOptions("-Xlint:-processing", MODULE_NAME_OPTION)
         .processedWith(new ResubscriptionProcessor())
         .failsToCompile()
-        .withErrorContaining("AutoResubscribe annotation may only be on interface com.airbnb.rxgroups.TaggedObserver types.");
+        .withErrorContaining("AutoResubscribe annotation may only be on TaggedObserver, TaggedSingleObserver, TaggedMaybeObserver or TaggedSubscriber types.");
   }
 
   @Test public void plainObserverFails_autoTag() throws Exception {
@@ -127,10 +233,10 @@ public class ResubscriptionProcessorTest {
 
 
     Truth.assertAbout(JavaSourceSubjectFactory.javaSource()).that(source)
-        .withCompilerOptions("-Xlint:-processing")
+        .withCompilerOptions("-Xlint:-processing", MODULE_NAME_OPTION)
         .processedWith(new ResubscriptionProcessor())
         .failsToCompile()
-        .withErrorContaining(" AutoTag annotation may only be on interface com.airbnb.rxgroups.AutoTaggableObserver or class com.airbnb.rxgroups.AutoResubscribingObserver types.");
+        .withErrorContaining("AutoTag annotation may only be on AutoTaggable or AutoResubscribing types, eg.: AutoTaggableObserver or AutoResubscribingObserver.");
   }
 
 
@@ -139,10 +245,10 @@ public class ResubscriptionProcessorTest {
 
 
     Truth.assertAbout(JavaSourceSubjectFactory.javaSource()).that(source)
-        .withCompilerOptions("-Xlint:-processing")
+        .withCompilerOptions("-Xlint:-processing", MODULE_NAME_OPTION)
         .processedWith(new ResubscriptionProcessor())
         .failsToCompile()
-        .withErrorContaining("AutoTag annotation may only be on interface com.airbnb.rxgroups.AutoTaggableObserver or class com.airbnb.rxgroups.AutoResubscribingObserver types.");
+        .withErrorContaining("AutoTag annotation may only be on AutoTaggable or AutoResubscribing types, eg.: AutoTaggableObserver or AutoResubscribingObserver.");
   }
 
   @Test public void privateObserver_fail() throws Exception {
@@ -150,7 +256,7 @@ public class ResubscriptionProcessorTest {
 
 
     Truth.assertAbout(JavaSourceSubjectFactory.javaSource()).that(source)
-        .withCompilerOptions("-Xlint:-processing")
+        .withCompilerOptions("-Xlint:-processing", MODULE_NAME_OPTION)
         .processedWith(new ResubscriptionProcessor())
         .failsToCompile()
         .withErrorContaining("AutoResubscribe annotations must not be on private or static fields.");
@@ -162,7 +268,7 @@ public class ResubscriptionProcessorTest {
 
 
     Truth.assertAbout(JavaSourceSubjectFactory.javaSource()).that(source)
-        .withCompilerOptions("-Xlint:-processing")
+        .withCompilerOptions("-Xlint:-processing", MODULE_NAME_OPTION)
         .processedWith(new ResubscriptionProcessor())
         .failsToCompile()
         .withErrorContaining("AutoTag annotations must not be on private or static fields.");
@@ -174,7 +280,7 @@ public class ResubscriptionProcessorTest {
 
 
     Truth.assertAbout(JavaSourceSubjectFactory.javaSource()).that(source)
-        .withCompilerOptions("-Xlint:-processing")
+        .withCompilerOptions("-Xlint:-processing", MODULE_NAME_OPTION)
         .processedWith(new ResubscriptionProcessor())
         .failsToCompile()
         .withErrorContaining("AutoResubscribe annotations must not be on private or static fields.");
@@ -0,0 +1,14 @@
+package test;
+
+import com.airbnb.rxgroups.AutoResubscribe;
+import com.airbnb.rxgroups.AutoResubscribingObserver;
+
+public class AutoResubscribingObserver_Fail_DuplicateTag {
+  @AutoResubscribe(customTag = "duplicateTag")
+  AutoResubscribingObserver<Object> observer = new AutoResubscribingObserver<Object>() { };
+
+  public static class Other {
+    @AutoResubscribe(customTag = "duplicateTag")
+    AutoResubscribingObserver<Object> observer = new AutoResubscribingObserver<Object>() { };
+  }
+}
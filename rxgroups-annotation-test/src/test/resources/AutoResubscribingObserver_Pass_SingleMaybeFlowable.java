@@ -0,0 +1,24 @@
+package test;
+
+import com.airbnb.rxgroups.AutoResubscribe;
+import com.airbnb.rxgroups.AutoResubscribingMaybeObserver;
+import com.airbnb.rxgroups.AutoResubscribingSingleObserver;
+import com.airbnb.rxgroups.AutoResubscribingSubscriber;
+import com.airbnb.rxgroups.AutoTag;
+import com.airbnb.rxgroups.AutoTaggableSingleObserver;
+
+public class AutoResubscribingObserver_Pass_SingleMaybeFlowable {
+  @AutoResubscribe
+  AutoResubscribingSingleObserver<Object> singleObserver =
+      new AutoResubscribingSingleObserver<Object>() { };
+
+  @AutoResubscribe
+  AutoResubscribingMaybeObserver<Object> maybeObserver =
+      new AutoResubscribingMaybeObserver<Object>() { };
+
+  @AutoResubscribe
+  AutoResubscribingSubscriber<Object> subscriber = new AutoResubscribingSubscriber<Object>() { };
+
+  @AutoTag
+  AutoTaggableSingleObserver<Object> autoTag = null;
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Cost of {@link ObservableGroup#initializeAutoTaggingAndResubscription(Object)}, which finds the
+ * generated resubscriber of every class in the hierarchy of the target reflectively.
+ */
+@State(Scope.Thread)
+public class BindingBenchmark {
+  private final ObservableManager observableManager = new ObservableManager();
+  private ObservableGroup group;
+
+  @Setup public void setUp() {
+    group = observableManager.newGroup();
+  }
+
+  @TearDown public void tearDown() {
+    observableManager.destroy(group);
+  }
+
+  @Benchmark public Object bindTarget() {
+    BindingTarget target = new BindingTarget();
+    group.initializeAutoTaggingAndResubscription(target);
+    return target;
+  }
+
+  @Benchmark public Object bindSubclassTarget() {
+    BindingSubclassTarget target = new BindingSubclassTarget();
+    group.initializeAutoTaggingAndResubscription(target);
+    return target;
+  }
+
+  public static class BindingTarget {
+    @AutoResubscribe
+    final AutoResubscribingObserver<Object> resubscribingObserver =
+        new AutoResubscribingObserver<Object>() { };
+
+    @AutoTag
+    final AutoResubscribingObserver<Object> taggedObserver =
+        new AutoResubscribingObserver<Object>() { };
+  }
+
+  public static class BindingSubclassTarget extends BindingTarget {
+    @AutoResubscribe
+    final AutoResubscribingObserver<Object> subclassObserver =
+        new AutoResubscribingObserver<Object>() { };
+  }
+}
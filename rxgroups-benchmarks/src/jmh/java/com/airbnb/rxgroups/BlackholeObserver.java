@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.reactivex.annotations.NonNull;
+import io.reactivex.disposables.Disposable;
+
+/** A {@link TaggedObserver} that hands every event to a JMH {@link Blackhole}. */
+class BlackholeObserver implements TaggedObserver<Object> {
+  private final String tag;
+  private final Blackhole blackhole;
+
+  BlackholeObserver(String tag, Blackhole blackhole) {
+    this.tag = tag;
+    this.blackhole = blackhole;
+  }
+
+  @Override public String getTag() {
+    return tag;
+  }
+
+  @Override public void onSubscribe(@NonNull Disposable d) {
+  }
+
+  @Override public void onNext(@NonNull Object o) {
+    blackhole.consume(o);
+  }
+
+  @Override public void onError(@NonNull Throwable e) {
+    blackhole.consume(e);
+  }
+
+  @Override public void onComplete() {
+    blackhole.consume(tag);
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.reactivex.Observable;
+
+/** Cost of locking and unlocking a group with {@link #tagCount} Observables in flight. */
+@State(Scope.Thread)
+public class LockUnlockBenchmark {
+  @Param({"1", "100", "10000"})
+  public int tagCount;
+
+  private final ObservableManager observableManager = new ObservableManager();
+  private ObservableGroup group;
+
+  @Setup public void setUp(Blackhole blackhole) {
+    group = observableManager.newGroup();
+    Observable<Object> never = Observable.never();
+    for (int i = 0; i < tagCount; i++) {
+      BlackholeObserver observer = new BlackholeObserver("LockUnlockBenchmark_" + i, blackhole);
+      never.compose(group.transform(observer)).subscribe(observer);
+    }
+  }
+
+  @TearDown public void tearDown() {
+    observableManager.destroy(group);
+  }
+
+  @Benchmark public void lockUnlock() {
+    group.lock();
+    group.unlock();
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.reactivex.subjects.PublishSubject;
+
+/**
+ * Cost of resubscribing to an Observable that buffered {@link #bufferSize} items, which are all
+ * replayed to the new Observer.
+ */
+@State(Scope.Thread)
+public class ReplayBenchmark {
+  @Param({"10", "1000", "100000"})
+  public int bufferSize;
+
+  private final ObservableManager observableManager = new ObservableManager();
+  private ObservableGroup group;
+  private BlackholeObserver observer;
+
+  @Setup public void setUp(Blackhole blackhole) {
+    group = observableManager.newGroup();
+    observer = new BlackholeObserver("ReplayBenchmark", blackhole);
+    // Never completes, so the Observable stays in the group with all of its items buffered.
+    PublishSubject<Object> sourceObservable = PublishSubject.create();
+    group.lock();
+    sourceObservable.compose(group.transform(observer)).subscribe(observer);
+    for (int i = 0; i < bufferSize; i++) {
+      sourceObservable.onNext(i);
+    }
+  }
+
+  @TearDown public void tearDown() {
+    observableManager.destroy(group);
+  }
+
+  /** Unlocking resubscribes the existing Observer. */
+  @Benchmark public void unlock() {
+    group.unlock();
+    group.lock();
+  }
+
+  /** Resubscribes the Observer first, like an Activity does after a configuration change. */
+  @Benchmark public void resubscribeAllAndUnlock() {
+    group.resubscribeAll(observer);
+    group.unlock();
+    group.lock();
+  }
+}
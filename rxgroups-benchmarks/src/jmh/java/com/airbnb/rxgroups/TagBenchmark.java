@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import io.reactivex.annotations.NonNull;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.observers.DisposableObserver;
+
+/** Cost of computing the tag of an Observer. */
+@State(Scope.Thread)
+public class TagBenchmark {
+  private final DisposableObserver<Object> plainObserver = new DisposableObserver<Object>() {
+    @Override public void onNext(@NonNull Object o) {
+    }
+
+    @Override public void onError(@NonNull Throwable e) {
+    }
+
+    @Override public void onComplete() {
+    }
+  };
+
+  private final TaggedObserver<Object> taggedObserver = new TaggedObserver<Object>() {
+    @Override public String getTag() {
+      return "TagBenchmark";
+    }
+
+    @Override public void onSubscribe(@NonNull Disposable d) {
+    }
+
+    @Override public void onNext(@NonNull Object o) {
+    }
+
+    @Override public void onError(@NonNull Throwable e) {
+    }
+
+    @Override public void onComplete() {
+    }
+  };
+
+  @Benchmark public String nonResubscribableTagCreate() {
+    return NonResubscribableTag.create(plainObserver);
+  }
+
+  @Benchmark public boolean nonResubscribableTagMatch() {
+    return NonResubscribableTag.isNonResubscribableTag("TagBenchmark");
+  }
+
+  @Benchmark public String observerTagOfPlainObserver() {
+    return Utils.getObserverTag(plainObserver);
+  }
+
+  @Benchmark public String observerTagOfTaggedObserver() {
+    return Utils.getObserverTag(taggedObserver);
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.reactivex.Observable;
+
+/** Cost of adding an Observable to a group with {@code transform()} and subscribing to it. */
+@State(Scope.Thread)
+public class TransformBenchmark {
+  private final ObservableManager observableManager = new ObservableManager();
+  private final Observable<Object> just = Observable.<Object>just("Roberto");
+  private final Observable<Object> never = Observable.never();
+  private ObservableGroup group;
+  private BlackholeObserver observer;
+
+  @Setup(Level.Iteration) public void setUp(Blackhole blackhole) {
+    group = observableManager.newGroup();
+    observer = new BlackholeObserver("TransformBenchmark", blackhole);
+  }
+
+  @TearDown(Level.Iteration) public void tearDown() {
+    observableManager.destroy(group);
+  }
+
+  /** The source completes right away, so the Observable is also removed from the group. */
+  @Benchmark public void transformAndComplete() {
+    just.compose(group.transform(observer)).subscribe(observer);
+  }
+
+  /** The source never completes, so every call cancels and replaces the previous Observable. */
+  @Benchmark public void transformAndReplace() {
+    never.compose(group.transform(observer)).subscribe(observer);
+  }
+}
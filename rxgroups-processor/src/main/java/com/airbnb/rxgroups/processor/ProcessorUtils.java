@@ -1,9 +1,18 @@
 package com.airbnb.rxgroups.processor;
 
 
+import com.airbnb.rxgroups.AutoResubscribingMaybeObserver;
 import com.airbnb.rxgroups.AutoResubscribingObserver;
+import com.airbnb.rxgroups.AutoResubscribingSingleObserver;
+import com.airbnb.rxgroups.AutoResubscribingSubscriber;
+import com.airbnb.rxgroups.AutoTaggableMaybeObserver;
 import com.airbnb.rxgroups.AutoTaggableObserver;
+import com.airbnb.rxgroups.AutoTaggableSingleObserver;
+import com.airbnb.rxgroups.AutoTaggableSubscriber;
+import com.airbnb.rxgroups.TaggedMaybeObserver;
 import com.airbnb.rxgroups.TaggedObserver;
+import com.airbnb.rxgroups.TaggedSingleObserver;
+import com.airbnb.rxgroups.TaggedSubscriber;
 
 import javax.lang.model.element.Element;
 import javax.lang.model.type.TypeMirror;
@@ -14,25 +23,49 @@ class ProcessorUtils {
 
   static boolean isResubscribingObserver(Element observerFieldElement, Types typeUtil, Elements
           elementUtil) {
-    final TypeMirror autoResubscribingTypeMirror = elementUtil.getTypeElement(
-            AutoResubscribingObserver.class.getCanonicalName()).asType();
-    return typeUtil.isAssignable(observerFieldElement.asType(), typeUtil.erasure(
-            autoResubscribingTypeMirror));
+    return isAssignableToAny(observerFieldElement, typeUtil, elementUtil,
+        AutoResubscribingObserver.class, AutoResubscribingSingleObserver.class,
+        AutoResubscribingMaybeObserver.class, AutoResubscribingSubscriber.class);
   }
 
   static boolean isTaggedObserver(Element observerFieldElement, Types typeUtil, Elements
       elementUtil) {
-    final TypeMirror autoResubscribingTypeMirror = elementUtil.getTypeElement(
-        TaggedObserver.class.getCanonicalName()).asType();
-    return typeUtil.isAssignable(observerFieldElement.asType(), typeUtil.erasure(
-        autoResubscribingTypeMirror));
+    return isAssignableToAny(observerFieldElement, typeUtil, elementUtil,
+        TaggedObserver.class, TaggedSingleObserver.class, TaggedMaybeObserver.class,
+        TaggedSubscriber.class);
   }
 
   static boolean isAutoTaggable(Element observerFieldElement, Types typeUtil, Elements
       elementUtil) {
-    final TypeMirror autoResubscribingTypeMirror = elementUtil.getTypeElement(
-        AutoTaggableObserver.class.getCanonicalName()).asType();
-    return typeUtil.isAssignable(observerFieldElement.asType(), typeUtil.erasure(
-        autoResubscribingTypeMirror));
+    return isAssignableToAny(observerFieldElement, typeUtil, elementUtil,
+        AutoTaggableObserver.class, AutoTaggableSingleObserver.class,
+        AutoTaggableMaybeObserver.class, AutoTaggableSubscriber.class);
+  }
+
+  private static boolean isAssignableToAny(Element observerFieldElement, Types typeUtil,
+      Elements elementUtil, Class<?>... types) {
+    for (Class<?> type : types) {
+      final TypeMirror typeMirror = elementUtil.getTypeElement(type.getCanonicalName()).asType();
+      if (typeUtil.isAssignable(observerFieldElement.asType(), typeUtil.erasure(typeMirror))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Converts {@code name}, eg.: {@code MyActivity_myObserver}, to MY_ACTIVITY_MY_OBSERVER. */
+  static String toConstantName(String name) {
+    StringBuilder constantName = new StringBuilder(name.length() + 8);
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (Character.isUpperCase(c) && i > 0 && Character.isLowerCase(name.charAt(i - 1))) {
+        constantName.append('_');
+      }
+      if (c != '_' || constantName.length() == 0
+          || constantName.charAt(constantName.length() - 1) != '_') {
+        constantName.append(Character.toUpperCase(c));
+      }
+    }
+    return constantName.toString();
   }
 }
@@ -6,10 +6,17 @@ import com.airbnb.rxgroups.AutoTag;
 import com.airbnb.rxgroups.AutoTaggableObserver;
 import com.airbnb.rxgroups.BaseObservableResubscriber;
 import com.airbnb.rxgroups.ObservableGroup;
+import com.airbnb.rxgroups.TagRegistry;
+import com.airbnb.rxgroups.TaggedMaybeObserver;
 import com.airbnb.rxgroups.TaggedObserver;
+import com.airbnb.rxgroups.TaggedSingleObserver;
+import com.airbnb.rxgroups.TaggedSubscriber;
 import com.google.auto.service.AutoService;
+import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableSet;
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterSpec;
@@ -19,6 +26,8 @@ import com.squareup.javapoet.TypeSpec;
 import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -41,17 +50,40 @@ import javax.tools.Diagnostic;
 import static com.airbnb.rxgroups.processor.ResubscriptionProcessor.ObserverType.AUTO_RESUBSCRIBE_OBSERVER;
 import static com.airbnb.rxgroups.processor.ResubscriptionProcessor.ObserverType.TAGGED_OBSERVER;
 import static javax.lang.model.element.ElementKind.CLASS;
+import static javax.lang.model.element.Modifier.FINAL;
 import static javax.lang.model.element.Modifier.PRIVATE;
 import static javax.lang.model.element.Modifier.PUBLIC;
 import static javax.lang.model.element.Modifier.STATIC;
 
 @AutoService(Processor.class)
 public class ResubscriptionProcessor extends AbstractProcessor {
+  /**
+   * Processor option to choose the package of the generated tag table. Defaults to the common
+   * package of all the annotated classes in the module.
+   */
+  static final String OPTION_TAG_TABLE_PACKAGE = "rxgroups.tagTablePackage";
+  /**
+   * Processor option with a name that is unique to the module, eg.: its Gradle project path. The
+   * generated tag table is named {@code RxGroupsTagTable_<moduleName>}, with every character that
+   * is not valid in a Java identifier replaced by {@code _}, so modules that share a package do not
+   * generate the same class. Defaults to the hex {@link String#hashCode()} of the sorted qualified
+   * names of the annotated classes of the round, joined with {@code ,}. <p> Duplicate tags are
+   * only detected within a module, since each module is processed on its own.
+   */
+  static final String OPTION_MODULE_NAME = "rxgroups.moduleName";
+  static final String TAG_TABLE_CLASS_NAME = "RxGroupsTagTable";
+
   private Filer filer;
   private Messager messager;
   private Elements elementUtils;
   private Types typeUtils;
   private final List<Exception> loggedExceptions = new ArrayList<>();
+  /**
+   * Every tag generated in this module so far, mapped to the field that uses it. Other modules
+   * are processed separately, so their tags are not known here.
+   */
+  private final Map<String, Element> generatedTags = new LinkedHashMap<>();
+  private int tagTableCount;
 
   @Override
   public synchronized void init(ProcessingEnvironment processingEnv) {
@@ -68,6 +100,11 @@ public class ResubscriptionProcessor extends AbstractProcessor {
         AutoTag.class.getCanonicalName());
   }
 
+  @Override
+  public Set<String> getSupportedOptions() {
+    return ImmutableSet.of(OPTION_TAG_TABLE_PACKAGE, OPTION_MODULE_NAME);
+  }
+
   @Override
   public SourceVersion getSupportedSourceVersion() {
     return SourceVersion.latestSupported();
@@ -92,9 +129,16 @@ public class ResubscriptionProcessor extends AbstractProcessor {
       }
     }
 
+    ClassName tagTableClassName = null;
+    try {
+      tagTableClassName = generateTagTable(modelClassMap.values());
+    } catch (Exception e) {
+      logError(e);
+    }
+
     for (Map.Entry<TypeElement, ClassToGenerateInfo> modelEntry : modelClassMap.entrySet()) {
       try {
-        generateClass(modelEntry.getValue());
+        generateClass(modelEntry.getValue(), tagTableClassName);
       } catch (Exception e) {
         logError(e);
       }
@@ -124,11 +168,31 @@ public class ResubscriptionProcessor extends AbstractProcessor {
     boolean isAutoTaggable = ProcessorUtils.isAutoTaggable(observer, typeUtils, elementUtils);
     boolean shouldAutoResubscribe = annotationClass == AutoResubscribe.class;
     String customTag = getCustomTag(observer, annotationClass);
+    String tag = null;
+    if (observerType == AUTO_RESUBSCRIBE_OBSERVER || isAutoTaggable) {
+      tag = "".equals(customTag)
+          ? enclosingClass.getSimpleName().toString() + "_" + observerName
+          : customTag;
+      checkTagIsUnique(tag, observer);
+    }
 
-    targetClass.addObserver(observerName, new ObserverInfo(observerType, customTag, isAutoTaggable,
+    targetClass.addObserver(observerName, new ObserverInfo(observerType, tag, isAutoTaggable,
         shouldAutoResubscribe));
   }
 
+  private void checkTagIsUnique(String tag, Element observer) {
+    Element existingObserver = generatedTags.get(tag);
+    if (existingObserver != null && !existingObserver.equals(observer)) {
+      logError("Tag %s is used by more than one observer. Tags must be unique. (class: %s, "
+              + "field: %s, other class: %s, other field: %s)",
+          tag, observer.getEnclosingElement().getSimpleName(), observer.getSimpleName(),
+          existingObserver.getEnclosingElement().getSimpleName(),
+          existingObserver.getSimpleName());
+      return;
+    }
+    generatedTags.put(tag, observer);
+  }
+
   private String getCustomTag(Element observer, Class<? extends Annotation> annotationClass) {
     String customTag = "";
     if (annotationClass == AutoResubscribe.class) {
@@ -147,16 +211,20 @@ public class ResubscriptionProcessor extends AbstractProcessor {
 
     if (annotationClass == AutoResubscribe.class
         && !ProcessorUtils.isTaggedObserver(observerFieldElement, typeUtils, elementUtils)) {
-      logError("%s annotation may only be on %s types. (class: %s, field: %s)",
-              annotationClass.getSimpleName(), TaggedObserver.class,
+      logError("%s annotation may only be on %s, %s, %s or %s types. (class: %s, field: %s)",
+              annotationClass.getSimpleName(), TaggedObserver.class.getSimpleName(),
+              TaggedSingleObserver.class.getSimpleName(),
+              TaggedMaybeObserver.class.getSimpleName(), TaggedSubscriber.class.getSimpleName(),
               enclosingClass.getSimpleName(), observerFieldElement.getSimpleName());
     }
 
     if (annotationClass == AutoTag.class &&
         !(ProcessorUtils.isAutoTaggable(observerFieldElement, typeUtils, elementUtils) ||
             ProcessorUtils.isResubscribingObserver(observerFieldElement, typeUtils, elementUtils))) {
-      logError("%s annotation may only be on %s or %s types. (class: %s, field: %s)",
-          annotationClass.getSimpleName(), AutoTaggableObserver.class, AutoResubscribingObserver.class,
+      logError("%s annotation may only be on AutoTaggable or AutoResubscribing types, eg.: %s or "
+              + "%s. (class: %s, field: %s)",
+          annotationClass.getSimpleName(), AutoTaggableObserver.class.getSimpleName(),
+          AutoResubscribingObserver.class.getSimpleName(),
           enclosingClass.getSimpleName(), observerFieldElement.getSimpleName());
     }
 
@@ -220,12 +288,118 @@ public class ResubscriptionProcessor extends AbstractProcessor {
     return ClassName.get(packageName, className + ProcessorHelper.GENERATED_CLASS_NAME_SUFFIX);
   }
 
-  private void generateClass(ClassToGenerateInfo info) throws IOException {
+  /**
+   * Generates a table with the tags of this round, so they are registered in {@link TagRegistry}
+   * with precomputed hash codes and can be looked up by id at runtime. Assigns the name of the id
+   * constant to each {@link ObserverInfo} with a tag.
+   *
+   * @return the name of the generated table, or {@code null} if there are no tags in this round.
+   */
+  private ClassName generateTagTable(Iterable<ClassToGenerateInfo> classes) throws IOException {
+    List<ObserverInfo> taggedObservers = new ArrayList<>();
+    List<String> classNames = new ArrayList<>();
+    String packageName = processingEnv.getOptions().get(OPTION_TAG_TABLE_PACKAGE);
+    for (ClassToGenerateInfo info : classes) {
+      for (Map.Entry<String, ObserverInfo> observer : info.observerNamesToType.entrySet()) {
+        ObserverInfo observerInfo = observer.getValue();
+        if (observerInfo.tag == null) {
+          continue;
+        }
+        observerInfo.tagIdField = ProcessorUtils.toConstantName(
+            info.originalClassName.getSimpleName() + "_" + observer.getKey());
+        taggedObservers.add(observerInfo);
+        packageName = commonPackage(packageName, info.generatedClassName.packageName());
+      }
+      classNames.add(info.originalClassName.getQualifiedName().toString());
+    }
+    if (taggedObservers.isEmpty()) {
+      return null;
+    }
+
+    String simpleName = TAG_TABLE_CLASS_NAME + "_" + moduleSuffix(classNames)
+        + (tagTableCount == 0 ? "" : tagTableCount);
+    tagTableCount++;
+    ClassName className = ClassName.get(packageName, simpleName);
+
+    CodeBlock.Builder tags = CodeBlock.builder().add("{");
+    CodeBlock.Builder hashCodes = CodeBlock.builder().add("{");
+    for (int i = 0; i < taggedObservers.size(); i++) {
+      String tag = taggedObservers.get(i).tag;
+      tags.add(i == 0 ? "$S" : ", $S", tag);
+      hashCodes.add(i == 0 ? "$L" : ", $L", tag.hashCode());
+    }
+
+    TypeSpec.Builder tagTable = TypeSpec.classBuilder(className)
+        .addJavadoc("Generated file. Do not modify!")
+        .addModifiers(PUBLIC, FINAL)
+        .addField(FieldSpec.builder(String[].class, "TAGS", PRIVATE, STATIC, FINAL)
+            .initializer(tags.add("}").build())
+            .build())
+        .addField(FieldSpec.builder(int[].class, "HASH_CODES", PRIVATE, STATIC, FINAL)
+            .initializer(hashCodes.add("}").build())
+            .build())
+        .addField(FieldSpec.builder(int[].class, "IDS", PRIVATE, STATIC, FINAL)
+            .initializer("$T.register(TAGS, HASH_CODES)", TagRegistry.class)
+            .build())
+        .addMethod(MethodSpec.constructorBuilder().addModifiers(PRIVATE).build());
+
+    Set<String> fieldNames = new HashSet<>();
+    for (int i = 0; i < taggedObservers.size(); i++) {
+      ObserverInfo observerInfo = taggedObservers.get(i);
+      String fieldName = observerInfo.tagIdField;
+      for (int suffix = 1; !fieldNames.add(fieldName); suffix++) {
+        fieldName = observerInfo.tagIdField + "_" + suffix;
+      }
+      observerInfo.tagIdField = fieldName;
+      tagTable.addField(FieldSpec.builder(TypeName.INT, fieldName, PUBLIC, STATIC, FINAL)
+          .initializer("IDS[$L]", i)
+          .build());
+    }
+
+    JavaFile.builder(packageName, tagTable.build())
+        .build()
+        .writeTo(filer);
+    return className;
+  }
+
+  /** @return the suffix of the tag table name, see {@link #OPTION_MODULE_NAME}. */
+  private String moduleSuffix(List<String> classNames) {
+    String moduleName = processingEnv.getOptions().get(OPTION_MODULE_NAME);
+    if (moduleName == null || moduleName.isEmpty()) {
+      Collections.sort(classNames);
+      return Integer.toHexString(Joiner.on(',').join(classNames).hashCode());
+    }
+    StringBuilder suffix = new StringBuilder(moduleName.length());
+    for (int i = 0; i < moduleName.length(); i++) {
+      char c = moduleName.charAt(i);
+      suffix.append(Character.isJavaIdentifierPart(c) ? c : '_');
+    }
+    return suffix.toString();
+  }
+
+  private static String commonPackage(String packageName, String otherPackageName) {
+    if (packageName == null) {
+      return otherPackageName;
+    }
+    while (!otherPackageName.equals(packageName)
+        && !otherPackageName.startsWith(packageName + ".")) {
+      int lastDot = packageName.lastIndexOf('.');
+      if (lastDot == -1) {
+        // Nothing in common, so we fall back to the first package.
+        return packageName;
+      }
+      packageName = packageName.substring(0, lastDot);
+    }
+    return packageName;
+  }
+
+  private void generateClass(ClassToGenerateInfo info, ClassName tagTableClassName)
+      throws IOException {
     TypeSpec generatedClass = TypeSpec.classBuilder(info.generatedClassName)
             .superclass(BaseObservableResubscriber.class)
             .addJavadoc("Generated file. Do not modify!")
             .addModifiers(Modifier.PUBLIC)
-            .addMethod(generateConstructor(info))
+            .addMethod(generateConstructor(info, tagTableClassName))
             .build();
 
     JavaFile.builder(info.generatedClassName.packageName(), generatedClass)
@@ -233,7 +407,7 @@ public class ResubscriptionProcessor extends AbstractProcessor {
             .writeTo(filer);
   }
 
-  private MethodSpec generateConstructor(ClassToGenerateInfo info) {
+  private MethodSpec generateConstructor(ClassToGenerateInfo info, ClassName tagTableClassName) {
     MethodSpec.Builder builder = MethodSpec.constructorBuilder()
             .addModifiers(PUBLIC)
             .addParameter(ParameterSpec.builder(TypeName.get(info.originalClassName.asType())
@@ -245,13 +419,17 @@ public class ResubscriptionProcessor extends AbstractProcessor {
         : info.observerNamesToType.entrySet()) {
       String observerName = observerNameAndType.getKey();
       ObserverInfo observerInfo = observerNameAndType.getValue();
-      if (observerInfo.type == AUTO_RESUBSCRIBE_OBSERVER || observerInfo.autoTaggable) {
-        String tag = "".equals(observerInfo.customTag) ?
-            info.originalClassName.getSimpleName().toString() + "_" + observerName
-            : observerInfo.customTag;
-        builder.addStatement("setTag(target.$L, $S)", observerName, tag);
+      if (observerInfo.tag != null) {
+        builder.addStatement("setTag(target.$L, $S)", observerName, observerInfo.tag);
       }
-      if (observerInfo.shouldAutoResubscribe) {
+      if (observerInfo.shouldAutoResubscribe && observerInfo.tagIdField != null) {
+        // Most observers have nothing in flight, so check that cheaply before resubscribing.
+        builder.beginControlFlow("if (group.hasObservables($T.$L))", tagTableClassName,
+            observerInfo.tagIdField)
+            .addStatement("group.resubscribeAll(target.$L, $T.$L)", observerName,
+                tagTableClassName, observerInfo.tagIdField)
+            .endControlFlow();
+      } else if (observerInfo.shouldAutoResubscribe) {
         builder.addStatement("group.resubscribeAll(target.$L)", observerName);
       }
     }
@@ -276,14 +454,17 @@ public class ResubscriptionProcessor extends AbstractProcessor {
 
   private static class ObserverInfo {
     final ObserverType type;
-    final String customTag;
+    /** The generated tag, or {@code null} if the observer provides its own tag. */
+    final String tag;
     final boolean autoTaggable;
     final boolean shouldAutoResubscribe;
+    /** Name of the constant holding the id of {@link #tag} in the generated tag table. */
+    String tagIdField;
 
-    ObserverInfo(ObserverType type, String customTag, boolean autoTaggable,
+    ObserverInfo(ObserverType type, String tag, boolean autoTaggable,
                  boolean shouldAutoResubscribe) {
       this.type = type;
-      this.customTag = customTag;
+      this.tag = tag;
       this.autoTaggable = autoTaggable;
       this.shouldAutoResubscribe = shouldAutoResubscribe;
     }
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.ObservableOnSubscribe;
+import io.reactivex.annotations.NonNull;
+import io.reactivex.functions.Action;
+import io.reactivex.observers.TestObserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Fails when the number of bytes allocated per call of a hot path grows beyond its budget. Budgets
+ * are the measured allocations plus some slack, so update them when an increase is intended. <p>
+ * Allocation sizes depend on the JVM vendor, version and settings such as compressed oops, so the
+ * budgets only hold on the JVM they were measured on: HotSpot 8 and 17 with default settings. The
+ * tests are skipped unless enabled with {@code -Pallocation.budgets=true}, eg.: to compare the
+ * allocations of a change against the previous commit on the same machine.
+ */
+public class AllocationTest {
+  private static final int WARMUP_ITERATIONS = 20000;
+  private static final int ITERATIONS = 20000;
+
+  private static final long ADD_BUDGET = 1200;
+  private static final long LOCK_UNLOCK_BUDGET = 176;
+  private static final long PROXY_SUBSCRIBE_BUDGET = 176;
+  private static final long TAGGED_OBSERVER_TAG_BUDGET = 0;
+
+  private final ObservableManager observableManager = new ObservableManager();
+  private final Observable<String> never = Observable.never();
+  private com.sun.management.ThreadMXBean threadMXBean;
+
+  @Before public void setUp() {
+    assumeTrue(Boolean.getBoolean("allocation.budgets"));
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+    threadMXBean = (com.sun.management.ThreadMXBean) bean;
+    assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+    threadMXBean.setThreadAllocatedMemoryEnabled(true);
+  }
+
+  @Test public void testObservableGroupAdd() throws Exception {
+    final ObservableGroup group = observableManager.newGroup();
+    final ObservableEmitter<String> emitter = newEmitter();
+
+    // Each call cancels and replaces the Observable added by the previous one.
+    assertAllocatesAtMost(ADD_BUDGET, new Action() {
+      @Override public void run() {
+        group.add("AllocationTest", "add", never, emitter);
+      }
+    });
+  }
+
+  @Test public void testManagedObservableLockUnlock() throws Exception {
+    ObservableGroup group = observableManager.newGroup();
+    final ManagedObservable<String> managedObservable =
+        group.add("AllocationTest", "lockUnlock", never, newEmitter());
+
+    assertAllocatesAtMost(LOCK_UNLOCK_BUDGET, new Action() {
+      @Override public void run() {
+        managedObservable.lock();
+        managedObservable.unlock();
+      }
+    });
+  }
+
+  @Test public void testSubscriptionProxySubscribe() throws Exception {
+    final SubscriptionProxy<String> proxy = SubscriptionProxy.create(never);
+    final ObservableEmitter<String> emitter = newEmitter();
+
+    assertAllocatesAtMost(PROXY_SUBSCRIBE_BUDGET, new Action() {
+      @Override public void run() {
+        proxy.subscribe(emitter);
+      }
+    });
+  }
+
+  @Test public void testGetObserverTagOfTaggedObserver() throws Exception {
+    final TestAutoResubscribingObserver observer = new TestAutoResubscribingObserver("foo");
+
+    assertAllocatesAtMost(TAGGED_OBSERVER_TAG_BUDGET, new Action() {
+      @Override public void run() {
+        Utils.getObserverTag(observer);
+      }
+    });
+  }
+
+  private void assertAllocatesAtMost(long budget, Action operation) throws Exception {
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      operation.run();
+    }
+    long threadId = Thread.currentThread().getId();
+    long before = threadMXBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < ITERATIONS; i++) {
+      operation.run();
+    }
+    long bytesPerOperation =
+        (threadMXBean.getThreadAllocatedBytes(threadId) - before) / ITERATIONS;
+    assertThat(bytesPerOperation)
+        .overridingErrorMessage("Allocated %s bytes per operation, budget is %s bytes",
+            bytesPerOperation, budget)
+        .isLessThanOrEqualTo(budget);
+  }
+
+  private static ObservableEmitter<String> newEmitter() {
+    final ObservableEmitter<?>[] emitter = new ObservableEmitter<?>[1];
+    Observable.create(new ObservableOnSubscribe<String>() {
+      @Override public void subscribe(@NonNull ObservableEmitter<String> e) {
+        emitter[0] = e;
+      }
+    }).subscribe(new TestObserver<String>());
+    //noinspection unchecked
+    return (ObservableEmitter<String>) emitter[0];
+  }
+}
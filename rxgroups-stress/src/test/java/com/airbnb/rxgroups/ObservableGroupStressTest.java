@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import org.junit.Test;
+
+import io.reactivex.Observable;
+import io.reactivex.subjects.PublishSubject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ObservableGroupStressTest {
+  private static final int ITEM_COUNT = 50;
+
+  private final ObservableManager observableManager = new ObservableManager();
+
+  @Test public void emissionVsLock() {
+    for (int i = 0; i < Race.ITERATIONS; i++) {
+      final ObservableGroup group = observableManager.newGroup();
+      final PublishSubject<Integer> subject = PublishSubject.create();
+      RecordingObserver observer = new RecordingObserver("emissionVsLock");
+      subject.compose(group.transform(observer)).subscribe(observer);
+
+      Race.run(new Runnable() {
+        @Override public void run() {
+          Observable.range(0, ITEM_COUNT).subscribe(subject);
+        }
+      }, new Runnable() {
+        @Override public void run() {
+          for (int j = 0; j < 10; j++) {
+            group.lock();
+            group.unlock();
+          }
+        }
+      });
+      group.unlock();
+
+      assertThat(observer.violations()).isEmpty();
+      assertThat(observer.completions()).isEqualTo(1);
+      assertThat(observer.hasOnlyReplayedRuns(ITEM_COUNT)).isTrue();
+      observableManager.destroy(group);
+    }
+  }
+
+  @Test public void addVsDestroy() {
+    for (int i = 0; i < Race.ITERATIONS; i++) {
+      final ObservableGroup group = observableManager.newGroup();
+      final PublishSubject<Integer> subject = PublishSubject.create();
+      final RecordingObserver observer = new RecordingObserver("addVsDestroy");
+
+      Race.run(new Runnable() {
+        @Override public void run() {
+          // Fails with IllegalStateException delivered to onError if the group is destroyed.
+          subject.compose(group.transform(observer)).subscribe(observer);
+        }
+      }, new Runnable() {
+        @Override public void run() {
+          observableManager.destroy(group);
+        }
+      });
+
+      assertThat(subject.hasObservers()).overridingErrorMessage(
+          "Source is still subscribed after its group was destroyed").isFalse();
+    }
+  }
+
+  @Test public void cancelVsTerminate() {
+    for (int i = 0; i < Race.ITERATIONS; i++) {
+      final ObservableGroup group = observableManager.newGroup();
+      final PublishSubject<Integer> subject = PublishSubject.create();
+      final RecordingObserver observer = new RecordingObserver("cancelVsTerminate");
+      subject.compose(group.transform(observer)).subscribe(observer);
+
+      Race.run(new Runnable() {
+        @Override public void run() {
+          subject.onNext(0);
+          subject.onComplete();
+        }
+      }, new Runnable() {
+        @Override public void run() {
+          group.cancelAndRemove(observer, "cancelVsTerminate");
+          observer.stopAccepting();
+        }
+      });
+
+      assertThat(observer.violations()).isEmpty();
+      assertThat(observer.completions()).isLessThanOrEqualTo(1);
+      assertThat(group.hasObservables(observer)).isFalse();
+      observableManager.destroy(group);
+    }
+  }
+
+  @Test public void replaceVsTerminate() {
+    for (int i = 0; i < Race.ITERATIONS; i++) {
+      final ObservableGroup group = observableManager.newGroup();
+      final PublishSubject<Integer> subject = PublishSubject.create();
+      final PublishSubject<Integer> replacement = PublishSubject.create();
+      final RecordingObserver observer = new RecordingObserver("replaceVsTerminate");
+      final RecordingObserver replacementObserver = new RecordingObserver("replaceVsTerminate");
+      subject.compose(group.transform(observer)).subscribe(observer);
+
+      Race.run(new Runnable() {
+        @Override public void run() {
+          subject.onNext(0);
+          subject.onComplete();
+        }
+      }, new Runnable() {
+        @Override public void run() {
+          group.cancelAndRemove(observer, "replaceVsTerminate");
+          observer.stopAccepting();
+          replacement.compose(group.transform(replacementObserver))
+              .subscribe(replacementObserver);
+        }
+      });
+
+      assertThat(observer.violations()).isEmpty();
+      assertThat(group.hasObservables(replacementObserver)).overridingErrorMessage(
+          "Replacement was removed by the termination of the Observable it replaced").isTrue();
+      assertThat(replacement.hasObservers()).isTrue();
+      observableManager.destroy(group);
+      assertThat(replacement.hasObservers()).overridingErrorMessage(
+          "Replacement is still subscribed after its group was destroyed").isFalse();
+    }
+  }
+
+  @Test public void concurrentResubscribe() {
+    for (int i = 0; i < Race.ITERATIONS; i++) {
+      final ObservableGroup group = observableManager.newGroup();
+      final PublishSubject<Integer> subject = PublishSubject.create();
+      RecordingObserver initialObserver = new RecordingObserver("concurrentResubscribe");
+      subject.compose(group.transform(initialObserver)).subscribe(initialObserver);
+      for (int j = 0; j < ITEM_COUNT / 2; j++) {
+        subject.onNext(j);
+      }
+
+      final RecordingObserver first = new RecordingObserver("concurrentResubscribe");
+      final RecordingObserver second = new RecordingObserver("concurrentResubscribe");
+      Race.run(new Runnable() {
+        @Override public void run() {
+          group.resubscribeAll(first);
+        }
+      }, new Runnable() {
+        @Override public void run() {
+          group.resubscribeAll(second);
+        }
+      }, new Runnable() {
+        @Override public void run() {
+          for (int j = ITEM_COUNT / 2; j < ITEM_COUNT; j++) {
+            subject.onNext(j);
+          }
+        }
+      });
+      subject.onComplete();
+
+      for (RecordingObserver observer : new RecordingObserver[] {first, second}) {
+        assertThat(observer.violations()).isEmpty();
+        observer.hasOnlyReplayedRuns(ITEM_COUNT);
+        assertThat(observer.violations()).isEmpty();
+      }
+      // Only the Observer that resubscribed last is still subscribed when the source completes.
+      assertThat(initialObserver.completions() + first.completions() + second.completions())
+          .isEqualTo(1);
+      assertThat(first.hasOnlyReplayedRuns(ITEM_COUNT) || second.hasOnlyReplayedRuns(ITEM_COUNT))
+          .isTrue();
+      observableManager.destroy(group);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/** Runs actions on separate threads, released at the same time to maximize contention. */
+final class Race {
+  static final int ITERATIONS = Integer.getInteger("stress.iterations", 2000);
+
+  private Race() {
+  }
+
+  static void run(Runnable... actions) {
+    final CountDownLatch ready = new CountDownLatch(actions.length);
+    final CountDownLatch done = new CountDownLatch(actions.length);
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    for (final Runnable action : actions) {
+      new Thread(new Runnable() {
+        @Override public void run() {
+          ready.countDown();
+          try {
+            ready.await();
+            action.run();
+          } catch (Throwable e) {
+            error.compareAndSet(null, e);
+          } finally {
+            done.countDown();
+          }
+        }
+      }).start();
+    }
+    try {
+      if (!done.await(10, TimeUnit.SECONDS)) {
+        throw new AssertionError("Race did not finish, possible deadlock");
+      }
+    } catch (InterruptedException e) {
+      throw new AssertionError(e);
+    }
+    if (error.get() != null) {
+      throw new AssertionError(error.get());
+    }
+  }
+}
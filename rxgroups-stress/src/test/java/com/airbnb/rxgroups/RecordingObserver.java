@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.annotations.NonNull;
+import io.reactivex.disposables.Disposable;
+
+/**
+ * Records the events it receives, and records a violation when events arrive concurrently, after
+ * a terminal event or after {@link #stopAccepting()} beyond what cancellation allows.
+ */
+class RecordingObserver implements TaggedObserver<Integer> {
+  private final String tag;
+  private final AtomicBoolean inCallback = new AtomicBoolean();
+  /** Number of events received after {@link #stopAccepting()}, or -1 before it is called. */
+  private final AtomicInteger lateEvents = new AtomicInteger(-1);
+  private volatile Thread cancellingThread;
+  private final List<Integer> values = new ArrayList<>();
+  private final List<String> violations = new ArrayList<>();
+  private int completions;
+  private boolean terminated;
+
+  RecordingObserver(String tag) {
+    this.tag = tag;
+  }
+
+  @Override public String getTag() {
+    return tag;
+  }
+
+  @Override public void onSubscribe(@NonNull Disposable d) {
+  }
+
+  @Override public void onNext(@NonNull Integer value) {
+    enter("onNext " + value);
+    values.add(value);
+    exit();
+  }
+
+  @Override public void onError(@NonNull Throwable e) {
+    enter("onError " + e);
+    violations.add("unexpected error " + e);
+    terminated = true;
+    exit();
+  }
+
+  @Override public void onComplete() {
+    enter("onComplete");
+    completions++;
+    terminated = true;
+    exit();
+  }
+
+  /**
+   * To be called right after cancelling the subscription, on the same thread. Events are delivered
+   * without holding a lock, so only an event whose delivery already began on another thread may
+   * still arrive. Every delivery checks for disposal before it begins, so that is at most one
+   * event; any other event received after this call is a violation.
+   */
+  void stopAccepting() {
+    cancellingThread = Thread.currentThread();
+    lateEvents.set(0);
+  }
+
+  private void enter(String event) {
+    if (!inCallback.compareAndSet(false, true)) {
+      synchronized (violations) {
+        violations.add("concurrent " + event);
+      }
+      return;
+    }
+    if (terminated) {
+      violations.add(event + " after terminal event");
+    }
+    if (lateEvents.get() >= 0) {
+      if (Thread.currentThread() == cancellingThread) {
+        violations.add(event + " on the cancelling thread after being cancelled");
+      } else if (lateEvents.incrementAndGet() > 1) {
+        violations.add(event + " after being cancelled and an in-flight event");
+      }
+    }
+  }
+
+  private void exit() {
+    inCallback.set(false);
+  }
+
+  synchronized List<Integer> values() {
+    return new ArrayList<>(values);
+  }
+
+  int completions() {
+    return completions;
+  }
+
+  List<String> violations() {
+    synchronized (violations) {
+      return new ArrayList<>(violations);
+    }
+  }
+
+  /**
+   * Every subscription replays the source from its first item, so the values must be a
+   * concatenation of runs 0, 1, 2... Returns whether the last run holds all {@code count} items.
+   */
+  boolean hasOnlyReplayedRuns(int count) {
+    int expected = 0;
+    for (int value : values) {
+      if (value == 0) {
+        expected = 0;
+      }
+      if (value != expected) {
+        violations.add("out of order " + value + " while expecting " + expected
+            + " in " + values);
+        return false;
+      }
+      expected++;
+    }
+    return expected == count;
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import org.junit.Test;
+
+import io.reactivex.disposables.Disposable;
+import io.reactivex.internal.functions.Functions;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.subjects.PublishSubject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SubscriptionProxyStressTest {
+  @Test public void connectVsCancel() {
+    for (int i = 0; i < Race.ITERATIONS; i++) {
+      final PublishSubject<String> subject = PublishSubject.create();
+      final SubscriptionProxy<String> proxy =
+          SubscriptionProxy.createUnconnected(subject, Functions.EMPTY_ACTION, null);
+
+      Race.run(new Runnable() {
+        @Override public void run() {
+          proxy.connect();
+        }
+      }, new Runnable() {
+        @Override public void run() {
+          proxy.cancel();
+        }
+      });
+
+      assertThat(subject.hasObservers()).overridingErrorMessage(
+          "Source is still subscribed after the proxy was cancelled").isFalse();
+    }
+  }
+
+  @Test public void subscribeVsCancel() {
+    for (int i = 0; i < Race.ITERATIONS; i++) {
+      final PublishSubject<String> subject = PublishSubject.create();
+      final SubscriptionProxy<String> proxy = SubscriptionProxy.create(subject);
+      final TestObserver<String> observer = new TestObserver<>();
+      final Disposable[] disposable = new Disposable[1];
+
+      Race.run(new Runnable() {
+        @Override public void run() {
+          disposable[0] = proxy.subscribe(observer);
+        }
+      }, new Runnable() {
+        @Override public void run() {
+          proxy.cancel();
+        }
+      });
+
+      assertThat(disposable[0].isDisposed()).overridingErrorMessage(
+          "Observer is still subscribed after the proxy was cancelled").isTrue();
+      assertThat(subject.hasObservers()).isFalse();
+      assertThat(proxy.isCancelled()).isTrue();
+    }
+  }
+}
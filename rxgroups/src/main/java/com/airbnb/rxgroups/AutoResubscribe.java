@@ -21,8 +21,10 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 /**
- * Used on {@link io.reactivex.Observer} fields to indicate that they should be automatically
+ * Used on {@link TaggedObserver} fields to indicate that they should be automatically
  * subscribed to a certain Observable, or multiple Observables if they still haven't completed yet.
+ * {@link TaggedSingleObserver}, {@link TaggedMaybeObserver} and {@link TaggedSubscriber} fields
+ * are supported as well.
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.FIELD)
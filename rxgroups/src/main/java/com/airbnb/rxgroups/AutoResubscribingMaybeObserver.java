@@ -0,0 +1,40 @@
+package com.airbnb.rxgroups;
+
+import io.reactivex.annotations.NonNull;
+import io.reactivex.disposables.Disposable;
+
+/**
+ * A {@link io.reactivex.MaybeObserver} which has a stable tag. Must be used with
+ * {@link AutoResubscribe} annotation to set the tag before observer is used.
+ */
+public abstract class AutoResubscribingMaybeObserver<T> implements TaggedMaybeObserver<T> {
+
+  private String tag;
+
+  public final String getTag() {
+    return tag;
+  }
+
+  void setTag(String tag) {
+    this.tag = tag;
+  }
+
+  @Override
+  public void onSuccess(T t) {
+
+  }
+
+  @Override
+  public void onComplete() {
+
+  }
+
+  @Override
+  public void onError(Throwable e) {
+
+  }
+
+  @Override public void onSubscribe(@NonNull Disposable d) {
+
+  }
+}
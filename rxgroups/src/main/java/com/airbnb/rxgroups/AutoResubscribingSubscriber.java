@@ -0,0 +1,41 @@
+package com.airbnb.rxgroups;
+
+import org.reactivestreams.Subscription;
+
+/**
+ * A {@link org.reactivestreams.Subscriber} which has a stable tag. Must be used with
+ * {@link AutoResubscribe} annotation to set the tag before subscriber is used.
+ * <p> Unless {@link #onSubscribe(Subscription)} is overridden, all items are requested as soon as
+ * the subscription starts.
+ */
+public abstract class AutoResubscribingSubscriber<T> implements TaggedSubscriber<T> {
+
+  private String tag;
+
+  public final String getTag() {
+    return tag;
+  }
+
+  void setTag(String tag) {
+    this.tag = tag;
+  }
+
+  @Override
+  public void onComplete() {
+
+  }
+
+  @Override
+  public void onError(Throwable e) {
+
+  }
+
+  @Override
+  public void onNext(T t) {
+
+  }
+
+  @Override public void onSubscribe(Subscription s) {
+    s.request(Long.MAX_VALUE);
+  }
+}
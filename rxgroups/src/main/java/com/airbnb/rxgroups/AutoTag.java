@@ -3,7 +3,9 @@ package com.airbnb.rxgroups;
 /**
  * Used on {@link AutoTaggableObserver} fields to indicate that a unique tag should automatically be
  * injected into the Observer. Unlike {@link AutoResubscribe} this annotation does <i>not</i>
- * signify that the Observer should be resubscribed upon initialization.
+ * signify that the Observer should be resubscribed upon initialization. The Single, Maybe and
+ * Flowable counterparts ({@link AutoTaggableSingleObserver}, {@link AutoTaggableMaybeObserver} and
+ * {@link AutoTaggableSubscriber}) are supported as well.
  */
 public @interface AutoTag {
   /**
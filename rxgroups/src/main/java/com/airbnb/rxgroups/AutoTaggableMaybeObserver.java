@@ -0,0 +1,13 @@
+package com.airbnb.rxgroups;
+
+
+import io.reactivex.MaybeObserver;
+
+/**
+ * {@link MaybeObserver} with a unique tag which can be automatically set during
+ * {@link ObservableGroup#initializeAutoTaggingAndResubscription(Object)}
+ * when used with {@link AutoResubscribe} or {@link AutoTag}.
+ */
+public interface AutoTaggableMaybeObserver<T> extends TaggedMaybeObserver<T> {
+  void setTag(String tag);
+}
@@ -0,0 +1,13 @@
+package com.airbnb.rxgroups;
+
+
+import io.reactivex.SingleObserver;
+
+/**
+ * {@link SingleObserver} with a unique tag which can be automatically set during
+ * {@link ObservableGroup#initializeAutoTaggingAndResubscription(Object)}
+ * when used with {@link AutoResubscribe} or {@link AutoTag}.
+ */
+public interface AutoTaggableSingleObserver<T> extends TaggedSingleObserver<T> {
+  void setTag(String tag);
+}
@@ -0,0 +1,13 @@
+package com.airbnb.rxgroups;
+
+
+import org.reactivestreams.Subscriber;
+
+/**
+ * {@link Subscriber} with a unique tag which can be automatically set during
+ * {@link ObservableGroup#initializeAutoTaggingAndResubscription(Object)}
+ * when used with {@link AutoResubscribe} or {@link AutoTag}.
+ */
+public interface AutoTaggableSubscriber<T> extends TaggedSubscriber<T> {
+  void setTag(String tag);
+}
@@ -10,4 +10,28 @@ public class BaseObservableResubscriber {
     target.setTag(tag);
   }
 
+  protected void setTag(AutoResubscribingSingleObserver target, String tag) {
+    target.setTag(tag);
+  }
+
+  protected void setTag(AutoTaggableSingleObserver target, String tag) {
+    target.setTag(tag);
+  }
+
+  protected void setTag(AutoResubscribingMaybeObserver target, String tag) {
+    target.setTag(tag);
+  }
+
+  protected void setTag(AutoTaggableMaybeObserver target, String tag) {
+    target.setTag(tag);
+  }
+
+  protected void setTag(AutoResubscribingSubscriber target, String tag) {
+    target.setTag(tag);
+  }
+
+  protected void setTag(AutoTaggableSubscriber target, String tag) {
+    target.setTag(tag);
+  }
+
 }
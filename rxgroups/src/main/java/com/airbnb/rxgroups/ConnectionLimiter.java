@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Limits how many Observables of an {@link ObservableGroup} are subscribed to their source at the
+ * same time. Observables added beyond the limit are queued, and connected as others terminate or
+ * are cancelled, in {@link ManagedObservable#PRIORITY_ORDER}.
+ */
+final class ConnectionLimiter {
+  /** Guarded by {@code this}, like the other fields. */
+  private final Queue<ManagedObservable<?>> pending =
+      new PriorityQueue<>(11, ManagedObservable.PRIORITY_ORDER);
+  private final Set<ManagedObservable<?>> connected =
+      Collections.newSetFromMap(new IdentityHashMap<ManagedObservable<?>, Boolean>());
+  private int maxInFlight;
+
+  ConnectionLimiter(int maxInFlight) {
+    this.maxInFlight = maxInFlight;
+  }
+
+  void setMaxInFlight(int maxInFlight) {
+    synchronized (this) {
+      this.maxInFlight = maxInFlight;
+    }
+    connectPending();
+  }
+
+  synchronized int maxInFlight() {
+    return maxInFlight;
+  }
+
+  /** Connects {@code managedObservable} now if below the limit, or queues it. */
+  void connect(ManagedObservable<?> managedObservable) {
+    synchronized (this) {
+      pending.add(managedObservable);
+    }
+    connectPending();
+  }
+
+  /**
+   * Called when {@code managedObservable} no longer needs a connection, because its source
+   * terminated or it was cancelled. Does nothing if it was already released.
+   */
+  void release(ManagedObservable<?> managedObservable) {
+    synchronized (this) {
+      if (!connected.remove(managedObservable)) {
+        pending.remove(managedObservable);
+        return;
+      }
+    }
+    connectPending();
+  }
+
+  /** Forgets the queued Observables without connecting them, eg.: before cancelling them. */
+  synchronized void clear() {
+    pending.clear();
+    connected.clear();
+  }
+
+  synchronized int inFlightCount() {
+    return connected.size();
+  }
+
+  synchronized int pendingCount() {
+    return pending.size();
+  }
+
+  private void connectPending() {
+    // Sources are connected without holding the lock, since they may terminate synchronously.
+    List<ManagedObservable<?>> ready = null;
+    synchronized (this) {
+      while (connected.size() < maxInFlight && !pending.isEmpty()) {
+        ManagedObservable<?> next = pending.poll();
+        connected.add(next);
+        if (ready == null) {
+          ready = new ArrayList<>();
+        }
+        ready.add(next);
+      }
+    }
+    if (ready != null) {
+      for (ManagedObservable<?> managedObservable : ready) {
+        managedObservable.connect();
+      }
+    }
+  }
+}
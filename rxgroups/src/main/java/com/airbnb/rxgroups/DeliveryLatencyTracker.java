@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Aggregates, per observable tag, the time items spend between being emitted by the source
+ * Observable and being delivered to the Observer, eg.: while the group is locked.
+ */
+final class DeliveryLatencyTracker {
+  private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+  Recorder newRecorder(String observableTag) {
+    LatencyHistogram histogram = histograms.get(observableTag);
+    if (histogram == null) {
+      LatencyHistogram newHistogram = new LatencyHistogram();
+      histogram = histograms.putIfAbsent(observableTag, newHistogram);
+      if (histogram == null) {
+        histogram = newHistogram;
+      }
+    }
+    return new Recorder(histogram);
+  }
+
+  Map<String, LatencyHistogram> histograms() {
+    return Collections.unmodifiableMap(histograms);
+  }
+
+  /**
+   * Timestamps the items of one {@link ManagedObservable}. Items are replayed from the start every
+   * time an Observer subscribes, so only the first delivery of each item is recorded. At most
+   * {@link #MAX_PENDING} items are timestamped while they wait to be delivered, eg.: while the
+   * group is locked. Items emitted past that are counted as {@link LatencyHistogram#overflowCount()
+   * overflowed} instead, until every pending item was delivered.
+   */
+  static final class Recorder {
+    static final int MAX_PENDING = 1024;
+
+    private final LatencyHistogram histogram;
+    /** Ring buffer with the emission times of the items that were not delivered yet. */
+    private long[] emittedAt = new long[8];
+    private int head;
+    private int size;
+    /** Number of items emitted after the ring, which were not timestamped. */
+    private int overflowedSize;
+    /** Number of items whose delivery was handled, which is the position of the ring's head. */
+    private int deliveredCount;
+
+    private Recorder(LatencyHistogram histogram) {
+      this.histogram = histogram;
+    }
+
+    synchronized void onEmitted() {
+      if (overflowedSize > 0 || size == MAX_PENDING) {
+        // Timestamping it after the skipped items would break the order of the ring.
+        overflowedSize++;
+        histogram.recordOverflow();
+        return;
+      }
+      if (size == emittedAt.length) {
+        long[] grown = new long[size * 2];
+        for (int i = 0; i < size; i++) {
+          grown[i] = emittedAt[(head + i) & (size - 1)];
+        }
+        emittedAt = grown;
+        head = 0;
+      }
+      emittedAt[(head + size) & (emittedAt.length - 1)] = System.nanoTime();
+      size++;
+    }
+
+    /** Called when the item at {@code position} in the replay was delivered to the Observer. */
+    synchronized void onDelivered(int position) {
+      if (position != deliveredCount) {
+        return;
+      }
+      if (size == 0) {
+        if (overflowedSize > 0) {
+          overflowedSize--;
+          deliveredCount++;
+        }
+        return;
+      }
+      histogram.record(System.nanoTime() - emittedAt[head]);
+      head = (head + 1) & (emittedAt.length - 1);
+      size--;
+      deliveredCount++;
+    }
+  }
+}
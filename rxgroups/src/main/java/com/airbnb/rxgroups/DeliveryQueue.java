@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Scheduler;
+import io.reactivex.plugins.RxJavaPlugins;
+
+/**
+ * Runs the deliveries of all Observables of a group on its delivery {@link Scheduler}. Instead of
+ * scheduling one task per event like {@code observeOn} does, a single task is scheduled when the
+ * queue becomes non-empty, and it runs every delivery queued until the queue is empty again.
+ * Deliveries run one at a time and in the order they were queued.
+ */
+final class DeliveryQueue implements Runnable {
+  private final Scheduler.Worker worker;
+  private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+  /** Number of deliveries queued since the drain task last found the queue empty. */
+  private final AtomicInteger wip = new AtomicInteger();
+
+  DeliveryQueue(Scheduler scheduler) {
+    worker = scheduler.createWorker();
+  }
+
+  void enqueue(Runnable delivery) {
+    pending.offer(delivery);
+    if (wip.getAndIncrement() == 0) {
+      worker.schedule(this);
+    }
+  }
+
+  @Override public void run() {
+    int missed = 1;
+    do {
+      Runnable delivery;
+      while ((delivery = pending.poll()) != null) {
+        try {
+          delivery.run();
+        } catch (Throwable e) {
+          // Keep draining, otherwise every later delivery would be stuck in the queue.
+          RxJavaPlugins.onError(e);
+        }
+      }
+      missed = wip.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  /** Runs the deliveries queued so far, then releases the worker. */
+  void shutdown() {
+    enqueue(new Runnable() {
+      @Override public void run() {
+        worker.dispose();
+      }
+    });
+  }
+
+  /** Releases the worker right away, dropping the queued deliveries. */
+  void dispose() {
+    worker.dispose();
+    pending.clear();
+  }
+}
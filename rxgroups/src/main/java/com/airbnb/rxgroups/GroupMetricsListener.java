@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+/**
+ * Receives lifecycle events from every {@link ObservableGroup} created by an
+ * {@link ObservableManager}, eg.: to export counters and gauges to a monitoring system. Override
+ * only the callbacks you are interested in; every callback does nothing by default. <p> Callbacks
+ * are invoked synchronously on the thread that caused the event, which for
+ * {@link #onItemBuffered(long, String, String)} is the thread the source Observable emits on, so
+ * implementations should be cheap and thread safe. <p> When an {@link ObservableManager} is
+ * created without a listener it uses {@link #NONE}, in which case no callback is made and the
+ * delivery of terminal events is not tracked. Every source is still observed to count its items
+ * and record how it terminated, for {@link ObservableSnapshot}s and
+ * {@link ObservableGroup#setMaxInFlight(int)}.
+ */
+public abstract class GroupMetricsListener {
+  /** Listener that ignores every event. */
+  public static final GroupMetricsListener NONE = new GroupMetricsListener() {
+  };
+
+  /** An Observable was added to the group {@code groupId} and subscribed to. */
+  public void onAdd(long groupId, String observerTag, String observableTag) {
+  }
+
+  /**
+   * An Observable was cancelled, either explicitly or because it was replaced or its group was
+   * destroyed. It will not deliver any more events. Reported once per Observable.
+   */
+  public void onCancel(long groupId, String observerTag, String observableTag) {
+  }
+
+  /**
+   * An Observable was added with {@link InFlightPolicy#JOIN} while the Observable with the same
+   * tags was still in the group, so the new Observer was subscribed to that one instead.
+   */
+  public void onJoin(long groupId, String observerTag, String observableTag) {
+  }
+
+  /** The group {@code groupId} was locked. */
+  public void onLock(long groupId) {
+  }
+
+  /** The group {@code groupId} was unlocked. */
+  public void onUnlock(long groupId) {
+  }
+
+  /**
+   * The Observable emitted an item while it had no subscribed Observer, because its group was
+   * locked or its Observer was disposed. The item is held until the Observable is resubscribed.
+   */
+  public void onItemBuffered(long groupId, String observerTag, String observableTag) {
+  }
+
+  /**
+   * An Observer was subscribed to an Observable that had already emitted {@code itemCount} items,
+   * which are all replayed to it. This includes items delivered to a previous Observer, so use
+   * {@link #onBufferDrained(long, String, String, int)} to keep track of the buffered items.
+   */
+  public void onReplay(long groupId, String observerTag, String observableTag, int itemCount) {
+  }
+
+  /**
+   * {@code itemCount} items reported by {@link #onItemBuffered(long, String, String)} left the
+   * buffer, because they were replayed to a new Observer, or the Observable was cancelled or
+   * terminated. Subtracting it from the number of buffered items gives a gauge of the items
+   * currently held for Observers that were not subscribed.
+   */
+  public void onBufferDrained(long groupId, String observerTag, String observableTag,
+      int itemCount) {
+  }
+
+  /** The terminal event of the Observable was delivered to its Observer. */
+  public void onTerminalDelivered(long groupId, String observerTag, String observableTag) {
+  }
+}
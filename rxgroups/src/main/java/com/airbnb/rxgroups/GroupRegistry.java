@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.Nullable;
+
+/**
+ * The groups of an {@link ObservableManager}, split into shards that each allocate their own ids
+ * and keep their own map, so threads creating and destroying groups at the same time mostly work
+ * on different shards. Ids are allocated by the shard of the calling thread, and the shard of a
+ * group is found from its id alone: shard {@code i} of {@code n} allocates {@code n + i},
+ * {@code 2n + i}, and so on. With a single shard, ids are 1, 2, 3, etc.
+ */
+final class GroupRegistry {
+  /** Longs between the id counters of two shards, so each is on its own cache line. */
+  private static final int COUNTER_STRIDE = 16;
+
+  private final AtomicLongArray nextIds;
+  private final Map<Long, ObservableGroup>[] groups;
+
+  // Arrays of a generic type can only be created raw.
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  GroupRegistry(int shardCount) {
+    Preconditions.checkArgument(shardCount > 0, "shardCount must be positive but was %s",
+        shardCount);
+    nextIds = new AtomicLongArray(shardCount * COUNTER_STRIDE);
+    groups = new Map[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      nextIds.set(i * COUNTER_STRIDE, 1);
+      groups[i] = new ConcurrentHashMap<>();
+    }
+  }
+
+  int shardCount() {
+    return groups.length;
+  }
+
+  /** @return a new unique group id, allocated by the shard of the calling thread. */
+  long newId() {
+    int shard = groups.length == 1 ? 0 : (int) (Thread.currentThread().getId() % groups.length);
+    return nextIds.getAndIncrement(shard * COUNTER_STRIDE) * groups.length + shard;
+  }
+
+  void put(ObservableGroup group) {
+    groups[shardOf(group.id())].put(group.id(), group);
+  }
+
+  @Nullable ObservableGroup get(long groupId) {
+    return groupId > 0 ? groups[shardOf(groupId)].get(groupId) : null;
+  }
+
+  void remove(long groupId) {
+    if (groupId > 0) {
+      groups[shardOf(groupId)].remove(groupId);
+    }
+  }
+
+  /** @return the groups of all shards. */
+  List<ObservableGroup> groups() {
+    List<ObservableGroup> result = new ArrayList<>();
+    for (Map<Long, ObservableGroup> shard : groups) {
+      result.addAll(shard.values());
+    }
+    return result;
+  }
+
+  private int shardOf(long groupId) {
+    return (int) (groupId % groups.length);
+  }
+}
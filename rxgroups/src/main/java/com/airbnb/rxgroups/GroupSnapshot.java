@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import java.util.List;
+
+/**
+ * Immutable state of an {@link ObservableGroup} and its Observables at the time
+ * {@link ObservableManager#snapshot()} was called.
+ */
+public final class GroupSnapshot {
+  private final long groupId;
+  private final boolean locked;
+  private final boolean destroyed;
+  private final List<ObservableSnapshot> observables;
+
+  GroupSnapshot(long groupId, boolean locked, boolean destroyed,
+      List<ObservableSnapshot> observables) {
+    this.groupId = groupId;
+    this.locked = locked;
+    this.destroyed = destroyed;
+    this.observables = observables;
+  }
+
+  public long groupId() {
+    return groupId;
+  }
+
+  public boolean isLocked() {
+    return locked;
+  }
+
+  public boolean isDestroyed() {
+    return destroyed;
+  }
+
+  /** @return the Observables in flight in the group. The list cannot be modified. */
+  public List<ObservableSnapshot> observables() {
+    return observables;
+  }
+
+  @Override public String toString() {
+    return "GroupSnapshot{" + "groupId=" + groupId
+        + ", locked=" + locked
+        + ", destroyed=" + destroyed
+        + ", observables=" + observables
+        + '}';
+  }
+}
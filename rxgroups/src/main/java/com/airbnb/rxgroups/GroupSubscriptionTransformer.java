@@ -16,11 +16,22 @@
 package com.airbnb.rxgroups;
 
 
+import org.reactivestreams.Publisher;
+
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableTransformer;
+import io.reactivex.Maybe;
+import io.reactivex.MaybeSource;
+import io.reactivex.MaybeTransformer;
 import io.reactivex.Observable;
 import io.reactivex.ObservableEmitter;
 import io.reactivex.ObservableOnSubscribe;
 import io.reactivex.ObservableSource;
 import io.reactivex.ObservableTransformer;
+import io.reactivex.Single;
+import io.reactivex.SingleSource;
+import io.reactivex.SingleTransformer;
 import io.reactivex.annotations.NonNull;
 import io.reactivex.disposables.Disposable;
 
@@ -28,23 +39,49 @@ import io.reactivex.disposables.Disposable;
  * Transforms an existing {@link Observable} by returning a new {@link Observable} that is
  * automatically added to the provided {@link ObservableGroup} with the specified {@code
  * observableTag} when subscribed to.
+ * <p> {@link Single}, {@link Maybe} and {@link Flowable} sources are managed as an
+ * {@link Observable} and converted back. Since the group buffers all events while locked,
+ * a {@link Flowable} source is requested without backpressure.
  */
-class GroupSubscriptionTransformer<T> implements ObservableTransformer<T, T> {
+class GroupSubscriptionTransformer<T> implements ObservableTransformer<T, T>,
+    SingleTransformer<T, T>, MaybeTransformer<T, T>, FlowableTransformer<T, T> {
   private final ObservableGroup group;
   private final String observableTag;
   private final String observerTag;
+  private final InFlightPolicy inFlightPolicy;
+  private final int priority;
 
-  GroupSubscriptionTransformer(ObservableGroup group, String observerTag, String observableTag) {
+  GroupSubscriptionTransformer(ObservableGroup group, String observerTag, String observableTag,
+      InFlightPolicy inFlightPolicy, int priority) {
     this.group = group;
     this.observableTag = observableTag;
     this.observerTag = observerTag;
+    this.inFlightPolicy = inFlightPolicy;
+    this.priority = priority;
+  }
+
+  @Override public ObservableSource<T> apply(@NonNull Observable<T> sourceObservable) {
+    return managed(sourceObservable);
+  }
+
+  @Override public SingleSource<T> apply(@NonNull Single<T> sourceSingle) {
+    return managed(sourceSingle.toObservable()).singleOrError();
+  }
+
+  @Override public MaybeSource<T> apply(@NonNull Maybe<T> sourceMaybe) {
+    return managed(sourceMaybe.toObservable()).singleElement();
+  }
+
+  @Override public Publisher<T> apply(@NonNull Flowable<T> sourceFlowable) {
+    return managed(sourceFlowable.toObservable()).toFlowable(BackpressureStrategy.BUFFER);
   }
 
-  @Override public ObservableSource<T> apply(@NonNull final Observable<T> sourceObservable) {
+  private Observable<T> managed(final Observable<T> sourceObservable) {
     return Observable.create(new ObservableOnSubscribe<T>() {
       @Override
       public void subscribe(@NonNull final ObservableEmitter<T> emitter) throws Exception {
-        group.add(observerTag, observableTag, sourceObservable, emitter);
+        group.add(observerTag, observableTag, sourceObservable, emitter, inFlightPolicy,
+            priority);
         emitter.setDisposable(managedObservableDisposable);
       }
     });
@@ -53,7 +90,7 @@ class GroupSubscriptionTransformer<T> implements ObservableTransformer<T, T> {
   private Disposable managedObservableDisposable = new Disposable() {
     @Override public void dispose() {
       ManagedObservable managedObservable =
-          group.getObservablesForObserver(observerTag).get(observableTag);
+          group.findManagedObservable(observerTag, observableTag);
       if (managedObservable != null) {
         managedObservable.dispose();
       }
@@ -61,7 +98,7 @@ class GroupSubscriptionTransformer<T> implements ObservableTransformer<T, T> {
 
     @Override public boolean isDisposed() {
       ManagedObservable managedObservable =
-          group.getObservablesForObserver(observerTag).get(observableTag);
+          group.findManagedObservable(observerTag, observableTag);
       return managedObservable == null || managedObservable.isDisposed();
     }
   };
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+/**
+ * What {@link ObservableGroup} does when an Observable is added with the same observer and
+ * observable tags as one that is already in the group, eg.: when a user taps refresh twice or a
+ * re-created screen issues the same request again.
+ */
+public enum InFlightPolicy {
+  /**
+   * Cancels the previous Observable and subscribes to the new one. This is the default, and the
+   * only choice when the new Observable may emit something else than the previous one.
+   */
+  REPLACE,
+  /**
+   * Keeps the previous Observable if it was not cancelled, and subscribes the new Observer to it
+   * instead of the new Observable, which is never subscribed to. The Observer receives every event
+   * the previous Observable emitted so far, like with {@link ObservableGroup#resubscribe(
+   * TaggedObserver)}. Once the previous Observable delivered its terminal event it is no longer in
+   * the group, so the new Observable is subscribed to as usual.
+   */
+  JOIN
+}
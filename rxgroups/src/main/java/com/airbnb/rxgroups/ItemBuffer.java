@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import java.io.IOException;
+
+/**
+ * Decides how a {@link SubscriptionProxy} holds the items it buffers until they are delivered,
+ * other than holding them as they are, eg.: {@link SpillStore.Spiller} or {@link SoftItemBuffer}.
+ * One instance is used per {@link ManagedObservable}.
+ */
+interface ItemBuffer<T> {
+  /** @return what the replay holds in place of {@code item}, possibly {@code item} itself. */
+  Object hold(T item);
+
+  /** @return the item that {@link #hold(Object)} returned {@code held} for. */
+  T get(Object held) throws IOException;
+
+  /** Drops the items held so far if they can be lost, to free memory. */
+  void evict();
+
+  /** @return whether an item was lost, so the Observable must be subscribed to again. */
+  boolean isEvicted();
+
+  /** Called once no held item will be delivered anymore. */
+  void release();
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe histogram of latencies in nanoseconds that uses a fixed amount of memory regardless
+ * of how many values are recorded. Like an HDR histogram, values are counted in buckets whose
+ * width grows with the magnitude of the value: every power of two is split into
+ * {@value #SUB_BUCKET_COUNT} linear sub buckets, so any recorded value is reported with an error
+ * of at most 1/{@value #SUB_BUCKET_COUNT} of itself.
+ */
+public final class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 4;
+  static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  /** Values below {@link #SUB_BUCKET_COUNT} get a bucket each, then 16 per power of two. */
+  private static final int BUCKET_COUNT = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicLong totalCount = new AtomicLong();
+  private final AtomicLong totalNanos = new AtomicLong();
+  private final AtomicLong maxNanos = new AtomicLong();
+  private final AtomicLong overflowCount = new AtomicLong();
+
+  /** Records a latency of {@code nanos}. Negative values are recorded as zero. */
+  public void record(long nanos) {
+    if (nanos < 0) {
+      nanos = 0;
+    }
+    counts.incrementAndGet(bucketIndex(nanos));
+    totalCount.incrementAndGet();
+    totalNanos.addAndGet(nanos);
+    long max;
+    do {
+      max = maxNanos.get();
+    } while (nanos > max && !maxNanos.compareAndSet(max, nanos));
+  }
+
+  /** Counts a value that was not recorded, see {@link #overflowCount()}. */
+  void recordOverflow() {
+    overflowCount.incrementAndGet();
+  }
+
+  /**
+   * @return the number of deliveries whose latency was not recorded, because too many items of the
+   * same Observable were waiting to be delivered.
+   */
+  public long overflowCount() {
+    return overflowCount.get();
+  }
+
+  /** @return the number of recorded values. */
+  public long count() {
+    return totalCount.get();
+  }
+
+  /** @return the largest recorded value, or 0 if nothing was recorded. */
+  public long maxNanos() {
+    return maxNanos.get();
+  }
+
+  /** @return the mean of the recorded values, or 0 if nothing was recorded. */
+  public double meanNanos() {
+    long count = totalCount.get();
+    return count == 0 ? 0 : (double) totalNanos.get() / count;
+  }
+
+  /**
+   * @return the value below which {@code percentile} percent of the recorded values fall, eg.:
+   * {@code valueAtPercentile(99)}. The result is the upper bound of the bucket holding that value,
+   * but never more than {@link #maxNanos()}. Returns 0 if nothing was recorded.
+   */
+  public long valueAtPercentile(double percentile) {
+    Preconditions.checkArgument(percentile >= 0 && percentile <= 100,
+        "percentile must be in [0, 100] but was %s", percentile);
+    long count = totalCount.get();
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(highestValueInBucket(i), maxNanos.get());
+      }
+    }
+    // Values recorded concurrently with this call may not be counted in the buckets yet.
+    return maxNanos.get();
+  }
+
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  static long highestValueInBucket(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = index / SUB_BUCKET_COUNT - 1;
+    long lowest = (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+
+  @Override public String toString() {
+    return "LatencyHistogram{" + "count=" + count()
+        + ", p50=" + valueAtPercentile(50)
+        + ", p99=" + valueAtPercentile(99)
+        + ", max=" + maxNanos()
+        + ", overflowCount=" + overflowCount()
+        + '}';
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Opt-in detector for Observers that outlive their owner. Once a watcher is set with
+ * {@link ObservableManager#setLeakWatcher(LeakWatcher)}, groups remember their Observers through
+ * weak references. When the owner of a group is destroyed (see {@code GroupLifecycleManager}),
+ * {@link #watch(ObservableGroup)} starts watching them, and {@link #check()} reports the ones that
+ * have not been garbage collected yet. <p> An Observer is only reported after the garbage collector
+ * had a chance to reclaim it, so call {@link #check()} some time after the owner was destroyed,
+ * eg.: from a debug menu or after {@link System#gc()} in a test.
+ */
+public class LeakWatcher {
+  /** Generous guess of the object header size, used by {@link Leak#estimatedBytes()}. */
+  private static final int OBJECT_HEADER_BYTES = 16;
+
+  private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+  private final Set<WatchedReference> watched =
+      Collections.newSetFromMap(new ConcurrentHashMap<WatchedReference, Boolean>());
+
+  /**
+   * Starts watching the Observers that were added to {@code group}. Called when the owner of the
+   * group is destroyed, after it disposed or destroyed the group.
+   */
+  public void watch(ObservableGroup group) {
+    Map<String, WeakReference<Object>> observers = group.watchedObservers();
+    if (observers == null) {
+      return;
+    }
+    for (Map.Entry<String, WeakReference<Object>> entry : observers.entrySet()) {
+      Object observer = entry.getValue().get();
+      if (observer != null) {
+        watched.add(new WatchedReference(observer, queue, group, entry.getKey()));
+      }
+    }
+    observers.clear();
+  }
+
+  /**
+   * @return the watched Observers that were not garbage collected yet, with the total of their
+   * {@link Leak#estimatedBytes()} in {@link #leakedBytes(List)}.
+   */
+  public List<Leak> check() {
+    Reference<?> collected;
+    while ((collected = queue.poll()) != null) {
+      watched.remove(collected);
+    }
+    List<Leak> leaks = new ArrayList<>();
+    for (WatchedReference reference : watched) {
+      Object observer = reference.get();
+      if (observer != null) {
+        ObservableGroup group = reference.group.get();
+        leaks.add(new Leak(reference.groupId, reference.observerTag,
+            observer.getClass().getName(), group != null && group.retainsObserver(
+            reference.observerTag), estimateRetainedBytes(observer)));
+      }
+    }
+    return Collections.unmodifiableList(leaks);
+  }
+
+  /** @return the sum of {@link Leak#estimatedBytes()} of {@code leaks}. */
+  public static long leakedBytes(List<Leak> leaks) {
+    long bytes = 0;
+    for (Leak leak : leaks) {
+      bytes += leak.estimatedBytes();
+    }
+    return bytes;
+  }
+
+  /**
+   * Rough estimate of the memory an Observer keeps alive: its own fields, plus those of the
+   * instances it is an inner class of, which usually are the leaked Activity or Fragment.
+   */
+  static long estimateRetainedBytes(Object observer) {
+    long bytes = estimateShallowBytes(observer.getClass());
+    for (Class<?> cls = observer.getClass(); cls != null; cls = cls.getSuperclass()) {
+      for (Field field : cls.getDeclaredFields()) {
+        if (field.isSynthetic() && field.getName().startsWith("this$")) {
+          try {
+            field.setAccessible(true);
+            Object outer = field.get(observer);
+            if (outer != null) {
+              bytes += estimateShallowBytes(outer.getClass());
+            }
+          } catch (IllegalAccessException | SecurityException ignored) {
+            // The estimate just won't include the outer instance.
+          }
+        }
+      }
+    }
+    return bytes;
+  }
+
+  private static long estimateShallowBytes(Class<?> cls) {
+    long bytes = OBJECT_HEADER_BYTES;
+    for (; cls != null; cls = cls.getSuperclass()) {
+      for (Field field : cls.getDeclaredFields()) {
+        if (Modifier.isStatic(field.getModifiers())) {
+          continue;
+        }
+        Class<?> type = field.getType();
+        if (type == long.class || type == double.class) {
+          bytes += 8;
+        } else if (type == int.class || type == float.class) {
+          bytes += 4;
+        } else if (type == short.class || type == char.class) {
+          bytes += 2;
+        } else if (type == byte.class || type == boolean.class) {
+          bytes += 1;
+        } else {
+          bytes += 8;
+        }
+      }
+    }
+    return bytes;
+  }
+
+  /** An Observer that was still reachable when {@link #check()} was called. */
+  public static final class Leak {
+    private final long groupId;
+    private final String observerTag;
+    private final String observerClassName;
+    private final boolean retainedByGroup;
+    private final long estimatedBytes;
+
+    Leak(long groupId, String observerTag, String observerClassName, boolean retainedByGroup,
+        long estimatedBytes) {
+      this.groupId = groupId;
+      this.observerTag = observerTag;
+      this.observerClassName = observerClassName;
+      this.retainedByGroup = retainedByGroup;
+      this.estimatedBytes = estimatedBytes;
+    }
+
+    public long groupId() {
+      return groupId;
+    }
+
+    public String observerTag() {
+      return observerTag;
+    }
+
+    public String observerClassName() {
+      return observerClassName;
+    }
+
+    /**
+     * @return whether the group itself still references the Observer, ie.: one of its Observables
+     * was neither disposed nor cancelled. Otherwise something outside of RxGroups retains it.
+     */
+    public boolean isRetainedByGroup() {
+      return retainedByGroup;
+    }
+
+    /**
+     * @return a rough estimate of the bytes kept alive by the Observer, see
+     * {@link #estimateRetainedBytes(Object)}. Objects referenced by those are not included.
+     */
+    public long estimatedBytes() {
+      return estimatedBytes;
+    }
+
+    @Override public String toString() {
+      return "Leak{" + "groupId=" + groupId
+          + ", observerTag='" + observerTag + '\''
+          + ", observerClassName='" + observerClassName + '\''
+          + ", retainedByGroup=" + retainedByGroup
+          + ", estimatedBytes=" + estimatedBytes
+          + '}';
+    }
+  }
+
+  private static final class WatchedReference extends WeakReference<Object> {
+    final long groupId;
+    final String observerTag;
+    final WeakReference<ObservableGroup> group;
+
+    WatchedReference(Object observer, ReferenceQueue<Object> queue, ObservableGroup group,
+        String observerTag) {
+      super(observer, queue);
+      this.groupId = group.id();
+      this.group = new WeakReference<>(group);
+      this.observerTag = observerTag;
+    }
+  }
+}
@@ -16,27 +16,133 @@
 package com.airbnb.rxgroups;
 
 
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import javax.annotation.Nullable;
+
 import io.reactivex.Observable;
 import io.reactivex.ObservableEmitter;
+import io.reactivex.Observer;
+import io.reactivex.annotations.NonNull;
+import io.reactivex.disposables.Disposable;
 import io.reactivex.functions.Action;
 
 /**
  * A wrapper for a {@link SubscriptionProxy} for use with the {@link ObservableGroup} to monitor a
- * subscription state by tag.
+ * subscription state by tag. <p> Lock, unlock, resubscribe, dispose and cancel may be called from
+ * different threads, so they are serialized on the {@link SubscriptionProxy}. Events are delivered
+ * after releasing its lock, as are the metrics reported.
  */
 class ManagedObservable<T> implements SourceSubscription {
+  /** Highest priority first, then in the order the Observables were added. */
+  static final Comparator<ManagedObservable<?>> PRIORITY_ORDER =
+      new Comparator<ManagedObservable<?>>() {
+        @Override public int compare(ManagedObservable<?> o1, ManagedObservable<?> o2) {
+          if (o1.priority != o2.priority) {
+            return o1.priority > o2.priority ? -1 : 1;
+          }
+          return o1.sequence < o2.sequence ? -1 : (o1.sequence == o2.sequence ? 0 : 1);
+        }
+      };
+  // The class literal of a generic class can only be raw.
+  @SuppressWarnings("rawtypes")
+  private static final AtomicIntegerFieldUpdater<ManagedObservable> BUFFERED_COUNT =
+      AtomicIntegerFieldUpdater.newUpdater(ManagedObservable.class, "bufferedCount");
+  private static final int NOT_SUBSCRIBED = -1;
+
   private final String observableTag;
   private final String observerTag;
+  private final long groupId;
+  private final GroupMetricsListener metrics;
   private final SubscriptionProxy<T> proxy;
-  private boolean locked = true;
-  private ObservableEmitter<? super T> observerEmitter;
+  // Read without the lock by the thread the source emits on.
+  private volatile boolean locked = true;
+  private volatile ObservableEmitter<? super T> observerEmitter;
+  /** Unlike {@link #isCancelled()}, not set when the source terminates while disposed. */
+  private volatile boolean cancelled;
+  @Nullable private final DeliveryLatencyTracker.Recorder latencyRecorder;
+  @Nullable private final ConnectionLimiter connectionLimiter;
+  private final int priority;
+  @Nullable private volatile DeliveryQueue deliveryQueue;
+  /**
+   * Incremented, while holding the lock, whenever the Observer is subscribed or unsubscribed, so
+   * deliveries queued for an earlier subscription can be dropped.
+   */
+  private volatile int subscriptionCount;
+  /** Position among the Observables of the group, in the order they were added. */
+  private final long sequence;
+  private final long createdAtNanos = System.nanoTime();
+  /** Number of items emitted by the source, which the proxy holds to replay them. */
+  private volatile int emittedCount;
+  /** Number of items reported as buffered to the metrics listener and not drained yet. */
+  private volatile int bufferedCount;
+  private volatile ObservableSnapshot.TerminalState terminalState =
+      ObservableSnapshot.TerminalState.NONE;
 
   ManagedObservable(String observerTag, String observableTag, Observable<T> upstreamObservable,
       ObservableEmitter<? super T> observer, Action onTerminate) {
+    this(observerTag, observableTag, upstreamObservable, observer, onTerminate, 0,
+        GroupMetricsListener.NONE, null, null, ObservableGroup.DEFAULT_PRIORITY, 0, null);
+  }
+
+  /**
+   * Unless {@code connectionLimiter} is null, the source is only subscribed to once the limiter
+   * calls {@link #connect()}. Unless {@code itemBuffer} is null, items are held by it until they
+   * are delivered.
+   */
+  ManagedObservable(String observerTag, String observableTag, Observable<T> upstreamObservable,
+      ObservableEmitter<? super T> observer, Action onTerminate, long groupId,
+      GroupMetricsListener metrics, @Nullable DeliveryLatencyTracker.Recorder latencyRecorder,
+      @Nullable ConnectionLimiter connectionLimiter, int priority, long sequence,
+      @Nullable ItemBuffer<T> itemBuffer) {
     this.observableTag = observableTag;
     this.observerTag = observerTag;
     this.observerEmitter = observer;
-    proxy = SubscriptionProxy.create(upstreamObservable, onTerminate);
+    this.groupId = groupId;
+    this.metrics = metrics;
+    this.latencyRecorder = latencyRecorder;
+    this.connectionLimiter = connectionLimiter;
+    this.priority = priority;
+    this.sequence = sequence;
+    upstreamObservable = upstreamObservable.doOnEach(new Observer<T>() {
+      @Override public void onSubscribe(@NonNull Disposable d) {
+      }
+
+      @Override public void onNext(@NonNull T t) {
+        onSourceNext();
+      }
+
+      @Override public void onError(@NonNull Throwable e) {
+        terminalState = ObservableSnapshot.TerminalState.ERROR;
+        releaseConnection();
+      }
+
+      @Override public void onComplete() {
+        terminalState = ObservableSnapshot.TerminalState.COMPLETED;
+        releaseConnection();
+      }
+    });
+    if (metrics != GroupMetricsListener.NONE) {
+      onTerminate = terminalDeliveryAction(onTerminate);
+    }
+    // The source may emit synchronously while the proxy connects, so all fields must be set first.
+    proxy = connectionLimiter == null
+        ? SubscriptionProxy.create(upstreamObservable, onTerminate, itemBuffer)
+        : SubscriptionProxy.createUnconnected(upstreamObservable, onTerminate, itemBuffer);
+  }
+
+  /** Subscribes to the source, if created with a {@link ConnectionLimiter}. */
+  void connect() {
+    proxy.connect();
+  }
+
+  private void releaseConnection() {
+    if (connectionLimiter != null) {
+      connectionLimiter.release(this);
+    }
   }
 
   @Override public boolean isCancelled() {
@@ -44,18 +150,35 @@ class ManagedObservable<T> implements SourceSubscription {
   }
 
   @Override public void cancel() {
-    proxy.cancel();
-    observerEmitter = null;
+    boolean wasCancelled;
+    synchronized (proxy) {
+      wasCancelled = cancelled;
+      cancelled = true;
+      subscriptionCount++;
+      proxy.cancel();
+      observerEmitter = null;
+    }
+    if (!wasCancelled) {
+      metrics.onCancel(groupId, observerTag, observableTag);
+      drainBuffered();
+    }
+    releaseConnection();
   }
 
   void lock() {
-    locked = true;
-    proxy.dispose();
+    synchronized (proxy) {
+      locked = true;
+      subscriptionCount++;
+      proxy.dispose();
+    }
   }
 
   @Override public void dispose() {
-    proxy.dispose();
-    observerEmitter = null;
+    synchronized (proxy) {
+      subscriptionCount++;
+      proxy.dispose();
+      observerEmitter = null;
+    }
   }
 
   @Override public boolean isDisposed() {
@@ -63,11 +186,57 @@ class ManagedObservable<T> implements SourceSubscription {
   }
 
   void unlock() {
-    locked = false;
+    int replayedCount = NOT_SUBSCRIBED;
+    synchronized (proxy) {
+      locked = false;
 
-    if (observerEmitter != null) {
-      proxy.subscribe(observerEmitter);
+      if (observerEmitter != null) {
+        replayedCount = subscribeProxy(observerEmitter);
+      }
     }
+    onSubscribed(replayedCount);
+  }
+
+  /** @return whether another Observer can still receive all events by resubscribing. */
+  boolean isJoinable() {
+    return !cancelled;
+  }
+
+  /** @return whether the source terminated, even if the event was not delivered yet. */
+  boolean isTerminated() {
+    return terminalState != ObservableSnapshot.TerminalState.NONE;
+  }
+
+  boolean hasObserver() {
+    return observerEmitter != null;
+  }
+
+  String observableTag() {
+    return observableTag;
+  }
+
+  String observerTag() {
+    return observerTag;
+  }
+
+  long sequence() {
+    return sequence;
+  }
+
+  /** @return every item the source emitted, or {@code null} if it did not complete. */
+  @Nullable List<T> completedItems() throws IOException {
+    return terminalState == ObservableSnapshot.TerminalState.COMPLETED
+        ? proxy.completedItems() : null;
+  }
+
+  /** Drops the buffered items that can be evicted, see {@link ItemBuffer#evict()}. */
+  void evict() {
+    proxy.evict();
+  }
+
+  /** @return whether a buffered item was lost, so the Observable must be subscribed again. */
+  boolean isEvicted() {
+    return proxy.isEvicted();
   }
 
   Observable<T> proxiedObservable() {
@@ -75,18 +244,223 @@ class ManagedObservable<T> implements SourceSubscription {
   }
 
   void resubscribe(ObservableEmitter<? super T> observerEmitter) {
-    this.observerEmitter = Preconditions.checkNotNull(observerEmitter);
+    int replayedCount = NOT_SUBSCRIBED;
+    synchronized (proxy) {
+      this.observerEmitter = Preconditions.checkNotNull(observerEmitter);
+
+      if (!locked) {
+        replayedCount = subscribeProxy(observerEmitter);
+      }
+    }
+    onSubscribed(replayedCount);
+  }
 
-    if (!locked) {
+  /** @return the number of items the proxy replays to the new subscription. */
+  private int subscribeProxy(ObservableEmitter<? super T> observerEmitter) {
+    int replayedCount = emittedCount;
+    subscriptionCount++;
+    boolean evicted = proxy.isEvicted();
+    if (deliveryQueue == null && latencyRecorder == null && !evicted) {
       proxy.subscribe(observerEmitter);
+      return replayedCount;
+    }
+    Observer<T> observer = latencyRecorder != null
+        ? deliveryTrackingObserver(observerEmitter, latencyRecorder)
+        : SubscriptionProxy.emitterObserver(observerEmitter);
+    if (evicted) {
+      // The replay would deliver the items before the lost one, then fail.
+      observer = itemDroppingObserver(observer);
+      replayedCount = 0;
+    }
+    if (deliveryQueue != null) {
+      proxy.subscribeDeferringTerminate(queuedDeliveryObserver(observer));
+    } else {
+      proxy.subscribe(observer);
+    }
+    return replayedCount;
+  }
+
+  /**
+   * Delivers what the proxy replayed while the lock was held, and reports it, unless
+   * {@code replayedCount} is {@link #NOT_SUBSCRIBED}.
+   */
+  private void onSubscribed(int replayedCount) {
+    if (replayedCount == NOT_SUBSCRIBED) {
+      return;
+    }
+    if (replayedCount > 0) {
+      metrics.onReplay(groupId, observerTag, observableTag, replayedCount);
+    }
+    drainBuffered();
+    proxy.drain();
+  }
+
+  /**
+   * Events of subscriptions made from now on are delivered through {@code deliveryQueue}, or
+   * directly if {@code null}.
+   */
+  void setDeliveryQueue(@Nullable DeliveryQueue deliveryQueue) {
+    this.deliveryQueue = deliveryQueue;
+  }
+
+  /**
+   * Hands every event over to the current {@link DeliveryQueue}, which delivers it to
+   * {@code observer} unless the subscription changed in between. The terminate action only runs
+   * once the terminal event was delivered, so the Observable stays in its group until then, and
+   * is replayed by the next subscription if the delivery is dropped.
+   */
+  private Observer<T> queuedDeliveryObserver(final Observer<T> observer) {
+    final int subscription = subscriptionCount;
+    return new Observer<T>() {
+      @Override public void onSubscribe(@NonNull Disposable d) {
+      }
+
+      @Override public void onNext(@NonNull final T t) {
+        deliver(new Runnable() {
+          @Override public void run() {
+            observer.onNext(t);
+          }
+        });
+      }
+
+      @Override public void onError(@NonNull final Throwable e) {
+        deliver(new Runnable() {
+          @Override public void run() {
+            observer.onError(e);
+            proxy.runAfterTerminate();
+          }
+        });
+      }
+
+      @Override public void onComplete() {
+        deliver(new Runnable() {
+          @Override public void run() {
+            observer.onComplete();
+            proxy.runAfterTerminate();
+          }
+        });
+      }
+
+      private void deliver(final Runnable delivery) {
+        DeliveryQueue queue = deliveryQueue;
+        if (queue == null) {
+          // The delivery scheduler was removed meanwhile.
+          delivery.run();
+          return;
+        }
+        queue.enqueue(new Runnable() {
+          @Override public void run() {
+            if (subscription == subscriptionCount) {
+              delivery.run();
+            }
+          }
+        });
+      }
+    };
+  }
+
+  private void onSourceNext() {
+    emittedCount++;
+    if (latencyRecorder != null) {
+      latencyRecorder.onEmitted();
+    }
+    // proxy is null while the source emits synchronously from the constructor.
+    if (metrics != GroupMetricsListener.NONE
+        && (locked || observerEmitter == null || proxy == null || proxy.isDisposed())) {
+      BUFFERED_COUNT.incrementAndGet(this);
+      metrics.onItemBuffered(groupId, observerTag, observableTag);
     }
   }
 
+  /** Reports the items that left the buffer since they were reported by {@link #onSourceNext}. */
+  private void drainBuffered() {
+    if (bufferedCount == 0) {
+      return;
+    }
+    int drainedCount = BUFFERED_COUNT.getAndSet(this, 0);
+    if (drainedCount > 0) {
+      metrics.onBufferDrained(groupId, observerTag, observableTag, drainedCount);
+    }
+  }
+
+  /** Reads the current state without taking the lock, so it never waits for a delivery. */
+  ObservableSnapshot snapshot(long nowNanos) {
+    return new ObservableSnapshot(observerTag, observableTag, locked, isDisposed(), isCancelled(),
+        emittedCount, terminalState, nowNanos - createdAtNanos);
+  }
+
+  /** Forwards to {@code emitter} like the proxy does, recording when each item is delivered. */
+  private static <T> Observer<T> deliveryTrackingObserver(
+      final ObservableEmitter<? super T> emitter,
+      final DeliveryLatencyTracker.Recorder latencyRecorder) {
+    return new Observer<T>() {
+      /** Position in the replay of the next item, which always starts at the first item. */
+      private int position;
+
+      @Override public void onSubscribe(@NonNull Disposable d) {
+      }
+
+      @Override public void onNext(@NonNull T t) {
+        if (!emitter.isDisposed()) {
+          emitter.onNext(t);
+          latencyRecorder.onDelivered(position);
+        }
+        position++;
+      }
+
+      @Override public void onError(@NonNull Throwable e) {
+        if (!emitter.isDisposed()) {
+          emitter.onError(e);
+        }
+      }
+
+      @Override public void onComplete() {
+        if (!emitter.isDisposed()) {
+          emitter.onComplete();
+        }
+      }
+    };
+  }
+
+  /**
+   * Forwards only the terminal event to {@code observer}, for a replay that lost an item and so
+   * ends with a {@link ResultEvictedException} once it reaches it.
+   */
+  private static <T> Observer<T> itemDroppingObserver(final Observer<T> observer) {
+    return new Observer<T>() {
+      @Override public void onSubscribe(@NonNull Disposable d) {
+        observer.onSubscribe(d);
+      }
+
+      @Override public void onNext(@NonNull T t) {
+      }
+
+      @Override public void onError(@NonNull Throwable e) {
+        observer.onError(e);
+      }
+
+      @Override public void onComplete() {
+        observer.onComplete();
+      }
+    };
+  }
+
+  private Action terminalDeliveryAction(final Action onTerminate) {
+    return new Action() {
+      @Override public void run() throws Exception {
+        onTerminate.run();
+        drainBuffered();
+        metrics.onTerminalDelivered(groupId, observerTag, observableTag);
+      }
+    };
+  }
+
   @Override
   public String toString() {
     return "ManagedObservable{" + "observableTag='" + observableTag + '\''
         + ", observerTag='" + observerTag + '\''
         + ", locked=" + locked
+        + ", priority=" + priority
         + '}';
   }
 }
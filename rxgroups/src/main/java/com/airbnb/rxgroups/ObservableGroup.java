@@ -15,15 +15,40 @@
  */
 package com.airbnb.rxgroups;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.annotation.Nullable;
+
+import org.reactivestreams.Subscriber;
+
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableTransformer;
+import io.reactivex.Maybe;
+import io.reactivex.MaybeObserver;
+import io.reactivex.MaybeTransformer;
 import io.reactivex.Observable;
 import io.reactivex.ObservableEmitter;
 import io.reactivex.ObservableTransformer;
 import io.reactivex.Observer;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.SingleObserver;
+import io.reactivex.SingleTransformer;
+import io.reactivex.disposables.Disposable;
 import io.reactivex.functions.Action;
 import io.reactivex.functions.Consumer;
+import io.reactivex.schedulers.Schedulers;
 
 /**
  * A helper class for {@link ObservableManager} that groups {@link Observable}s to be managed
@@ -38,20 +63,103 @@ import io.reactivex.functions.Consumer;
  */
 @SuppressWarnings("WeakerAccess")
 public class ObservableGroup {
-  private final Map<String, Map<String, ManagedObservable<?>>> groupMap = new
+  /** Priority of Observables added without one, see {@link #transform(Observer, String, int)}. */
+  public static final int DEFAULT_PRIORITY = 0;
+
+  private final Map<String, ConcurrentMap<String, ManagedObservable<?>>> groupMap = new
       ConcurrentHashMap<>();
+  /** Same maps as {@link #groupMap}, indexed by {@link TagRegistry} id of the observer tag. */
+  private volatile ConcurrentMap<String, ManagedObservable<?>>[] observablesByTagId =
+      emptyTagIdIndex();
+  /** {@link TagRegistry#size()} when {@link #observablesByTagId} was last brought up to date. */
+  private volatile int indexedTagCount;
   private final long groupId;
-  private boolean locked;
-  private boolean destroyed;
+  private final GroupMetricsListener metrics;
+  @Nullable private final DeliveryLatencyTracker deliveryLatencyTracker;
+  /** Only set while a {@link LeakWatcher} is used, see {@link #setWatchObservers(boolean)}. */
+  @Nullable private volatile Map<String, WeakReference<Object>> watchedObservers;
+  /** Only set once {@link #setMaxInFlight(int)} was called. */
+  @Nullable private volatile ConnectionLimiter connectionLimiter;
+  private final AtomicLong nextSequence = new AtomicLong();
+  /** Whether an Observable was ever added with a priority other than the default. */
+  private volatile boolean prioritized;
+  @Nullable private volatile RetryPolicy retryPolicy;
+  @Nullable private volatile SpillStore spillStore;
+  private volatile boolean softBuffering;
+  /** Only set once Observables were looked up by tag prefix, see {@link #prefixIndex()}. */
+  @Nullable private volatile TagPrefixIndex prefixIndex;
+  /** Only set while a delivery {@link Scheduler} is used, see {@link #setDeliveryScheduler}. */
+  @Nullable private volatile DeliveryQueue deliveryQueue;
+  /** Only set once {@link #setMaxLockedDuration} was called, guarded by {@link #groupMap}. */
+  @Nullable private LockTimeout lockTimeout;
+  /** Pending {@link LockTimeout}, guarded by {@link #groupMap}. */
+  @Nullable private Disposable lockTimer;
+  @Nullable private final ObservableGroup parent;
+  /** Shared by all groups of a hierarchy, guards their lock state and {@link #children}. */
+  private final Object hierarchyLock;
+  private final List<ObservableGroup> children = new ArrayList<>(0);
+  /** Whether {@link #lock()} was called on this group itself. */
+  private volatile boolean locked;
+  /** Whether this group or any of its ancestors is locked. */
+  private volatile boolean effectivelyLocked;
+  private volatile boolean destroyed;
 
   ObservableGroup(long groupId) {
+    this(groupId, GroupMetricsListener.NONE, null);
+  }
+
+  ObservableGroup(long groupId, GroupMetricsListener metrics,
+      @Nullable DeliveryLatencyTracker deliveryLatencyTracker) {
+    this(groupId, metrics, deliveryLatencyTracker, null);
+  }
+
+  ObservableGroup(long groupId, GroupMetricsListener metrics,
+      @Nullable DeliveryLatencyTracker deliveryLatencyTracker, @Nullable ObservableGroup parent) {
     this.groupId = groupId;
+    this.metrics = metrics;
+    this.deliveryLatencyTracker = deliveryLatencyTracker;
+    this.parent = parent;
+    hierarchyLock = parent != null ? parent.hierarchyLock : new Object();
+    indexedTagCount = TagRegistry.size();
   }
 
   public long id() {
     return groupId;
   }
 
+  /**
+   * @return the group this one was created as a child of with
+   * {@link ObservableManager#newGroup(ObservableGroup)}, or {@code null} if it has no parent.
+   */
+  @Nullable public ObservableGroup parent() {
+    return parent;
+  }
+
+  /** @return the child groups of this group that were not destroyed yet. */
+  public List<ObservableGroup> children() {
+    synchronized (hierarchyLock) {
+      return Collections.unmodifiableList(new ArrayList<>(children));
+    }
+  }
+
+  /**
+   * @return whether Observables of this group are held, because {@link #lock()} was called on it
+   * or on any of its ancestors.
+   */
+  public boolean isLocked() {
+    return effectivelyLocked;
+  }
+
+  /** Makes {@code child} a child of this group, starting out with its lock state. */
+  void addChild(ObservableGroup child) {
+    Preconditions.checkArgument(child.parent == this, "Not a child of group id=" + groupId);
+    synchronized (hierarchyLock) {
+      checkNotDestroyed();
+      children.add(child);
+      child.effectivelyLocked = effectivelyLocked;
+    }
+  }
+
   /**
    * Sets a unique tag on all Observer fields of {@code target}
    * that are annotated with {@link AutoTag} or {@link AutoResubscribe}.
@@ -96,48 +204,431 @@ public class ObservableGroup {
    * {@link Observable} with the same tag is already added, the previous one will be canceled and
    * removed before adding and subscribing to the new one.
    */
-  <T> ManagedObservable<T> add(final String observerTag, final String observableTag,
+  <T> ManagedObservable<T> add(String observerTag, String observableTag,
       Observable<T> observable, ObservableEmitter<? super T> observer) {
+    return add(observerTag, observableTag, observable, observer, InFlightPolicy.REPLACE,
+        DEFAULT_PRIORITY);
+  }
+
+  /**
+   * Same as {@link #add(String, String, Observable, ObservableEmitter)}, but with
+   * {@link InFlightPolicy#JOIN} the {@link Observer} is subscribed to the previous
+   * {@link Observable} instead, as long as it was not cancelled. The {@code priority} of a new
+   * {@link Observable} decides when it is unlocked or connected relative to others.
+   */
+  <T> ManagedObservable<T> add(final String observerTag, final String observableTag,
+      Observable<T> observable, ObservableEmitter<? super T> observer,
+      InFlightPolicy inFlightPolicy, int priority) {
     checkNotDestroyed();
-    final Map<String, ManagedObservable<?>> existingObservables =
+    final ConcurrentMap<String, ManagedObservable<?>> existingObservables =
         getObservablesForObserver(observerTag);
     ManagedObservable<?> previousObservable = existingObservables.get(observableTag);
 
+    if (previousObservable != null && inFlightPolicy == InFlightPolicy.JOIN
+        && previousObservable.isJoinable()) {
+      // Both were added with the same tags, so they are expected to emit the same type.
+      @SuppressWarnings("unchecked")
+      ManagedObservable<T> joinedObservable = (ManagedObservable<T>) previousObservable;
+      joinedObservable.resubscribe(observer);
+      metrics.onJoin(groupId, observerTag, observableTag);
+      return joinedObservable;
+    }
+
     if (previousObservable != null) {
       cancelAndRemove(observerTag, observableTag);
     }
 
+    RetryPolicy retry = retryPolicy;
+    if (retry != null) {
+      observable = retry.apply(observable);
+    }
+    ConnectionLimiter limiter = connectionLimiter;
+    final long sequence = nextSequence.getAndIncrement();
+    SpillStore spill = spillStore;
+    // Set right after construction, before the source can be subscribed to and terminate.
+    final ManagedObservable<?>[] added = new ManagedObservable<?>[1];
     ManagedObservable<T> managedObservable =
         new ManagedObservable<>(observerTag, observableTag, observable, observer, new
             Action() {
               @Override
               public void run() {
-                existingObservables.remove(observableTag);
+                // Keeps an Observable added with the same tag meanwhile.
+                existingObservables.remove(observableTag, added[0]);
+                TagPrefixIndex index = prefixIndex;
+                if (index != null) {
+                  index.remove(observableTag, observerTag, sequence);
+                }
               }
-            });
+            }, groupId, metrics, deliveryLatencyTracker != null
+                ? deliveryLatencyTracker.newRecorder(observableTag) : null, limiter, priority,
+            sequence, this.<T>itemBuffer(observableTag, spill));
+    added[0] = managedObservable;
+    if (priority != DEFAULT_PRIORITY) {
+      prioritized = true;
+    }
 
+    managedObservable.setDeliveryQueue(deliveryQueue);
     existingObservables.put(observableTag, managedObservable);
+    TagPrefixIndex index = prefixIndex;
+    if (index != null) {
+      index.add(managedObservable);
+    }
+    metrics.onAdd(groupId, observerTag, observableTag);
 
-    if (!locked) {
+    if (destroyed) {
+      // destroy() ran concurrently and may have missed this observable.
+      managedObservable.cancel();
+      existingObservables.remove(observableTag, managedObservable);
+      unindex(managedObservable);
+      checkNotDestroyed();
+    }
+
+    if (!effectivelyLocked) {
       managedObservable.unlock();
     }
+    if (limiter != null) {
+      limiter.connect(managedObservable);
+    }
     return managedObservable;
   }
 
-  Map<String, ManagedObservable<?>> getObservablesForObserver(
-      Observer<?> observer) {
-    return getObservablesForObserver(Utils.getObserverTag(observer));
+  /**
+   * Limits how many Observables added to this group from now on are subscribed to their source at
+   * the same time, eg.: to not start dozens of network requests at once. Observables added beyond
+   * the limit are queued, and subscribed to as others terminate or are cancelled, highest
+   * priority first, then in the order they were added. Queued Observables can be locked,
+   * resubscribed and cancelled as usual; their Observers just receive nothing until they start.
+   * By default there is no limit.
+   */
+  public void setMaxInFlight(int maxInFlight) {
+    Preconditions.checkArgument(maxInFlight > 0, "maxInFlight must be positive but was %s",
+        maxInFlight);
+    synchronized (groupMap) {
+      if (connectionLimiter == null) {
+        connectionLimiter = new ConnectionLimiter(maxInFlight);
+        return;
+      }
+    }
+    connectionLimiter.setMaxInFlight(maxInFlight);
+  }
+
+  /**
+   * Delivers the events of all Observables of this group on {@code scheduler}, eg.: the main
+   * thread, or on the thread their source emits on if {@code null}, which is the default. Unlike
+   * adding {@code observeOn(scheduler)} to each of them, events emitted close together are
+   * delivered by a single scheduled task, in the order they were emitted. <p> Takes effect for an
+   * Observable when its Observer is next subscribed, which is right away for Observables added from
+   * now on, and on {@link #unlock()} or resubscription for existing ones.
+   */
+  public void setDeliveryScheduler(@Nullable Scheduler scheduler) {
+    final DeliveryQueue queue = scheduler != null ? new DeliveryQueue(scheduler) : null;
+    DeliveryQueue previousQueue;
+    synchronized (groupMap) {
+      previousQueue = deliveryQueue;
+      deliveryQueue = queue;
+    }
+    forAllObservables(new Consumer<ManagedObservable<?>>() {
+      @Override public void accept(ManagedObservable<?> managedObservable) {
+        managedObservable.setDeliveryQueue(queue);
+      }
+    });
+    if (previousQueue != null) {
+      previousQueue.shutdown();
+    }
+  }
+
+  /**
+   * Retries the sources of Observables added to this group from now on according to
+   * {@code retryPolicy} when they fail, including while the group is locked, or stops retrying if
+   * {@code null}. The Observers only receive the error once the policy gives up. <p> Items are not
+   * held back until an attempt completes, since the policy applies to every Observable of the
+   * group, including streams of updates. So a source that fails after emitting some items has them
+   * delivered, then the items of the next attempt from its start; Observers of such sources should
+   * expect to see items again after a retry.
+   */
+  public void setRetryPolicy(@Nullable RetryPolicy retryPolicy) {
+    this.retryPolicy = retryPolicy;
+  }
+
+  @Nullable public RetryPolicy retryPolicy() {
+    return retryPolicy;
+  }
+
+  /**
+   * Moves large items of Observables added to this group from now on to {@code spillStore} while
+   * they wait to be delivered, eg.: while the group is locked, or stops doing so if {@code null}.
+   */
+  public void setSpillStore(@Nullable SpillStore spillStore) {
+    this.spillStore = spillStore;
+  }
+
+  /** @return the {@link SpillStore} set with {@link #setSpillStore(SpillStore)}, if any. */
+  @Nullable public SpillStore spillStore() {
+    return spillStore;
+  }
+
+  /**
+   * Holds the items of Observables added to this group from now on through soft references while
+   * they wait to be delivered, so the garbage collector can free them when memory runs low. An
+   * Observable that lost an item delivers a {@link ResultEvictedException} instead of its items,
+   * see {@link #needsRefetch(Observer, String)}. Observables whose tag is registered in the
+   * {@link #setSpillStore(SpillStore) spill store} are spilled instead.
+   */
+  public void setSoftBuffering(boolean softBuffering) {
+    this.softBuffering = softBuffering;
+  }
+
+  public boolean isSoftBuffering() {
+    return softBuffering;
+  }
+
+  @Nullable private <T> ItemBuffer<T> itemBuffer(String observableTag, @Nullable SpillStore spill) {
+    ItemBuffer<T> spiller = spill != null ? spill.<T>spiller(observableTag) : null;
+    if (spiller == null && softBuffering) {
+      return new SoftItemBuffer<>(observableTag);
+    }
+    return spiller;
+  }
+
+  /**
+   * Cancels and removes the Observables whose source is still running once this group stayed
+   * locked for {@code duration}, eg.: because the user left the screen and never came back. Items
+   * they emitted so far are released too. Observables whose source already terminated are kept,
+   * so their result can still be delivered when the group is unlocked. {@code listener} is told
+   * which Observables were shed, so they can be restarted later. <p> The duration is measured on
+   * {@link Schedulers#computation()} from the time the group is locked, or from now if it already
+   * is. A duration of 0 disables it, which is the default.
+   */
+  public void setMaxLockedDuration(long duration, TimeUnit unit,
+      @Nullable ShedListener listener) {
+    setMaxLockedDuration(duration, unit, Schedulers.computation(), listener);
+  }
+
+  /** Same as {@link #setMaxLockedDuration(long, TimeUnit, ShedListener)}, on {@code scheduler}. */
+  public void setMaxLockedDuration(long duration, TimeUnit unit, Scheduler scheduler,
+      @Nullable ShedListener listener) {
+    Preconditions.checkArgument(duration >= 0, "duration must not be negative but was %s",
+        duration);
+    Preconditions.checkNotNull(scheduler, "scheduler == null");
+    synchronized (groupMap) {
+      if (lockTimer != null) {
+        lockTimer.dispose();
+        lockTimer = null;
+      }
+      lockTimeout = duration > 0
+          ? new LockTimeout(unit.toNanos(duration), scheduler, listener) : null;
+      if (lockTimeout != null && effectivelyLocked) {
+        lockTimer = lockTimeout.schedule();
+      }
+    }
+  }
+
+  private void cancelLockTimer() {
+    synchronized (groupMap) {
+      if (lockTimer != null) {
+        lockTimer.dispose();
+        lockTimer = null;
+      }
+    }
+  }
+
+  private void onLockTimeout(LockTimeout timeout) {
+    synchronized (groupMap) {
+      if (lockTimeout != timeout || !effectivelyLocked || destroyed) {
+        // Unlocked or reconfigured meanwhile.
+        return;
+      }
+      lockTimer = null;
+    }
+    shed(false, timeout.listener);
+  }
+
+  /**
+   * Cancels and removes the Observables whose source is still running, or every Observable if
+   * {@code includeTerminated}, like once the {@link #setMaxLockedDuration(long, TimeUnit,
+   * ShedListener) max locked duration} elapsed, and tells its listener, if any. Used to free memory
+   * when the system runs low.
+   */
+  void shed(boolean includeTerminated) {
+    LockTimeout timeout;
+    synchronized (groupMap) {
+      timeout = lockTimeout;
+    }
+    shed(includeTerminated, timeout != null ? timeout.listener : null);
+  }
+
+  private void shed(boolean includeTerminated, @Nullable ShedListener listener) {
+    long nowNanos = System.nanoTime();
+    List<ObservableSnapshot> shed = new ArrayList<>();
+    for (ConcurrentMap<String, ManagedObservable<?>> observableMap : groupMap.values()) {
+      for (Map.Entry<String, ManagedObservable<?>> entry : observableMap.entrySet()) {
+        ManagedObservable<?> managedObservable = entry.getValue();
+        if (includeTerminated || !managedObservable.isTerminated()) {
+          shed.add(managedObservable.snapshot(nowNanos));
+          managedObservable.cancel();
+          // Keeps an Observable added with the same tag meanwhile.
+          observableMap.remove(entry.getKey(), managedObservable);
+          unindex(managedObservable);
+        }
+      }
+    }
+    if (!shed.isEmpty() && listener != null) {
+      listener.onShed(groupId, Collections.unmodifiableList(shed));
+    }
+  }
+
+  /**
+   * Drops the items that Observables added with {@link #setSoftBuffering(boolean) soft buffering}
+   * hold for their Observer right away, instead of waiting for the garbage collector to do so.
+   */
+  void evictSoftBuffers() {
+    for (ConcurrentMap<String, ManagedObservable<?>> observableMap : groupMap.values()) {
+      for (ManagedObservable<?> managedObservable : observableMap.values()) {
+        managedObservable.evict();
+      }
+    }
+  }
+
+  /** @return the limit set with {@link #setMaxInFlight(int)}, or 0 if there is none. */
+  public int maxInFlight() {
+    ConnectionLimiter limiter = connectionLimiter;
+    return limiter != null ? limiter.maxInFlight() : 0;
   }
 
-  Map<String, ManagedObservable<?>> getObservablesForObserver(String observerTag) {
-    Map<String, ManagedObservable<?>> map = groupMap.get(observerTag);
+  /** @return the number of Observables queued by {@link #setMaxInFlight(int)}. */
+  public int pendingCount() {
+    ConnectionLimiter limiter = connectionLimiter;
+    return limiter != null ? limiter.pendingCount() : 0;
+  }
+
+  ConcurrentMap<String, ManagedObservable<?>> getObservablesForObserver(String observerTag) {
+    ConcurrentMap<String, ManagedObservable<?>> map = groupMap.get(observerTag);
     if (map == null) {
       map = new ConcurrentHashMap<>();
       groupMap.put(observerTag, map);
+      indexByTagId(observerTag, map);
     }
     return map;
   }
 
+  /** Unlike {@link #getObservablesForObserver(String)}, never creates a new map. */
+  @Nullable
+  private ConcurrentMap<String, ManagedObservable<?>> findObservablesForObserver(
+      String observerTag) {
+    return groupMap.get(observerTag);
+  }
+
+  @Nullable
+  ManagedObservable<?> findManagedObservable(String observerTag, String observableTag) {
+    ConcurrentMap<String, ManagedObservable<?>> observables =
+        findObservablesForObserver(observerTag);
+    return observables != null ? observables.get(observableTag) : null;
+  }
+
+  @Nullable
+  private ConcurrentMap<String, ManagedObservable<?>> findObservablesForObserver(
+      int observerTagId) {
+    if (indexedTagCount != TagRegistry.size()) {
+      // Tags were registered since we last indexed, and they may already be in use.
+      reindexByTagId();
+    }
+    ConcurrentMap<String, ManagedObservable<?>>[] index = observablesByTagId;
+    return observerTagId < index.length ? index[observerTagId] : null;
+  }
+
+  private void reindexByTagId() {
+    synchronized (groupMap) {
+      int tagCount = TagRegistry.size();
+      for (Map.Entry<String, ConcurrentMap<String, ManagedObservable<?>>> entry
+          : groupMap.entrySet()) {
+        indexByTagId(entry.getKey(), entry.getValue());
+      }
+      indexedTagCount = tagCount;
+    }
+  }
+
+  private void indexByTagId(String observerTag,
+      ConcurrentMap<String, ManagedObservable<?>> observables) {
+    int tagId = TagRegistry.idOf(observerTag);
+    if (tagId == TagRegistry.NO_ID) {
+      return;
+    }
+    synchronized (groupMap) {
+      ConcurrentMap<String, ManagedObservable<?>>[] index = observablesByTagId;
+      if (tagId >= index.length) {
+        index = Arrays.copyOf(index, TagRegistry.size());
+      }
+      index[tagId] = observables;
+      observablesByTagId = index;
+    }
+  }
+
+  private <T> GroupSubscriptionTransformer<T> transformer(Object observer, String observableTag,
+      InFlightPolicy inFlightPolicy, int priority) {
+    Preconditions.checkNotNull(inFlightPolicy, "InFlightPolicy cannot be null");
+    String observerTag = Utils.getObserverTag(observer);
+    Map<String, WeakReference<Object>> observers = watchedObservers;
+    if (observers != null) {
+      observers.put(observerTag, new WeakReference<>(observer));
+    }
+    return new GroupSubscriptionTransformer<>(this, observerTag, observableTag, inFlightPolicy,
+        priority);
+  }
+
+  /** Starts or stops remembering the Observers of this group for a {@link LeakWatcher}. */
+  void setWatchObservers(boolean watchObservers) {
+    if (!watchObservers) {
+      watchedObservers = null;
+    } else if (watchedObservers == null) {
+      watchedObservers = new ConcurrentHashMap<>();
+    }
+  }
+
+  /** @return the Observers added since the last {@link LeakWatcher#watch(ObservableGroup)}. */
+  @Nullable Map<String, WeakReference<Object>> watchedObservers() {
+    return watchedObservers;
+  }
+
+  /** @return whether an Observable of this group still references the Observer. */
+  boolean retainsObserver(String observerTag) {
+    ConcurrentMap<String, ManagedObservable<?>> observables =
+        findObservablesForObserver(observerTag);
+    if (observables != null) {
+      for (ManagedObservable<?> managedObservable : observables.values()) {
+        if (managedObservable.hasObserver()) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private final class LockTimeout implements Runnable {
+    final long durationNanos;
+    final Scheduler scheduler;
+    @Nullable final ShedListener listener;
+
+    LockTimeout(long durationNanos, Scheduler scheduler, @Nullable ShedListener listener) {
+      this.durationNanos = durationNanos;
+      this.scheduler = scheduler;
+      this.listener = listener;
+    }
+
+    Disposable schedule() {
+      return scheduler.scheduleDirect(this, durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override public void run() {
+      onLockTimeout(this);
+    }
+  }
+
+  // Arrays of a generic type can only be created raw.
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static ConcurrentMap<String, ManagedObservable<?>>[] emptyTagIdIndex() {
+    return (ConcurrentMap<String, ManagedObservable<?>>[]) new ConcurrentMap[0];
+  }
+
   /**
    * Transforms an existing {@link Observable} by returning a new {@link Observable} that is
    * automatically added to this {@link ObservableGroup} with the provided {@code tag} when
@@ -145,8 +636,37 @@ public class ObservableGroup {
    */
   public <T> ObservableTransformer<? super T, T> transform(Observer<? super T> observer,
       String observableTag) {
-    return new GroupSubscriptionTransformer<>(this, Utils.getObserverTag(observer),
-        observableTag);
+    return transform(observer, observableTag, InFlightPolicy.REPLACE);
+  }
+
+  /**
+   * Same as {@link #transform(Observer, String)}, with {@code inFlightPolicy} deciding what happens
+   * when an {@link Observable} with the same tags is already in this group.
+   */
+  public <T> ObservableTransformer<? super T, T> transform(Observer<? super T> observer,
+      String observableTag, InFlightPolicy inFlightPolicy) {
+    return transform(observer, observableTag, inFlightPolicy, DEFAULT_PRIORITY);
+  }
+
+  /**
+   * Same as {@link #transform(Observer, String)}, for an {@link Observable} with the given
+   * {@code priority}. Those with a higher priority receive the events held while the group was
+   * locked first when it is unlocked, and are subscribed to first when queued by
+   * {@link #setMaxInFlight(int)}. Observables with the same priority are handled in the order
+   * they were added. The default is {@link #DEFAULT_PRIORITY}.
+   */
+  public <T> ObservableTransformer<? super T, T> transform(Observer<? super T> observer,
+      String observableTag, int priority) {
+    return transform(observer, observableTag, InFlightPolicy.REPLACE, priority);
+  }
+
+  /**
+   * Combines {@link #transform(Observer, String, InFlightPolicy)} and
+   * {@link #transform(Observer, String, int)}.
+   */
+  public <T> ObservableTransformer<? super T, T> transform(Observer<? super T> observer,
+      String observableTag, InFlightPolicy inFlightPolicy, int priority) {
+    return transformer(observer, observableTag, inFlightPolicy, priority);
   }
 
   /**
@@ -160,24 +680,172 @@ public class ObservableGroup {
     return transform(observer, Utils.getObserverTag(observer));
   }
 
+  /**
+   * Transforms an existing {@link Single} by returning a new {@link Single} that is automatically
+   * added to this {@link ObservableGroup} with the provided {@code tag} when subscribed to.
+   */
+  public <T> SingleTransformer<? super T, T> transformSingle(
+      SingleObserver<? super T> observer, String observableTag) {
+    return transformSingle(observer, observableTag, InFlightPolicy.REPLACE);
+  }
+
+  /** Same as {@link #transform(Observer, String, InFlightPolicy)}, for a {@link Single}. */
+  public <T> SingleTransformer<? super T, T> transformSingle(
+      SingleObserver<? super T> observer, String observableTag, InFlightPolicy inFlightPolicy) {
+    return transformSingle(observer, observableTag, inFlightPolicy, DEFAULT_PRIORITY);
+  }
+
+  /** Same as {@link #transform(Observer, String, InFlightPolicy, int)}, for a {@link Single}. */
+  public <T> SingleTransformer<? super T, T> transformSingle(
+      SingleObserver<? super T> observer, String observableTag, InFlightPolicy inFlightPolicy,
+      int priority) {
+    return transformer(observer, observableTag, inFlightPolicy, priority);
+  }
+
+  /**
+   * Convenience method for {@link #transformSingle(SingleObserver, String)} when
+   * {@code observer} only is subscribed to one {@link Single}.
+   */
+  public <T> SingleTransformer<? super T, T> transformSingle(SingleObserver<? super T> observer) {
+    return transformSingle(observer, Utils.getObserverTag(observer));
+  }
+
+  /**
+   * Transforms an existing {@link Maybe} by returning a new {@link Maybe} that is automatically
+   * added to this {@link ObservableGroup} with the provided {@code tag} when subscribed to.
+   */
+  public <T> MaybeTransformer<? super T, T> transformMaybe(MaybeObserver<? super T> observer,
+      String observableTag) {
+    return transformMaybe(observer, observableTag, InFlightPolicy.REPLACE);
+  }
+
+  /** Same as {@link #transform(Observer, String, InFlightPolicy)}, for a {@link Maybe}. */
+  public <T> MaybeTransformer<? super T, T> transformMaybe(MaybeObserver<? super T> observer,
+      String observableTag, InFlightPolicy inFlightPolicy) {
+    return transformMaybe(observer, observableTag, inFlightPolicy, DEFAULT_PRIORITY);
+  }
+
+  /** Same as {@link #transform(Observer, String, InFlightPolicy, int)}, for a {@link Maybe}. */
+  public <T> MaybeTransformer<? super T, T> transformMaybe(
+      MaybeObserver<? super T> observer, String observableTag, InFlightPolicy inFlightPolicy,
+      int priority) {
+    return transformer(observer, observableTag, inFlightPolicy, priority);
+  }
+
+  /**
+   * Convenience method for {@link #transformMaybe(MaybeObserver, String)} when
+   * {@code observer} only is subscribed to one {@link Maybe}.
+   */
+  public <T> MaybeTransformer<? super T, T> transformMaybe(MaybeObserver<? super T> observer) {
+    return transformMaybe(observer, Utils.getObserverTag(observer));
+  }
+
+  /**
+   * Transforms an existing {@link Flowable} by returning a new {@link Flowable} that is
+   * automatically added to this {@link ObservableGroup} with the provided {@code tag} when
+   * subscribed to. Events are buffered by the group, so the source {@link Flowable} is requested
+   * without backpressure.
+   */
+  public <T> FlowableTransformer<? super T, T> transformFlowable(
+      Subscriber<? super T> subscriber, String observableTag) {
+    return transformFlowable(subscriber, observableTag, InFlightPolicy.REPLACE);
+  }
+
+  /** Same as {@link #transform(Observer, String, InFlightPolicy)}, for a {@link Flowable}. */
+  public <T> FlowableTransformer<? super T, T> transformFlowable(
+      Subscriber<? super T> subscriber, String observableTag, InFlightPolicy inFlightPolicy) {
+    return transformFlowable(subscriber, observableTag, inFlightPolicy, DEFAULT_PRIORITY);
+  }
+
+  /** Same as {@link #transform(Observer, String, InFlightPolicy, int)}, for a {@link Flowable}. */
+  public <T> FlowableTransformer<? super T, T> transformFlowable(
+      Subscriber<? super T> subscriber, String observableTag, InFlightPolicy inFlightPolicy,
+      int priority) {
+    return transformer(subscriber, observableTag, inFlightPolicy, priority);
+  }
+
+  /**
+   * Convenience method for {@link #transformFlowable(Subscriber, String)} when
+   * {@code subscriber} only is subscribed to one {@link Flowable}.
+   */
+  public <T> FlowableTransformer<? super T, T> transformFlowable(
+      Subscriber<? super T> subscriber) {
+    return transformFlowable(subscriber, Utils.getObserverTag(subscriber));
+  }
+
   /**
    * Cancels all subscriptions and releases references to Observables and Observers. No more
    * Observables can be added to this group after it has been destroyed and it becomes unusable.
+   * The group is detached from its parent.
+   *
+   * @return the children of this group, which are left for the caller to destroy.
    */
-  void destroy() {
-    destroyed = true;
+  List<ObservableGroup> destroy() {
+    List<ObservableGroup> detachedChildren;
+    synchronized (hierarchyLock) {
+      destroyed = true;
+      if (parent != null) {
+        parent.children.remove(this);
+      }
+      detachedChildren = new ArrayList<>(children);
+      children.clear();
+    }
+    cancelLockTimer();
+    DeliveryQueue queue = deliveryQueue;
+    if (queue != null) {
+      queue.dispose();
+    }
+    ConnectionLimiter limiter = connectionLimiter;
+    if (limiter != null) {
+      // Otherwise cancelling one Observable would start a queued one that is cancelled next.
+      limiter.clear();
+    }
 
-    for (Map<String, ManagedObservable<?>> observableMap : groupMap.values()) {
+    for (ConcurrentMap<String, ManagedObservable<?>> observableMap : groupMap.values()) {
       for (ManagedObservable<?> managedObservable : observableMap.values()) {
         managedObservable.cancel();
       }
       observableMap.clear();
     }
     groupMap.clear();
+    TagPrefixIndex index = prefixIndex;
+    if (index != null) {
+      index.clear();
+    }
+    observablesByTagId = emptyTagIdIndex();
+    indexedTagCount = TagRegistry.size();
+    return detachedChildren;
+  }
+
+  /** @return the Observables of all Observers in this group. */
+  List<ManagedObservable<?>> observables() {
+    List<ManagedObservable<?>> observables = new ArrayList<>();
+    for (ConcurrentMap<String, ManagedObservable<?>> observableMap : groupMap.values()) {
+      observables.addAll(observableMap.values());
+    }
+    return observables;
+  }
+
+  /**
+   * Adds an Observable that already completed with {@code items} and has no Observer yet, eg.:
+   * one restored by a {@link ResultStore}, unless there is an Observable with the same tags.
+   */
+  <T> boolean addCompleted(String observerTag, String observableTag, List<T> items) {
+    if (findManagedObservable(observerTag, observableTag) != null) {
+      return false;
+    }
+    add(observerTag, observableTag, Observable.fromIterable(items), null);
+    return true;
+  }
+
+  private List<ManagedObservable<?>> observablesByPriority() {
+    List<ManagedObservable<?>> observables = observables();
+    Collections.sort(observables, ManagedObservable.PRIORITY_ORDER);
+    return observables;
   }
 
   private void forAllObservables(Consumer<ManagedObservable<?>> action) {
-    for (Map<String, ManagedObservable<?>> observableMap : groupMap.values()) {
+    for (ConcurrentMap<String, ManagedObservable<?>> observableMap : groupMap.values()) {
       for (ManagedObservable<?> managedObservable : observableMap.values()) {
         try {
           action.accept(managedObservable);
@@ -194,24 +862,86 @@ public class ObservableGroup {
    * **not** be subscribed until their respective group is unlocked. If it's never unlocked, then
    * the Observable will never be subscribed to at all. This does not clear references to existing
    * Observers. Please use {@link #dispose()} if you want to clear references to existing
-   * Observers.
+   * Observers. <p> Descendants of this group are held too, without touching the Observables of
+   * those that already were. <p> Events are delivered without holding a lock, so when called from
+   * another thread, an event whose delivery already began may still arrive after this returns.
    */
   public void lock() {
-    locked = true;
-    forAllObservables(new Consumer<ManagedObservable<?>>() {
-      @Override
-      public void accept(ManagedObservable<?> managedObservable) {
-        managedObservable.lock();
-      }
-    });
+    setLocked(true);
   }
 
   /**
    * Unlocks (releases) Observables added to this group to emit new events until they are locked,
-   * unsubscribed or cancelled.
+   * unsubscribed or cancelled. Events held while locked are delivered to the Observables with the
+   * highest priority first, see {@link #transform(Observer, String, int)}. <p> Observables stay
+   * held while an ancestor of this group is locked. Descendants that are not locked themselves are
+   * released too.
    */
   public void unlock() {
-    locked = false;
+    setLocked(false);
+  }
+
+  private void setLocked(boolean lock) {
+    List<ObservableGroup> changedDescendants = new ArrayList<>(0);
+    synchronized (hierarchyLock) {
+      locked = lock;
+      effectivelyLocked = lock || parent != null && parent.effectivelyLocked;
+      for (ObservableGroup child : children) {
+        child.updateEffectiveLock(changedDescendants);
+      }
+    }
+    // Observers may be called back, so Observables are only touched after releasing the lock.
+    applyEffectiveLock();
+    for (ObservableGroup descendant : changedDescendants) {
+      descendant.applyEffectiveLock();
+    }
+  }
+
+  /**
+   * Recomputes whether this group is effectively locked after its parent's state changed, and adds
+   * it and its descendants to {@code changed} if it did. Descendants of a group whose state did
+   * not change are skipped, since theirs did not change either. Must hold {@link #hierarchyLock}.
+   */
+  private void updateEffectiveLock(List<ObservableGroup> changed) {
+    boolean effective = locked || parent.effectivelyLocked;
+    if (effective == effectivelyLocked) {
+      return;
+    }
+    effectivelyLocked = effective;
+    changed.add(this);
+    for (ObservableGroup child : children) {
+      child.updateEffectiveLock(changed);
+    }
+  }
+
+  /**
+   * Locks or unlocks the Observables of this group to match its current effective state, which
+   * may have changed again since it was computed.
+   */
+  private void applyEffectiveLock() {
+    if (effectivelyLocked) {
+      synchronized (groupMap) {
+        if (lockTimeout != null && lockTimer == null) {
+          lockTimer = lockTimeout.schedule();
+        }
+      }
+      metrics.onLock(groupId);
+      forAllObservables(new Consumer<ManagedObservable<?>>() {
+        @Override
+        public void accept(ManagedObservable<?> managedObservable) {
+          managedObservable.lock();
+        }
+      });
+      return;
+    }
+    cancelLockTimer();
+    metrics.onUnlock(groupId);
+    if (prioritized) {
+      for (ManagedObservable<?> managedObservable : observablesByPriority()) {
+        managedObservable.unlock();
+      }
+      return;
+    }
     forAllObservables(new Consumer<ManagedObservable<?>>() {
       @Override
       public void accept(ManagedObservable<?> managedObservable) {
@@ -248,19 +978,21 @@ public class ObservableGroup {
   }
 
   public <T> Observable<T> observable(Observer<? super T> observer, String observableTag) {
+    return observable((Object) observer, observableTag);
+  }
+
+  private <T> Observable<T> observable(Object observer, String observableTag) {
     checkNotDestroyed();
     String observerTag = Utils.getObserverTag(observer);
-    Map<String, ManagedObservable<?>> observables = getObservablesForObserver(observerTag);
     //noinspection unchecked
-    ManagedObservable<T> managedObservable = (ManagedObservable<T>) observables.get(
-        observableTag);
+    ManagedObservable<T> managedObservable =
+        (ManagedObservable<T>) findManagedObservable(observerTag, observableTag);
     if (managedObservable == null) {
       throw new IllegalStateException("No observable exists for observer: "
           + observerTag + " and observable: " + observableTag);
     }
 
-    Observable<T> observable = managedObservable.proxiedObservable();
-    return observable.compose(new GroupResubscriptionTransformer<>(managedObservable));
+    return resubscribedObservable(managedObservable);
   }
 
   /**
@@ -283,14 +1015,85 @@ public class ObservableGroup {
   }
 
   private SourceSubscription subscription(String observerTag, String observableTag) {
-    Map<String, ManagedObservable<?>> observables = getObservablesForObserver(observerTag);
-    return observables.get(observableTag);
+    return findManagedObservable(observerTag, observableTag);
   }
 
   public <T> void resubscribeAll(TaggedObserver<? super T> observer) {
-    Map<String, ManagedObservable<?>> observables = getObservablesForObserver(observer);
-    for (String observableTag : observables.keySet()) {
-      observable(observer, observableTag).subscribe(observer);
+    resubscribeAll(observer, findObservablesForObserver(Utils.getObserverTag(observer)));
+  }
+
+  /**
+   * Same as {@link #resubscribeAll(TaggedObserver)}, but finds the observables of {@code observer}
+   * using the {@code observerTagId} that {@code rxgroups-processor} generated for its tag, without
+   * hashing or comparing the tag string.
+   */
+  public <T> void resubscribeAll(TaggedObserver<? super T> observer, int observerTagId) {
+    resubscribeAll(observer, findObservablesForObserver(observerTagId));
+  }
+
+  /** Same as {@link #resubscribeAll(TaggedObserver)}, for a {@link TaggedSingleObserver}. */
+  public <T> void resubscribeAll(TaggedSingleObserver<? super T> observer) {
+    resubscribeAll(observer, findObservablesForObserver(Utils.getObserverTag(observer)));
+  }
+
+  /** Same as {@link #resubscribeAll(TaggedObserver, int)}, for a {@link TaggedSingleObserver}. */
+  public <T> void resubscribeAll(TaggedSingleObserver<? super T> observer, int observerTagId) {
+    resubscribeAll(observer, findObservablesForObserver(observerTagId));
+  }
+
+  /** Same as {@link #resubscribeAll(TaggedObserver)}, for a {@link TaggedMaybeObserver}. */
+  public <T> void resubscribeAll(TaggedMaybeObserver<? super T> observer) {
+    resubscribeAll(observer, findObservablesForObserver(Utils.getObserverTag(observer)));
+  }
+
+  /** Same as {@link #resubscribeAll(TaggedObserver, int)}, for a {@link TaggedMaybeObserver}. */
+  public <T> void resubscribeAll(TaggedMaybeObserver<? super T> observer, int observerTagId) {
+    resubscribeAll(observer, findObservablesForObserver(observerTagId));
+  }
+
+  /** Same as {@link #resubscribeAll(TaggedObserver)}, for a {@link TaggedSubscriber}. */
+  public <T> void resubscribeAll(TaggedSubscriber<? super T> subscriber) {
+    resubscribeAll(subscriber, findObservablesForObserver(Utils.getObserverTag(subscriber)));
+  }
+
+  /** Same as {@link #resubscribeAll(TaggedObserver, int)}, for a {@link TaggedSubscriber}. */
+  public <T> void resubscribeAll(TaggedSubscriber<? super T> subscriber, int observerTagId) {
+    resubscribeAll(subscriber, findObservablesForObserver(observerTagId));
+  }
+
+  private void resubscribeAll(Object observer,
+      @Nullable ConcurrentMap<String, ManagedObservable<?>> observables) {
+    if (observables == null) {
+      return;
+    }
+    checkNotDestroyed();
+    for (ManagedObservable<?> managedObservable : observables.values()) {
+      subscribe(resubscribedObservable(managedObservable), observer);
+    }
+  }
+
+  private static <T> Observable<T> resubscribedObservable(ManagedObservable<T> managedObservable) {
+    return managedObservable.proxiedObservable()
+        .compose(new GroupResubscriptionTransformer<>(managedObservable));
+  }
+
+  /**
+   * Subscribes an {@link Observer}, {@link SingleObserver}, {@link MaybeObserver} or
+   * {@link Subscriber} to {@code observable}, converting it to the matching type first.
+   */
+  @SuppressWarnings("unchecked")
+  private static void subscribe(Observable<?> observable, Object observer) {
+    if (observer instanceof Observer) {
+      ((Observable<Object>) observable).subscribe((Observer<Object>) observer);
+    } else if (observer instanceof SingleObserver) {
+      ((Observable<Object>) observable).singleOrError()
+          .subscribe((SingleObserver<Object>) observer);
+    } else if (observer instanceof MaybeObserver) {
+      ((Observable<Object>) observable).singleElement()
+          .subscribe((MaybeObserver<Object>) observer);
+    } else {
+      ((Observable<Object>) observable).toFlowable(BackpressureStrategy.BUFFER)
+          .subscribe((Subscriber<Object>) observer);
     }
   }
 
@@ -315,6 +1118,45 @@ public class ObservableGroup {
     resubscribe(observer, Utils.getObserverTag(observer));
   }
 
+  /**
+   * Resubscribes the {@link TaggedSingleObserver} to the observable identified by
+   * {@code observableTag}.
+   */
+  public <T> void resubscribe(TaggedSingleObserver<? super T> observer, String observableTag) {
+    subscribe(observable(observer, observableTag), observer);
+  }
+
+  /** Convenience method for {@link #resubscribe(TaggedSingleObserver, String)}. */
+  public <T> void resubscribe(TaggedSingleObserver<? super T> observer) {
+    resubscribe(observer, Utils.getObserverTag(observer));
+  }
+
+  /**
+   * Resubscribes the {@link TaggedMaybeObserver} to the observable identified by
+   * {@code observableTag}.
+   */
+  public <T> void resubscribe(TaggedMaybeObserver<? super T> observer, String observableTag) {
+    subscribe(observable(observer, observableTag), observer);
+  }
+
+  /** Convenience method for {@link #resubscribe(TaggedMaybeObserver, String)}. */
+  public <T> void resubscribe(TaggedMaybeObserver<? super T> observer) {
+    resubscribe(observer, Utils.getObserverTag(observer));
+  }
+
+  /**
+   * Resubscribes the {@link TaggedSubscriber} to the observable identified by
+   * {@code observableTag}.
+   */
+  public <T> void resubscribe(TaggedSubscriber<? super T> subscriber, String observableTag) {
+    subscribe(observable(subscriber, observableTag), subscriber);
+  }
+
+  /** Convenience method for {@link #resubscribe(TaggedSubscriber, String)}. */
+  public <T> void resubscribe(TaggedSubscriber<? super T> subscriber) {
+    resubscribe(subscriber, Utils.getObserverTag(subscriber));
+  }
+
   /**
    * Removes the {@link Observable} identified by {@code observableTag} for the given
    * {@link Observer} and cancels it subscription.
@@ -335,9 +1177,14 @@ public class ObservableGroup {
   }
 
   private void cancelAllObservablesForObserver(String observerTag) {
-    Map<String, ManagedObservable<?>> observables = getObservablesForObserver(observerTag);
+    ConcurrentMap<String, ManagedObservable<?>> observables =
+        findObservablesForObserver(observerTag);
+    if (observables == null) {
+      return;
+    }
     for (ManagedObservable<?> managedObservable : observables.values()) {
       managedObservable.cancel();
+      unindex(managedObservable);
     }
     observables.clear();
   }
@@ -347,11 +1194,102 @@ public class ObservableGroup {
    * events will be delivered to its subscriber.
    */
   private void cancelAndRemove(String observerTag, String observableTag) {
-    Map<String, ManagedObservable<?>> observables = getObservablesForObserver(observerTag);
-    ManagedObservable<?> managedObservable = observables.get(observableTag);
+    ConcurrentMap<String, ManagedObservable<?>> observables =
+        findObservablesForObserver(observerTag);
+    ManagedObservable<?> managedObservable =
+        observables != null ? observables.get(observableTag) : null;
     if (managedObservable != null) {
       managedObservable.cancel();
-      observables.remove(observableTag);
+      // Keeps an Observable added with the same tag meanwhile.
+      observables.remove(observableTag, managedObservable);
+      unindex(managedObservable);
+    }
+  }
+
+  /**
+   * Cancels and removes the Observables of all Observers in this group whose observable tag starts
+   * with {@code observableTagPrefix}, eg.: {@code "listing_"} for all pages of a list. No more
+   * events will be delivered to their subscribers. <p> Only the matching Observables are looked
+   * at, so this is cheap even for groups with many Observables.
+   */
+  public void cancelByPrefix(String observableTagPrefix) {
+    for (ManagedObservable<?> managedObservable : observablesWithPrefix(observableTagPrefix)) {
+      ConcurrentMap<String, ManagedObservable<?>> observables =
+          findObservablesForObserver(managedObservable.observerTag());
+      managedObservable.cancel();
+      if (observables != null) {
+        // Keeps an Observable added with the same tag meanwhile.
+        observables.remove(managedObservable.observableTag(), managedObservable);
+      }
+      unindex(managedObservable);
+    }
+  }
+
+  /**
+   * Disposes the Observables of all Observers in this group whose observable tag starts with
+   * {@code observableTagPrefix}, clearing the references to their Observers. Like
+   * {@link #dispose()}, this does not disconnect from the upstream Observables, so they can still
+   * be resumed with {@link #observable(Observer, String)}.
+   */
+  public void disposeByPrefix(String observableTagPrefix) {
+    for (ManagedObservable<?> managedObservable : observablesWithPrefix(observableTagPrefix)) {
+      managedObservable.dispose();
+    }
+  }
+
+  /**
+   * Returns whether any Observer in this group has an existing {@link Observable} whose
+   * observable tag starts with {@code observableTagPrefix}.
+   */
+  public boolean hasObservablesWithPrefix(String observableTagPrefix) {
+    return !observablesWithPrefix(observableTagPrefix).isEmpty();
+  }
+
+  private List<ManagedObservable<?>> observablesWithPrefix(String observableTagPrefix) {
+    Preconditions.checkNotNull(observableTagPrefix, "observableTagPrefix == null");
+    TagPrefixIndex index = prefixIndex();
+    List<ManagedObservable<?>> observables = index.withPrefix(observableTagPrefix);
+    for (Iterator<ManagedObservable<?>> it = observables.iterator(); it.hasNext();) {
+      ManagedObservable<?> managedObservable = it.next();
+      if (findManagedObservable(managedObservable.observerTag(),
+          managedObservable.observableTag()) != managedObservable) {
+        // Removed while the index was being built.
+        index.remove(managedObservable);
+        it.remove();
+      }
+    }
+    return observables;
+  }
+
+  /**
+   * Builds the index the first time it is needed, so groups that never look Observables up by
+   * prefix don't pay for keeping it up to date. Observables added concurrently are either indexed
+   * by {@link #add} or found here; ones removed concurrently may be left in the index, which is
+   * why lookups check they are still in {@link #groupMap}.
+   */
+  private TagPrefixIndex prefixIndex() {
+    TagPrefixIndex index = prefixIndex;
+    if (index != null) {
+      return index;
+    }
+    synchronized (groupMap) {
+      if (prefixIndex == null) {
+        index = new TagPrefixIndex();
+        prefixIndex = index;
+        for (ConcurrentMap<String, ManagedObservable<?>> observableMap : groupMap.values()) {
+          for (ManagedObservable<?> managedObservable : observableMap.values()) {
+            index.add(managedObservable);
+          }
+        }
+      }
+      return prefixIndex;
+    }
+  }
+
+  private void unindex(ManagedObservable<?> managedObservable) {
+    TagPrefixIndex index = prefixIndex;
+    if (index != null) {
+      index.remove(managedObservable);
     }
   }
 
@@ -363,11 +1301,37 @@ public class ObservableGroup {
     return subscription(observer, observableTag) != null;
   }
 
+  /**
+   * Returns whether the garbage collector freed an item that the {@link Observable} with the
+   * {@code observableTag} held for {@code observer} with {@link #setSoftBuffering(boolean) soft
+   * buffering}. Resubscribing it delivers a {@link ResultEvictedException}, so callers may rather
+   * {@link #cancelAndRemove(Observer, String) remove} it and make the request again.
+   */
+  public boolean needsRefetch(Observer<?> observer, String observableTag) {
+    ManagedObservable<?> managedObservable =
+        findManagedObservable(Utils.getObserverTag(observer), observableTag);
+    return managedObservable != null && managedObservable.isEvicted();
+  }
+
   /**
    * Returns whether the observer has any existing {@link Observable}.
    */
   public boolean hasObservables(Observer<?> observer) {
-    return !getObservablesForObserver(observer).isEmpty();
+    ConcurrentMap<String, ManagedObservable<?>> observables =
+        findObservablesForObserver(Utils.getObserverTag(observer));
+    return observables != null && !observables.isEmpty();
+  }
+
+  /**
+   * Returns whether the observer with the {@code observerTagId} that {@code rxgroups-processor}
+   * generated for its tag has any existing {@link Observable}. This is a constant time check that
+   * neither hashes the tag nor allocates, so it is cheap to call for every annotated observer
+   * before resubscribing it.
+   */
+  public boolean hasObservables(int observerTagId) {
+    ConcurrentMap<String, ManagedObservable<?>> observables =
+        findObservablesForObserver(observerTagId);
+    return observables != null && !observables.isEmpty();
   }
 
   /**
@@ -384,7 +1348,18 @@ public class ObservableGroup {
   @Override
   public String toString() {
     return "ObservableGroup{" + "groupMap=" + groupMap + ", groupId=" + groupId + ", locked="
-        + locked + ", destroyed=" + destroyed + '}';
+        + effectivelyLocked + ", destroyed=" + destroyed + '}';
+  }
+
+  GroupSnapshot snapshot(long nowNanos) {
+    List<ObservableSnapshot> observables = new ArrayList<>();
+    for (ConcurrentMap<String, ManagedObservable<?>> observableMap : groupMap.values()) {
+      for (ManagedObservable<?> managedObservable : observableMap.values()) {
+        observables.add(managedObservable.snapshot(nowNanos));
+      }
+    }
+    return new GroupSnapshot(groupId, effectivelyLocked, destroyed,
+        Collections.unmodifiableList(observables));
   }
 
   void removeNonResubscribableObservers() {
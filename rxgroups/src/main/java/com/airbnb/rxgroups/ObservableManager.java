@@ -15,10 +15,13 @@
  */
 package com.airbnb.rxgroups;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
 
 import io.reactivex.Observable;
 
@@ -32,16 +35,55 @@ import io.reactivex.Observable;
 @SuppressWarnings("WeakerAccess")
 public class ObservableManager {
   /** Map ids to a group of observables. */
-  private final Map<Long, ObservableGroup> observableGroupMap = new ConcurrentHashMap<>();
-  private final AtomicLong nextId = new AtomicLong(1);
+  private final GroupRegistry groupRegistry;
   private final UUID uuid = UUID.randomUUID();
+  private final GroupMetricsListener metrics;
+  @Nullable private final DeliveryLatencyTracker deliveryLatencyTracker;
+  @Nullable private volatile LeakWatcher leakWatcher;
+  @Nullable private volatile ResultStore resultStore;
+  private final SharedObservables sharedObservables = new SharedObservables();
+
+  public ObservableManager() {
+    this(GroupMetricsListener.NONE);
+  }
+
+  /**
+   * Creates a manager that reports the lifecycle events of all of its groups to {@code metrics}.
+   */
+  public ObservableManager(GroupMetricsListener metrics) {
+    this(metrics, false);
+  }
+
+  /**
+   * Creates a manager that reports the lifecycle events of all of its groups to {@code metrics}.
+   * If {@code trackDeliveryLatency} is true, every item is also timestamped when emitted and when
+   * first delivered to its Observer, see {@link #deliveryLatency(String)}.
+   */
+  public ObservableManager(GroupMetricsListener metrics, boolean trackDeliveryLatency) {
+    this(metrics, trackDeliveryLatency, 1);
+  }
+
+  private ObservableManager(GroupMetricsListener metrics, boolean trackDeliveryLatency,
+      int shardCount) {
+    this.metrics = Preconditions.checkNotNull(metrics, "metrics == null");
+    deliveryLatencyTracker = trackDeliveryLatency ? new DeliveryLatencyTracker() : null;
+    groupRegistry = new GroupRegistry(shardCount);
+  }
+
+  /**
+   * @return a {@link Builder} for a manager with options the constructors don't take, eg.:
+   * {@code ObservableManager.builder().shardCount(4).build()}.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
 
   /**
    * @return an existing group provided groupId. Throws {@link IllegalStateException} if no group
    * with the provided groupId exists or it is already destroyed.
    */
   public ObservableGroup getGroup(long groupId) {
-    ObservableGroup observableGroup = observableGroupMap.get(groupId);
+    ObservableGroup observableGroup = groupRegistry.get(groupId);
 
     if (observableGroup == null) {
       throw new IllegalArgumentException("Group not found with groupId=" + groupId);
@@ -56,22 +98,206 @@ public class ObservableManager {
 
   /** @return a new {@link ObservableGroup} with a unique groupId */
   public ObservableGroup newGroup() {
-    long id = nextId.getAndIncrement();
-    ObservableGroup observableGroup = new ObservableGroup(id);
-    observableGroupMap.put(id, observableGroup);
+    long id = groupRegistry.newId();
+    ObservableGroup observableGroup = new ObservableGroup(id, metrics, deliveryLatencyTracker);
+    observableGroup.setWatchObservers(leakWatcher != null);
+    groupRegistry.put(observableGroup);
+    return observableGroup;
+  }
+
+  /**
+   * @return a new {@link ObservableGroup} with a unique groupId that is a child of {@code parent},
+   * eg.: for a Fragment nested in an Activity. The child is held while any of its ancestors is
+   * locked, so locking or unlocking {@code parent} applies to all of its descendants at once, and
+   * it is destroyed along with {@code parent}.
+   */
+  public ObservableGroup newGroup(ObservableGroup parent) {
+    Preconditions.checkNotNull(parent, "parent == null");
+    Preconditions.checkArgument(groupRegistry.get(parent.id()) == parent,
+        "Group does not belong to this manager, groupId=" + parent.id());
+    long id = groupRegistry.newId();
+    ObservableGroup observableGroup =
+        new ObservableGroup(id, metrics, deliveryLatencyTracker, parent);
+    observableGroup.setWatchObservers(leakWatcher != null);
+    groupRegistry.put(observableGroup);
+    try {
+      parent.addChild(observableGroup);
+    } catch (IllegalStateException e) {
+      // parent was destroyed meanwhile.
+      groupRegistry.remove(id);
+      throw e;
+    }
     return observableGroup;
   }
 
+  /**
+   * @return how long items of Observables added with {@code observableTag}, in any group, took
+   * from being emitted to being delivered to their Observer, eg.: because the group was locked.
+   * Returns {@code null} if no such Observable emitted yet or delivery latency is not tracked.
+   */
+  @Nullable public LatencyHistogram deliveryLatency(String observableTag) {
+    return deliveryLatencies().get(observableTag);
+  }
+
+  /**
+   * @return a read only view of the delivery latency per observable tag, see
+   * {@link #deliveryLatency(String)}. Empty if delivery latency is not tracked.
+   */
+  public Map<String, LatencyHistogram> deliveryLatencies() {
+    return deliveryLatencyTracker != null
+        ? deliveryLatencyTracker.histograms()
+        : Collections.<String, LatencyHistogram>emptyMap();
+  }
+
+  /**
+   * @return the current state of every group of this manager. Observables keep emitting
+   * while the snapshot is taken, so the state of different Observables may be read at slightly
+   * different times.
+   */
+  public List<GroupSnapshot> snapshot() {
+    long nowNanos = System.nanoTime();
+    List<ObservableGroup> observableGroups = groupRegistry.groups();
+    List<GroupSnapshot> groups = new ArrayList<>(observableGroups.size());
+    for (ObservableGroup group : observableGroups) {
+      groups.add(group.snapshot(nowNanos));
+    }
+    return Collections.unmodifiableList(groups);
+  }
+
+  /**
+   * Returns an {@link Observable} that shares one subscription to {@code source} with every other
+   * Observable returned for the same {@code requestKey} while that request is in flight, eg.: when
+   * different screens load the same resource at the same time. Add the result to a group as usual,
+   * eg.: with {@link ObservableGroup#transform(io.reactivex.Observer)}. <p> The first subscriber
+   * subscribes to {@code source}, and later ones receive every item emitted so far, then the same
+   * events; their own {@code source} is ignored. The subscription to {@code source} is disposed
+   * once every subscriber was cancelled or received the terminal event, after which the next
+   * subscriber with {@code requestKey} starts a new request, unless its result is still in the
+   * {@link #setResultCache(ResultCache) result cache}. <p> A {@code requestKey} must only be
+   * used for requests that emit the same items, eg.: the URL of a network request.
+   */
+  public <T> Observable<T> shared(String requestKey, Observable<T> source) {
+    Preconditions.checkNotNull(requestKey, "requestKey == null");
+    Preconditions.checkNotNull(source, "source == null");
+    return sharedObservables.observable(requestKey, source);
+  }
+
+  /**
+   * Serves requests made with {@link #shared(String, Observable)} from {@code resultCache} when
+   * they completed recently, or stops caching results if {@code null}. Disabled by default.
+   */
+  public void setResultCache(@Nullable ResultCache resultCache) {
+    sharedObservables.setResultCache(resultCache);
+  }
+
+  /** @return the {@link ResultCache} set with {@link #setResultCache(ResultCache)}, if any. */
+  @Nullable public ResultCache resultCache() {
+    return sharedObservables.resultCache();
+  }
+
+  /**
+   * Persists the completed results of groups to {@code resultStore} when their screen's state is
+   * saved, and restores them after the process was killed, or stops doing so if {@code null}.
+   * Only used by {@code GroupLifecycleManager}. Disabled by default. <p> Files that
+   * {@code resultStore} left behind are swept, see {@link ResultStore#removeStaleFiles()}.
+   */
+  public void setResultStore(@Nullable ResultStore resultStore) {
+    this.resultStore = resultStore;
+    if (resultStore != null) {
+      resultStore.removeStaleFiles();
+    }
+  }
+
+  /** @return the {@link ResultStore} set with {@link #setResultStore(ResultStore)}, if any. */
+  @Nullable public ResultStore resultStore() {
+    return resultStore;
+  }
+
+  /** @return the number of subscribers sharing the request {@code requestKey}, if in flight. */
+  int sharedSubscriberCount(String requestKey) {
+    return sharedObservables.subscriberCount(requestKey);
+  }
+
+  /**
+   * Enables leak detection with {@code leakWatcher} for all groups of this manager, or disables it
+   * if {@code null}. Disabled by default.
+   */
+  public void setLeakWatcher(@Nullable LeakWatcher leakWatcher) {
+    this.leakWatcher = leakWatcher;
+    for (ObservableGroup group : groupRegistry.groups()) {
+      group.setWatchObservers(leakWatcher != null);
+    }
+  }
+
+  /** @return the {@link LeakWatcher} set with {@link #setLeakWatcher(LeakWatcher)}, if any. */
+  @Nullable public LeakWatcher leakWatcher() {
+    return leakWatcher;
+  }
+
   UUID id() {
     return uuid;
   }
 
+  /** @return every group of this manager that was not destroyed, in no particular order. */
+  List<ObservableGroup> groups() {
+    return groupRegistry.groups();
+  }
+
   /**
    * Clears the provided group. References will be released, and no future results will be returned.
-   * Once a group is destroyed it is an error to use it again.
+   * Once a group is destroyed it is an error to use it again. Its descendants are destroyed too.
    */
   public void destroy(ObservableGroup group) {
-    group.destroy();
-    observableGroupMap.remove(group.id());
+    List<ObservableGroup> children = group.destroy();
+    groupRegistry.remove(group.id());
+    for (ObservableGroup child : children) {
+      destroy(child);
+    }
+  }
+
+  /**
+   * Creates an {@link ObservableManager}, with the same defaults as
+   * {@link #ObservableManager()}.
+   */
+  public static final class Builder {
+    private GroupMetricsListener metrics = GroupMetricsListener.NONE;
+    private boolean trackDeliveryLatency;
+    private int shardCount = 1;
+
+    Builder() {
+    }
+
+    /** Reports the lifecycle events of all groups to {@code metrics}. */
+    public Builder metrics(GroupMetricsListener metrics) {
+      this.metrics = Preconditions.checkNotNull(metrics, "metrics == null");
+      return this;
+    }
+
+    /**
+     * Timestamps every item when emitted and when first delivered to its Observer, see
+     * {@link ObservableManager#deliveryLatency(String)}.
+     */
+    public Builder trackDeliveryLatency(boolean trackDeliveryLatency) {
+      this.trackDeliveryLatency = trackDeliveryLatency;
+      return this;
+    }
+
+    /**
+     * Splits the groups into {@code shardCount} shards that each allocate group ids and keep track
+     * of their groups on their own, eg.: one per core when many threads create and destroy groups
+     * at the same time, so {@link ObservableManager#newGroup()} and
+     * {@link ObservableManager#destroy(ObservableGroup)} don't all contend on the same counter and
+     * map. Group ids are still unique, but not consecutive unless {@code shardCount} is 1.
+     */
+    public Builder shardCount(int shardCount) {
+      Preconditions.checkArgument(shardCount > 0, "shardCount must be positive but was %s",
+          shardCount);
+      this.shardCount = shardCount;
+      return this;
+    }
+
+    public ObservableManager build() {
+      return new ObservableManager(metrics, trackDeliveryLatency, shardCount);
+    }
   }
 }
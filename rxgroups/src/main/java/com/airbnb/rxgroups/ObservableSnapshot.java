@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable state of one Observable in an {@link ObservableGroup} at the time
+ * {@link ObservableManager#snapshot()} was called.
+ */
+public final class ObservableSnapshot {
+  /** Whether the source Observable terminated, even if the event was not delivered yet. */
+  public enum TerminalState {
+    NONE, COMPLETED, ERROR
+  }
+
+  private final String observerTag;
+  private final String observableTag;
+  private final boolean locked;
+  private final boolean disposed;
+  private final boolean cancelled;
+  private final int bufferedCount;
+  private final TerminalState terminalState;
+  private final long ageNanos;
+
+  ObservableSnapshot(String observerTag, String observableTag, boolean locked, boolean disposed,
+      boolean cancelled, int bufferedCount, TerminalState terminalState, long ageNanos) {
+    this.observerTag = observerTag;
+    this.observableTag = observableTag;
+    this.locked = locked;
+    this.disposed = disposed;
+    this.cancelled = cancelled;
+    this.bufferedCount = bufferedCount;
+    this.terminalState = terminalState;
+    this.ageNanos = ageNanos;
+  }
+
+  public String observerTag() {
+    return observerTag;
+  }
+
+  public String observableTag() {
+    return observableTag;
+  }
+
+  public boolean isLocked() {
+    return locked;
+  }
+
+  public boolean isDisposed() {
+    return disposed;
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  /** @return the number of items emitted so far, which are held to be replayed to new Observers. */
+  public int bufferedCount() {
+    return bufferedCount;
+  }
+
+  public TerminalState terminalState() {
+    return terminalState;
+  }
+
+  /** @return the time since the Observable was added to its group. */
+  public long age(TimeUnit unit) {
+    return unit.convert(ageNanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override public String toString() {
+    return "ObservableSnapshot{" + "observerTag='" + observerTag + '\''
+        + ", observableTag='" + observableTag + '\''
+        + ", locked=" + locked
+        + ", disposed=" + disposed
+        + ", cancelled=" + cancelled
+        + ", bufferedCount=" + bufferedCount
+        + ", terminalState=" + terminalState
+        + ", ageMs=" + age(TimeUnit.MILLISECONDS)
+        + '}';
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+/**
+ * Keeps the items of requests that completed successfully for a limited time, so that a request
+ * with the same key is served from memory instead of subscribing to its source again. Set it with
+ * {@link ObservableManager#setResultCache(ResultCache)}, and make requests with
+ * {@link ObservableManager#shared(String, io.reactivex.Observable)}. <p> At most {@code maxSize}
+ * results are kept, evicting the least recently used one first. Expired results are only removed
+ * when looked up, evicted or by {@link #removeExpired()}. Failed requests are never cached.
+ */
+public final class ResultCache {
+  private final int maxSize;
+  private final long ttlNanos;
+  private final Ticker ticker;
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  /** In access order, guarded by {@code this}. */
+  private final Map<String, CachedResult> entries;
+
+  /** Creates a cache of up to {@code maxSize} results, each kept for {@code ttl}. */
+  public ResultCache(int maxSize, long ttl, TimeUnit unit) {
+    this(maxSize, ttl, unit, Ticker.SYSTEM);
+  }
+
+  ResultCache(final int maxSize, long ttl, TimeUnit unit, Ticker ticker) {
+    Preconditions.checkArgument(maxSize > 0, "maxSize must be positive but was %s", maxSize);
+    Preconditions.checkArgument(ttl > 0, "ttl must be positive but was %s", ttl);
+    this.maxSize = maxSize;
+    this.ttlNanos = unit.toNanos(ttl);
+    this.ticker = ticker;
+    entries = new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  /** @return the number of lookups that were served from the cache. */
+  public long hitCount() {
+    return hitCount.get();
+  }
+
+  /** @return the number of lookups that found no result, or an expired one. */
+  public long missCount() {
+    return missCount.get();
+  }
+
+  /** @return the number of cached results, including expired ones that were not removed yet. */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public int maxSize() {
+    return maxSize;
+  }
+
+  /** Removes the result of {@code requestKey}, eg.: after the resource was modified. */
+  public synchronized void invalidate(String requestKey) {
+    entries.remove(requestKey);
+  }
+
+  /** Removes all results. */
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  /** Removes the results that expired, eg.: to free memory. */
+  public synchronized void removeExpired() {
+    long nowNanos = ticker.nanoTime();
+    for (Iterator<CachedResult> it = entries.values().iterator(); it.hasNext();) {
+      if (nowNanos - it.next().cachedAtNanos >= ttlNanos) {
+        it.remove();
+      }
+    }
+  }
+
+  /** @return the items of the unexpired result of {@code requestKey}, or null on a miss. */
+  @Nullable synchronized List<?> get(String requestKey) {
+    CachedResult result = entries.get(requestKey);
+    if (result != null && ticker.nanoTime() - result.cachedAtNanos >= ttlNanos) {
+      entries.remove(requestKey);
+      result = null;
+    }
+    if (result == null) {
+      missCount.incrementAndGet();
+      return null;
+    }
+    hitCount.incrementAndGet();
+    return result.items;
+  }
+
+  synchronized void put(String requestKey, List<?> items) {
+    entries.put(requestKey, new CachedResult(
+        Collections.unmodifiableList(new ArrayList<>(items)), ticker.nanoTime()));
+  }
+
+  @Override public String toString() {
+    return "ResultCache{" + "size=" + size()
+        + ", hitCount=" + hitCount()
+        + ", missCount=" + missCount()
+        + '}';
+  }
+
+  private static final class CachedResult {
+    final List<?> items;
+    final long cachedAtNanos;
+
+    CachedResult(List<?> items, long cachedAtNanos) {
+      this.items = items;
+      this.cachedAtNanos = cachedAtNanos;
+    }
+  }
+
+  /** Source of the current time, replaced in tests. */
+  interface Ticker {
+    Ticker SYSTEM = new Ticker() {
+      @Override public long nanoTime() {
+        return System.nanoTime();
+      }
+    };
+
+    long nanoTime();
+  }
+}
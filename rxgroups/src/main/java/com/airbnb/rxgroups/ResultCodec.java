@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Converts the items of a completed Observable to bytes and back, eg.: with JSON, so a
+ * {@link ResultStore} can write them to disk. Register one per observable tag with
+ * {@link ResultStore#register(String, ResultCodec)}.
+ */
+public interface ResultCodec<T> {
+  byte[] encode(List<T> items) throws IOException;
+
+  /** Called with bytes returned by {@link #encode(List)}, possibly by an earlier process. */
+  List<T> decode(byte[] bytes) throws IOException;
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+/**
+ * Delivered instead of the items of an Observable added to a group with
+ * {@link ObservableGroup#setSoftBuffering(boolean) soft buffering} when the garbage collector
+ * cleared one of them to free memory before it was delivered. The Observable is removed from its
+ * group like after any other error, so the request can be made again.
+ */
+public class ResultEvictedException extends RuntimeException {
+  private static final long serialVersionUID = 1L;
+
+  private final String observableTag;
+
+  public ResultEvictedException(String observableTag) {
+    super("Items of " + observableTag + " were evicted from memory before being delivered");
+    this.observableTag = observableTag;
+  }
+
+  public String observableTag() {
+    return observableTag;
+  }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Writes the results of an {@link ObservableGroup} that completed but were not delivered yet to
+ * files in a directory, so they survive the process being killed while the app is in the
+ * background, and adds them back to a new group afterwards. The screen then renders them right
+ * away instead of making its requests again. Set it with
+ * {@link ObservableManager#setResultStore(ResultStore)}. <p> Only the results of Observables
+ * whose observable tag was {@link #register(String, ResultCodec) registered} are written, and
+ * only if their Observer has a stable tag, eg.: one annotated with {@link AutoResubscribe},
+ * since other Observers cannot find them in a new process. <p> Files are written and deleted on
+ * a background thread, one operation at a time in the order they were requested, so they don't
+ * block the main thread. Only {@link #restore(String, ObservableGroup)} reads on the calling
+ * thread, since the results must be in the group before its Observers resubscribe. It only
+ * happens once per screen after the process was killed.
+ */
+public final class ResultStore {
+  private static final int VERSION = 1;
+  /** Appended to keys, so files of the store are told apart from others in the directory. */
+  private static final String SUFFIX = ".rxresults";
+  private static final String TEMP_SUFFIX = SUFFIX + ".tmp";
+  /** Age after which files are deleted by {@link #removeStaleFiles()}, see its Javadoc. */
+  private static final long MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+  private final File directory;
+  private final Map<String, ResultCodec<?>> codecs = new ConcurrentHashMap<>();
+  /** Runs the writes and deletes one at a time, in the order they were requested. */
+  private final Scheduler.Worker worker;
+
+  /** Creates a store that keeps its files in {@code directory}, eg.: the app's cache dir. */
+  public ResultStore(File directory) {
+    this(directory, Schedulers.io());
+  }
+
+  /** Like {@link #ResultStore(File)}, but writes and deletes files on {@code scheduler}. */
+  public ResultStore(File directory, Scheduler scheduler) {
+    this.directory = Preconditions.checkNotNull(directory, "directory == null");
+    worker = Preconditions.checkNotNull(scheduler, "scheduler == null").createWorker();
+  }
+
+  /**
+   * Writes the results of Observables added with {@code observableTag} with {@code codec}, which
+   * is called on the background thread.
+   */
+  public <T> void register(String observableTag, ResultCodec<T> codec) {
+    Preconditions.checkNotNull(observableTag, "observableTag == null");
+    Preconditions.checkNotNull(codec, "codec == null");
+    codecs.put(observableTag, codec);
+  }
+
+  /**
+   * Writes the completed results of {@code group} to the file {@code key}, replacing any results
+   * saved with that key before, or deletes it if there are none. Results whose items cannot be
+   * read anymore, eg.: because they were evicted, are skipped, so their requests are made again.
+   */
+  public void save(String key, ObservableGroup group) throws IOException {
+    write(key, completedResults(group));
+  }
+
+  /**
+   * Like {@link #save(String, ObservableGroup)}, but only collects the results on the calling
+   * thread, and encodes and writes them on the background thread. Failures are ignored, the
+   * requests are made again if the results cannot be restored.
+   */
+  public void saveInBackground(final String key, ObservableGroup group) {
+    file(key);
+    final List<CompletedResult> results = completedResults(group);
+    worker.schedule(new Runnable() {
+      @Override public void run() {
+        try {
+          write(key, results);
+        } catch (IOException ignored) {
+          // Best effort, the requests are made again.
+        }
+      }
+    });
+  }
+
+  private void write(String key, List<CompletedResult> results) throws IOException {
+    File file = file(key);
+    File tempFile = new File(directory, key + TEMP_SUFFIX);
+    try {
+      if (!writeResults(tempFile, results)) {
+        delete(key);
+      } else if (!tempFile.renameTo(file)) {
+        throw new IOException("Cannot rename " + tempFile + " to " + file);
+      }
+    } finally {
+      // Only left behind if writing failed, since renaming it moves it away.
+      tempFile.delete();
+    }
+  }
+
+  /** @return whether any result was written to {@code tempFile}. */
+  private boolean writeResults(File tempFile, List<CompletedResult> results) throws IOException {
+    DataOutputStream output = null;
+    try {
+      for (CompletedResult result : results) {
+        byte[] bytes = result.codec.encode(result.items);
+        if (output == null) {
+          directory.mkdirs();
+          output = new DataOutputStream(
+              new BufferedOutputStream(new FileOutputStream(tempFile)));
+          output.writeInt(VERSION);
+        }
+        output.writeBoolean(true);
+        output.writeUTF(result.observerTag);
+        output.writeUTF(result.observableTag);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+      }
+      if (output != null) {
+        // Every result is preceded by true, since their number is not known upfront.
+        output.writeBoolean(false);
+      }
+    } finally {
+      if (output != null) {
+        output.close();
+      }
+    }
+    return output != null;
+  }
+
+  /**
+   * Adds the results saved with {@code key} to {@code group} as Observables that already
+   * completed, which its Observers receive once they resubscribe and the group is unlocked, then
+   * deletes the file. Results whose observable tag is no longer registered, or that have the same
+   * tags as an Observable already in the group, are dropped. Reads on the calling thread.
+   *
+   * @return the number of results added to {@code group}.
+   */
+  public int restore(String key, ObservableGroup group) throws IOException {
+    File file = file(key);
+    DataInputStream input;
+    try {
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    } catch (FileNotFoundException e) {
+      return 0;
+    }
+    int count = 0;
+    try {
+      if (input.readInt() != VERSION) {
+        return 0;
+      }
+      while (input.readBoolean()) {
+        String observerTag = input.readUTF();
+        String observableTag = input.readUTF();
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        ResultCodec<?> codec = codecs.get(observableTag);
+        if (codec != null && group.addCompleted(observerTag, observableTag, codec.decode(bytes))) {
+          count++;
+        }
+      }
+      return count;
+    } finally {
+      input.close();
+      file.delete();
+    }
+  }
+
+  /** Deletes the results saved with {@code key}, if any. */
+  public void delete(String key) {
+    file(key).delete();
+  }
+
+  /** Like {@link #delete(String)}, but deletes the file on the background thread. */
+  public void deleteInBackground(final String key) {
+    file(key);
+    worker.schedule(new Runnable() {
+      @Override public void run() {
+        delete(key);
+      }
+    });
+  }
+
+  /**
+   * Deletes, on the background thread, the files that a crash or a killed process left behind
+   * while writing, and the results saved more than a day ago, whose screen is unlikely to ever be
+   * recreated to restore them. Called by {@link ObservableManager#setResultStore(ResultStore)}.
+   */
+  public void removeStaleFiles() {
+    worker.schedule(new Runnable() {
+      @Override public void run() {
+        removeStaleFiles(System.currentTimeMillis() - MAX_AGE_MILLIS);
+      }
+    });
+  }
+
+  /** Deletes the temporary files and the results last modified before {@code cutoffMillis}. */
+  void removeStaleFiles(long cutoffMillis) {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      String name = file.getName();
+      // No write is in progress, since they run one at a time on the same worker.
+      if (name.endsWith(TEMP_SUFFIX)
+          || (name.endsWith(SUFFIX) && file.lastModified() < cutoffMillis)) {
+        file.delete();
+      }
+    }
+  }
+
+  private File file(String key) {
+    Preconditions.checkArgument(key.indexOf(File.separatorChar) < 0 && !key.startsWith("."),
+        "Invalid key: " + key);
+    return new File(directory, key + SUFFIX);
+  }
+
+  /**
+   * Reads the completed results of {@code group} that are persisted, but does not encode them.
+   * Skips the results whose items were lost or released meanwhile.
+   */
+  private List<CompletedResult> completedResults(ObservableGroup group) {
+    List<CompletedResult> results = new ArrayList<>();
+    for (ManagedObservable<?> managedObservable : group.observables()) {
+      @SuppressWarnings("unchecked")
+      ResultCodec<Object> codec =
+          (ResultCodec<Object>) codecs.get(managedObservable.observableTag());
+      if (codec == null || NonResubscribableTag.isNonResubscribableTag(
+          managedObservable.observerTag())) {
+        continue;
+      }
+      List<Object> items;
+      try {
+        @SuppressWarnings("unchecked")
+        List<Object> completedItems = (List<Object>) managedObservable.completedItems();
+        items = completedItems;
+      } catch (IOException | ResultEvictedException ignored) {
+        continue;
+      }
+      if (items != null) {
+        results.add(new CompletedResult(managedObservable.observerTag(),
+            managedObservable.observableTag(), codec, items));
+      }
+    }
+    return results;
+  }
+
+  private static final class CompletedResult {
+    final String observerTag;
+    final String observableTag;
+    final ResultCodec<Object> codec;
+    final List<Object> items;
+
+    CompletedResult(String observerTag, String observableTag, ResultCodec<Object> codec,
+        List<Object> items) {
+      this.observerTag = observerTag;
+      this.observableTag = observableTag;
+      this.codec = codec;
+      this.items = items;
+    }
+  }
+}
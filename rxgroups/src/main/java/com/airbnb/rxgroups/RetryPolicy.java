@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.Scheduler;
+import io.reactivex.functions.Function;
+import io.reactivex.functions.Predicate;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Resubscribes to the source of a managed Observable when it fails, waiting exponentially longer
+ * between attempts, eg.: to retry a network request while its group is locked. Set it with
+ * {@link ObservableGroup#setRetryPolicy(RetryPolicy)}. Retries happen before events reach the
+ * group, so the Observer only receives the error of the last attempt if all of them failed. Items
+ * are passed on as they are emitted, so streams of updates are not held back; an attempt that
+ * emitted items before failing has them delivered too, followed by those of the next attempt.
+ * <p> Instances are immutable; every {@code with} method returns a modified copy.
+ */
+public final class RetryPolicy {
+  private static final Predicate<Throwable> ALWAYS = new Predicate<Throwable>() {
+    @Override public boolean test(Throwable throwable) {
+      return true;
+    }
+  };
+
+  private final int maxAttempts;
+  private final long initialDelayNanos;
+  private final long maxDelayNanos;
+  private final Predicate<? super Throwable> retryIf;
+  private final Scheduler scheduler;
+
+  private RetryPolicy(int maxAttempts, long initialDelayNanos, long maxDelayNanos,
+      Predicate<? super Throwable> retryIf, Scheduler scheduler) {
+    this.maxAttempts = maxAttempts;
+    this.initialDelayNanos = initialDelayNanos;
+    this.maxDelayNanos = maxDelayNanos;
+    this.retryIf = retryIf;
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * @return a policy that subscribes to the source at most {@code maxAttempts} times in total,
+   * waiting {@code initialDelay} before the first retry and twice as long before each of the next
+   * ones. Every error is retried, and delays are not capped.
+   */
+  public static RetryPolicy exponentialBackoff(int maxAttempts, long initialDelay,
+      TimeUnit unit) {
+    Preconditions.checkArgument(maxAttempts > 0, "maxAttempts must be positive but was %s",
+        maxAttempts);
+    Preconditions.checkArgument(initialDelay >= 0,
+        "initialDelay must not be negative but was %s", initialDelay);
+    return new RetryPolicy(maxAttempts, unit.toNanos(initialDelay), Long.MAX_VALUE, ALWAYS,
+        Schedulers.computation());
+  }
+
+  /** @return a copy of this policy that never waits longer than {@code maxDelay}. */
+  public RetryPolicy withMaxDelay(long maxDelay, TimeUnit unit) {
+    Preconditions.checkArgument(maxDelay >= 0, "maxDelay must not be negative but was %s",
+        maxDelay);
+    return new RetryPolicy(maxAttempts, initialDelayNanos, unit.toNanos(maxDelay), retryIf,
+        scheduler);
+  }
+
+  /**
+   * @return a copy of this policy that only retries errors matching {@code retryIf}, eg.: to not
+   * retry client errors of a network request. Other errors are delivered right away.
+   */
+  public RetryPolicy withRetryIf(Predicate<? super Throwable> retryIf) {
+    Preconditions.checkNotNull(retryIf, "retryIf == null");
+    return new RetryPolicy(maxAttempts, initialDelayNanos, maxDelayNanos, retryIf, scheduler);
+  }
+
+  /** @return a copy of this policy that waits on {@code scheduler} instead of computation. */
+  public RetryPolicy withScheduler(Scheduler scheduler) {
+    Preconditions.checkNotNull(scheduler, "scheduler == null");
+    return new RetryPolicy(maxAttempts, initialDelayNanos, maxDelayNanos, retryIf, scheduler);
+  }
+
+  public int maxAttempts() {
+    return maxAttempts;
+  }
+
+  /** @return the delay before retrying after the failed attempt number {@code attempt}. */
+  long delayNanos(int attempt) {
+    int doublings = attempt - 1;
+    if (doublings >= Long.numberOfLeadingZeros(initialDelayNanos) - 1) {
+      // Doubling again would overflow.
+      return initialDelayNanos == 0 ? 0 : maxDelayNanos;
+    }
+    return Math.min(initialDelayNanos << doublings, maxDelayNanos);
+  }
+
+  <T> Observable<T> apply(Observable<T> source) {
+    return source.retryWhen(new Function<Observable<Throwable>, ObservableSource<?>>() {
+      @Override public ObservableSource<?> apply(Observable<Throwable> errors) {
+        return errors.flatMap(new Function<Throwable, ObservableSource<Long>>() {
+          // retryWhen creates a new handler for every subscription, so this counts per request.
+          private int failedAttempts;
+
+          @Override public ObservableSource<Long> apply(Throwable error) throws Exception {
+            failedAttempts++;
+            if (failedAttempts >= maxAttempts || !retryIf.test(error)) {
+              return Observable.error(error);
+            }
+            return Observable.timer(delayNanos(failedAttempts), TimeUnit.NANOSECONDS, scheduler);
+          }
+        });
+      }
+    });
+  }
+
+  @Override public String toString() {
+    return "RetryPolicy{" + "maxAttempts=" + maxAttempts
+        + ", initialDelayNanos=" + initialDelayNanos
+        + ", maxDelayNanos=" + maxDelayNanos
+        + '}';
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nullable;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.observables.ConnectableObservable;
+
+/**
+ * Shares one subscription to a source Observable between everything that subscribes with the
+ * same request key, eg.: Observables of different {@link ObservableGroup}s that load the same
+ * resource. The first subscriber connects to the source, and items are replayed to the ones that
+ * subscribe later. The source is disconnected, and the key forgotten, once the last subscriber
+ * terminated or was disposed, so a later subscription with the same key starts a new request.
+ * <p> With a {@link ResultCache}, the items of requests that complete are cached, and later
+ * subscribers with the same key receive them without subscribing to the source.
+ */
+final class SharedObservables {
+  /** Guarded by {@code this}. */
+  private final Map<String, SharedObservable<?>> observables = new HashMap<>();
+  @Nullable private volatile ResultCache resultCache;
+
+  void setResultCache(@Nullable ResultCache resultCache) {
+    this.resultCache = resultCache;
+  }
+
+  @Nullable ResultCache resultCache() {
+    return resultCache;
+  }
+
+  <T> Observable<T> observable(final String requestKey, final Observable<T> source) {
+    return Observable.defer(new Callable<ObservableSource<T>>() {
+      @Override public ObservableSource<T> call() throws Exception {
+        ResultCache cache = resultCache;
+        if (cache != null) {
+          @SuppressWarnings("unchecked")
+          List<T> cachedItems = (List<T>) cache.get(requestKey);
+          if (cachedItems != null) {
+            return Observable.fromIterable(cachedItems);
+          }
+        }
+        final SharedObservable<T> shared = acquire(requestKey, source, cache);
+        shared.connect();
+        return shared.replay.doFinally(new Action() {
+          @Override public void run() throws Exception {
+            release(requestKey, shared);
+          }
+        });
+      }
+    });
+  }
+
+  private synchronized <T> SharedObservable<T> acquire(String requestKey, Observable<T> source,
+      @Nullable ResultCache cache) {
+    // Callers use the same key only for the same request, so it emits the same type.
+    @SuppressWarnings("unchecked")
+    SharedObservable<T> shared = (SharedObservable<T>) observables.get(requestKey);
+    if (shared == null) {
+      shared = new SharedObservable<>(requestKey, source, cache);
+      observables.put(requestKey, shared);
+    }
+    shared.subscriberCount++;
+    return shared;
+  }
+
+  private synchronized void release(String requestKey, SharedObservable<?> shared) {
+    if (--shared.subscriberCount == 0) {
+      observables.remove(requestKey);
+      shared.disconnect();
+    }
+  }
+
+  /** @return the number of subscribers of the request, or 0 if it is not in flight. */
+  synchronized int subscriberCount(String requestKey) {
+    SharedObservable<?> shared = observables.get(requestKey);
+    return shared != null ? shared.subscriberCount : 0;
+  }
+
+  private static final class SharedObservable<T> {
+    final ConnectableObservable<T> replay;
+    private final AtomicBoolean connected = new AtomicBoolean();
+    private volatile Disposable connection;
+    /** Guarded by the enclosing {@link SharedObservables}. */
+    int subscriberCount;
+
+    SharedObservable(final String requestKey, Observable<T> source,
+        @Nullable final ResultCache cache) {
+      if (cache != null) {
+        final List<T> items = new ArrayList<>();
+        source = source
+            .doOnNext(new Consumer<T>() {
+              @Override public void accept(T item) throws Exception {
+                items.add(item);
+              }
+            })
+            .doOnComplete(new Action() {
+              @Override public void run() throws Exception {
+                cache.put(requestKey, items);
+              }
+            });
+      }
+      replay = source.replay();
+    }
+
+    /**
+     * Connects to the source once. Not done while holding the lock of {@link SharedObservables},
+     * since a synchronous source emits everything from within {@code connect}.
+     */
+    void connect() {
+      if (connected.compareAndSet(false, true)) {
+        replay.connect(new Consumer<Disposable>() {
+          @Override public void accept(Disposable disposable) throws Exception {
+            connection = disposable;
+          }
+        });
+      }
+    }
+
+    void disconnect() {
+      // The first subscriber connects before subscribing, so the connection is always set here.
+      Disposable connection = this.connection;
+      if (connection != null) {
+        connection.dispose();
+      }
+    }
+  }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import java.util.List;
+
+/**
+ * Notified when an {@link ObservableGroup} stayed locked for longer than its
+ * {@link ObservableGroup#setMaxLockedDuration(long, java.util.concurrent.TimeUnit,
+ * ShedListener) max locked duration} and cancelled the Observables that were still running.
+ */
+public interface ShedListener {
+  /**
+   * Called on the thread of the scheduler passed to
+   * {@link ObservableGroup#setMaxLockedDuration}, after the Observables were cancelled and removed
+   * from the group {@code groupId}. {@code shed} describes them as they were right before.
+   */
+  void onShed(long groupId, List<ObservableSnapshot> shed);
+}
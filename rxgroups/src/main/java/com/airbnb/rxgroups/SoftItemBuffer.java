@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds items through soft references, which the garbage collector clears before running out of
+ * memory. An item cleared before it was delivered is replaced by a
+ * {@link ResultEvictedException}, since delivering the items after it would be misleading.
+ */
+final class SoftItemBuffer<T> implements ItemBuffer<T> {
+  private final String observableTag;
+  /** Guarded by {@code this}, null once released. */
+  private List<SoftItem> items = new ArrayList<>();
+
+  SoftItemBuffer(String observableTag) {
+    this.observableTag = observableTag;
+  }
+
+  @Override public Object hold(T item) {
+    SoftItem softItem = new SoftItem(item);
+    synchronized (this) {
+      if (items != null) {
+        items.add(softItem);
+      }
+    }
+    return softItem;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override public T get(Object held) {
+    Object item = ((SoftItem) held).get();
+    if (item == null) {
+      throw new ResultEvictedException(observableTag);
+    }
+    return (T) item;
+  }
+
+  @Override public synchronized boolean isEvicted() {
+    if (items == null) {
+      return false;
+    }
+    for (SoftItem item : items) {
+      if (item.get() == null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Drops every item held so far, like the garbage collector does when memory runs low. */
+  @Override public synchronized void evict() {
+    if (items != null) {
+      for (SoftItem item : items) {
+        item.clear();
+      }
+    }
+  }
+
+  @Override public synchronized void release() {
+    items = null;
+  }
+
+  /** A dedicated type, so no item of the source is mistaken for a held one. */
+  private static final class SoftItem extends SoftReference<Object> {
+    SoftItem(Object item) {
+      super(item);
+    }
+  }
+}
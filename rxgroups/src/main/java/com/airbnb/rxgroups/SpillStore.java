@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+/**
+ * Moves large items that Observables hold while their group is locked, eg.: images or pages of
+ * JSON, out of the Java heap into a memory mapped file, and reads them back when they are
+ * delivered. Set it with {@link ObservableGroup#setSpillStore(SpillStore)}. <p> Only items of
+ * Observables whose observable tag was {@link #register(String, ResultCodec) registered} are
+ * spilled, and only if they encode to at least {@code thresholdBytes}; smaller ones are kept as
+ * they are. The space of the items of an Observable is released once it is cancelled or its
+ * terminal event was delivered. The file has a fixed capacity, which is only reused once every
+ * spilled item was released, and items that don't fit are kept in the heap.
+ */
+public final class SpillStore implements Closeable {
+  private final RandomAccessFile file;
+  private final MappedByteBuffer buffer;
+  private final int thresholdBytes;
+  private final Map<String, ResultCodec<?>> codecs = new ConcurrentHashMap<>();
+  /** Guarded by {@code this}, like the other fields below. */
+  private int position;
+  private int spilledCount;
+  private int spilledBytes;
+  private boolean closed;
+
+  /**
+   * Maps {@code capacityBytes} of {@code file}, which is created if needed and overwritten, and
+   * spills items that encode to at least {@code thresholdBytes}.
+   */
+  public SpillStore(File file, int capacityBytes, int thresholdBytes) throws IOException {
+    Preconditions.checkArgument(capacityBytes > 0, "capacityBytes must be positive but was %s",
+        capacityBytes);
+    Preconditions.checkArgument(thresholdBytes > 0, "thresholdBytes must be positive but was %s",
+        thresholdBytes);
+    this.file = new RandomAccessFile(file, "rw");
+    try {
+      buffer = this.file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacityBytes);
+    } catch (IOException e) {
+      this.file.close();
+      throw e;
+    }
+    this.thresholdBytes = thresholdBytes;
+  }
+
+  /** Spills the items of Observables added with {@code observableTag}, encoded by {@code codec}. */
+  public <T> void register(String observableTag, ResultCodec<T> codec) {
+    Preconditions.checkNotNull(observableTag, "observableTag == null");
+    Preconditions.checkNotNull(codec, "codec == null");
+    codecs.put(observableTag, codec);
+  }
+
+  /** @return the number of items currently held in the file. */
+  public synchronized int spilledCount() {
+    return spilledCount;
+  }
+
+  /** @return the size of the items currently held in the file. */
+  public synchronized int spilledBytes() {
+    return spilledBytes;
+  }
+
+  /** Stops spilling items. Items spilled already can still be read. */
+  @Override public void close() throws IOException {
+    synchronized (this) {
+      closed = true;
+    }
+    file.close();
+  }
+
+  /** @return a {@link Spiller} for one Observable, or null if its tag is not registered. */
+  @Nullable <T> Spiller<T> spiller(String observableTag) {
+    @SuppressWarnings("unchecked")
+    ResultCodec<T> codec = (ResultCodec<T>) codecs.get(observableTag);
+    return codec != null ? new Spiller<>(this, codec) : null;
+  }
+
+  /** @return the offset of {@code length} bytes reserved in the file, or -1 if they don't fit. */
+  private synchronized int allocate(int length) {
+    if (closed || length > buffer.capacity() - position) {
+      return -1;
+    }
+    int offset = position;
+    position += length;
+    spilledCount++;
+    spilledBytes += length;
+    return offset;
+  }
+
+  private synchronized void release(SpilledItem item) {
+    spilledCount--;
+    spilledBytes -= item.length;
+    if (spilledCount == 0) {
+      position = 0;
+    }
+  }
+
+  private void write(int offset, byte[] bytes) {
+    // Each access uses its own view, since the buffer's position is not thread safe.
+    ByteBuffer view = buffer.duplicate();
+    view.position(offset);
+    view.put(bytes);
+  }
+
+  private byte[] read(SpilledItem item) {
+    byte[] bytes = new byte[item.length];
+    ByteBuffer view = buffer.duplicate();
+    view.position(item.offset);
+    view.get(bytes);
+    return bytes;
+  }
+
+  /** Where an item was spilled to, held by the replay of an Observable in place of the item. */
+  private static final class SpilledItem {
+    final int offset;
+    final int length;
+
+    SpilledItem(int offset, int length) {
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  /** Spills the items of one Observable and keeps track of them until they are released. */
+  static final class Spiller<T> implements ItemBuffer<T> {
+    private final SpillStore store;
+    private final ResultCodec<T> codec;
+    /** Guarded by {@code this}, null once released. */
+    @Nullable private List<SpilledItem> spilledItems = new ArrayList<>();
+
+    private Spiller(SpillStore store, ResultCodec<T> codec) {
+      this.store = store;
+      this.codec = codec;
+    }
+
+    /** @return a {@link SpilledItem} if {@code item} was written to the file, or {@code item}. */
+    @Override public Object hold(T item) {
+      byte[] bytes;
+      try {
+        bytes = codec.encode(Collections.singletonList(item));
+      } catch (IOException e) {
+        return item;
+      }
+      if (bytes.length < store.thresholdBytes) {
+        return item;
+      }
+      synchronized (this) {
+        if (spilledItems == null) {
+          return item;
+        }
+        int offset = store.allocate(bytes.length);
+        if (offset < 0) {
+          return item;
+        }
+        SpilledItem spilledItem = new SpilledItem(offset, bytes.length);
+        store.write(offset, bytes);
+        spilledItems.add(spilledItem);
+        return spilledItem;
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override public T get(Object held) throws IOException {
+      if (!(held instanceof SpilledItem)) {
+        return (T) held;
+      }
+      byte[] bytes;
+      synchronized (this) {
+        if (spilledItems == null) {
+          // Released concurrently, eg.: while a ResultStore saves the result.
+          throw new IOException("Spilled items were already released");
+        }
+        bytes = store.read((SpilledItem) held);
+      }
+      return codec.decode(bytes).get(0);
+    }
+
+    /** Spilled items are not on the heap, and must not be lost. */
+    @Override public void evict() {
+    }
+
+    /** Spilled items are kept until released, so they are never lost. */
+    @Override public boolean isEvicted() {
+      return false;
+    }
+
+    /** Releases the space of every item spilled so far. Items spilled later stay in the heap. */
+    @Override public void release() {
+      List<SpilledItem> released;
+      synchronized (this) {
+        released = spilledItems;
+        spilledItems = null;
+      }
+      if (released != null) {
+        for (SpilledItem spilledItem : released) {
+          store.release(spilledItem);
+        }
+      }
+    }
+  }
+}
@@ -15,16 +15,28 @@
  */
 package com.airbnb.rxgroups;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
 import io.reactivex.Observable;
 import io.reactivex.ObservableEmitter;
 import io.reactivex.Observer;
 import io.reactivex.annotations.NonNull;
-import io.reactivex.disposables.CompositeDisposable;
 import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
 import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
 import io.reactivex.internal.functions.Functions;
 import io.reactivex.observables.ConnectableObservable;
 import io.reactivex.observers.DisposableObserver;
+import io.reactivex.plugins.RxJavaPlugins;
 
 /**
  * This class is a middle man between an {@link Observable} and an {@link ObservableEmitter} or
@@ -32,50 +44,185 @@ import io.reactivex.observers.DisposableObserver;
  * source observable without terminating source observable. This works like a lock/unlock events
  * mechanism. This is useful for expensive operations, such as network requests, which should not be
  * cancelled even if a given Observer should be unsubscribed.
- * Cancellation is usually more suited for lifecycle events like Activity.onDestroy()
+ * Cancellation is usually more suited for lifecycle events like Activity.onDestroy() <p>
+ * Events are delivered one at a time and in order, but never while holding the lock of the proxy,
+ * so an Observer may call back into it or block without risking a deadlock. An event whose
+ * delivery already began may still arrive after {@link #dispose()} or {@link #cancel()} returns.
  */
 final class SubscriptionProxy<T> {
+  private final ConnectableObservable<T> replay;
   private final Observable<T> proxy;
-  private final Disposable sourceDisposable;
-  private final CompositeDisposable disposableList;
-  private Disposable disposable;
+  /** Like {@link #proxy}, but the subscriptions run {@link #afterTerminate} themselves. */
+  private final Observable<T> delivered;
+  private final Action afterTerminate;
+  @Nullable private final ItemBuffer<T> itemBuffer;
+  /** Guarded by {@code this}. */
+  private boolean connected;
+  private volatile boolean cancelled;
+  /** The connection to the source, only one is ever made. */
+  private volatile Disposable sourceDisposable;
+  /** The subscription of the current Observer, only one is subscribed at a time. */
+  private volatile Disposable disposable;
+  private final Queue<Runnable> deliveries = new ConcurrentLinkedQueue<>();
+  /** Number of {@link #drain()} calls since the draining thread last found the queue empty. */
+  private final AtomicInteger deliveryWip = new AtomicInteger();
 
-  private SubscriptionProxy(Observable<T> sourceObservable, Action onTerminate) {
-    final ConnectableObservable<T> replay = sourceObservable.replay();
-    sourceDisposable = replay.connect();
-    proxy = replay.doOnTerminate(onTerminate);
-    disposableList = new CompositeDisposable(sourceDisposable);
+  private SubscriptionProxy(Observable<T> sourceObservable, final Action onTerminate,
+      boolean connect, @Nullable final ItemBuffer<T> itemBuffer) {
+    this.itemBuffer = itemBuffer;
+    if (itemBuffer == null) {
+      replay = sourceObservable.replay();
+      delivered = replay;
+      afterTerminate = onTerminate;
+    } else {
+      replay = sourceObservable.map(new Function<T, T>() {
+        @SuppressWarnings("unchecked")
+        @Override public T apply(@NonNull T t) {
+          // The replay holds what the buffer returns in place of the items, and only hands them
+          // out through get().
+          return (T) itemBuffer.hold(t);
+        }
+      }).replay();
+      delivered = replay.map(new Function<T, T>() {
+        @Override public T apply(@NonNull T t) throws Exception {
+          return itemBuffer.get(t);
+        }
+      });
+      afterTerminate = new Action() {
+        @Override public void run() throws Exception {
+          onTerminate.run();
+          itemBuffer.release();
+        }
+      };
+    }
+    proxy = delivered.doAfterTerminate(afterTerminate);
+    if (connect) {
+      connect();
+    }
   }
 
   static <T> SubscriptionProxy<T> create(Observable<T> observable, Action onTerminate) {
-    return new SubscriptionProxy<>(observable, onTerminate);
+    return create(observable, onTerminate, null);
+  }
+
+  /**
+   * Unless {@code itemBuffer} is null, items are held by it until they are delivered, and it is
+   * released once the proxy is cancelled or the terminal event delivered.
+   */
+  static <T> SubscriptionProxy<T> create(Observable<T> observable, Action onTerminate,
+      @Nullable ItemBuffer<T> itemBuffer) {
+    return new SubscriptionProxy<>(observable, onTerminate, true, itemBuffer);
+  }
+
+  /**
+   * Like {@link #create(Observable, Action, ItemBuffer)}, but the source Observable is
+   * only subscribed to once {@link #connect()} is called. Observers may subscribe before, and
+   * receive nothing until then.
+   */
+  static <T> SubscriptionProxy<T> createUnconnected(Observable<T> observable,
+      Action onTerminate, @Nullable ItemBuffer<T> itemBuffer) {
+    return new SubscriptionProxy<>(observable, onTerminate, false, itemBuffer);
   }
 
   static <T> SubscriptionProxy<T> create(Observable<T> observable) {
     return create(observable, Functions.EMPTY_ACTION);
   }
 
-  @SuppressWarnings("unused") Disposable subscribe(Observer<? super T> observer) {
-    dispose();
-    disposable = proxy.subscribeWith(disposableWrapper(observer));
-    disposableList.add(disposable);
-    return disposable;
+  Disposable subscribe(Observer<? super T> observer) {
+    return subscribeWrapper(disposableWrapper(observer, true));
+  }
+
+  /**
+   * Like {@link #subscribe(Observer)}, for an {@code observer} that delivers the events later on
+   * another thread. The terminate action does not run when the terminal event is handed to
+   * {@code observer}, which has to call {@link #runAfterTerminate()} once it delivered it.
+   */
+  Disposable subscribeDeferringTerminate(Observer<? super T> observer) {
+    return subscribeWrapper(disposableWrapper(observer, false));
   }
 
   Disposable subscribe(ObservableEmitter<? super T> emitter) {
-    dispose();
-    disposable = proxy.subscribeWith(disposableWrapper(emitter));
-    disposableList.add(disposable);
-    return disposable;
+    return subscribeWrapper(disposableWrapper(emitter));
   }
 
-  void cancel() {
-    disposableList.dispose();
+  private Disposable subscribeWrapper(DisposableObserver<T> wrapper) {
+    Disposable subscribed;
+    synchronized (this) {
+      dispose();
+      if (cancelled) {
+        // Nothing is replayed once cancelled.
+        disposable = Disposables.disposed();
+      } else {
+        disposable = delivered.subscribeWith(wrapper);
+      }
+      subscribed = disposable;
+    }
+    // Delivers what was replayed while subscribing.
+    drain();
+    return subscribed;
   }
 
-  void dispose() {
+  /**
+   * Delivers the queued events on the calling thread, unless another thread already does. A thread
+   * holding the lock never delivers, so it must call this again once it released the lock.
+   */
+  void drain() {
+    if (Thread.holdsLock(this) || deliveryWip.getAndIncrement() != 0) {
+      return;
+    }
+    int missed = 1;
+    do {
+      Runnable delivery;
+      while ((delivery = deliveries.poll()) != null) {
+        try {
+          delivery.run();
+        } catch (Throwable e) {
+          // Keep draining, otherwise every later delivery would be stuck in the queue.
+          RxJavaPlugins.onError(e);
+        }
+      }
+      missed = deliveryWip.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  /**
+   * Subscribes to the source Observable, unless already done or cancelled. Does not hold the lock
+   * while subscribing, since a synchronous source emits all of its events from within.
+   */
+  void connect() {
+    synchronized (this) {
+      if (cancelled || connected) {
+        return;
+      }
+      connected = true;
+    }
+    replay.connect(new Consumer<Disposable>() {
+      @Override public void accept(@NonNull Disposable connection) {
+        synchronized (SubscriptionProxy.this) {
+          sourceDisposable = connection;
+          if (cancelled) {
+            // Cancelled meanwhile.
+            connection.dispose();
+          }
+        }
+      }
+    });
+  }
+
+  synchronized void cancel() {
+    cancelled = true;
+    if (sourceDisposable != null) {
+      sourceDisposable.dispose();
+    }
+    dispose();
+    if (itemBuffer != null) {
+      itemBuffer.release();
+    }
+  }
+
+  synchronized void dispose() {
     if (disposable != null) {
-      disposableList.remove(disposable);
+      disposable.dispose();
     }
   }
 
@@ -84,49 +231,147 @@ final class SubscriptionProxy<T> {
   }
 
   boolean isCancelled() {
-    return isDisposed() && sourceDisposable.isDisposed();
+    Disposable sourceDisposable = this.sourceDisposable;
+    return isDisposed() && (sourceDisposable != null
+        ? sourceDisposable.isDisposed() : cancelled);
   }
 
   Observable<T> observable() {
     return proxy;
   }
 
-  DisposableObserver<? super T> disposableWrapper(final ObservableEmitter<? super T> emitter) {
-    return new DisposableObserver<T>() {
+  void evict() {
+    if (itemBuffer != null) {
+      itemBuffer.evict();
+    }
+  }
+
+  /** @return whether a buffered item was lost, see {@link ItemBuffer#isEvicted()}. */
+  boolean isEvicted() {
+    return itemBuffer != null && itemBuffer.isEvicted();
+  }
+
+  /**
+   * @return every item the source emitted, or {@code null} if it did not complete yet. Reads the
+   * replay directly, so unlike subscribing to {@link #observable()} nothing is delivered.
+   */
+  @Nullable List<T> completedItems() throws IOException {
+    final List<T> items = new ArrayList<>();
+    final boolean[] completed = new boolean[1];
+    // A completed replay emits everything while subscribing.
+    replay.subscribe(new Observer<T>() {
+      @Override public void onSubscribe(@NonNull Disposable d) {
+      }
+
       @Override public void onNext(@NonNull T t) {
-        if (!emitter.isDisposed()) {
-          emitter.onNext(t);
-        }
+        items.add(t);
       }
 
       @Override public void onError(@NonNull Throwable e) {
-        if (!emitter.isDisposed()) {
-          emitter.onError(e);
-        }
       }
 
       @Override public void onComplete() {
-        if (!emitter.isDisposed()) {
-          emitter.onComplete();
-        }
+        completed[0] = true;
       }
-    };
+    });
+    if (!completed[0]) {
+      return null;
+    }
+    if (itemBuffer != null) {
+      for (int i = 0; i < items.size(); i++) {
+        items.set(i, itemBuffer.get(items.get(i)));
+      }
+    }
+    return items;
   }
 
-  DisposableObserver<? super T> disposableWrapper(final Observer<? super T> observer) {
+  private DisposableObserver<T> disposableWrapper(ObservableEmitter<? super T> emitter) {
+    return disposableWrapper(emitterObserver(emitter), true);
+  }
+
+  /**
+   * Queues every event for {@link #drain()}, which delivers it to {@code observer} unless this
+   * subscription was disposed meanwhile, then runs the terminate action after the terminal event
+   * if {@code runAfterTerminate}.
+   */
+  private DisposableObserver<T> disposableWrapper(final Observer<? super T> observer,
+      final boolean runAfterTerminate) {
     return new DisposableObserver<T>() {
+      @Override public void onNext(@NonNull final T t) {
+        deliver(new Runnable() {
+          @Override public void run() {
+            if (!isDisposed()) {
+              observer.onNext(t);
+            }
+          }
+        });
+      }
+
+      @Override public void onError(@NonNull final Throwable e) {
+        deliver(new Runnable() {
+          @Override public void run() {
+            if (!isDisposed()) {
+              observer.onError(e);
+              if (runAfterTerminate) {
+                runAfterTerminate();
+              }
+            }
+          }
+        });
+      }
+
+      @Override public void onComplete() {
+        deliver(new Runnable() {
+          @Override public void run() {
+            if (!isDisposed()) {
+              observer.onComplete();
+              if (runAfterTerminate) {
+                runAfterTerminate();
+              }
+            }
+          }
+        });
+      }
+
+      private void deliver(Runnable delivery) {
+        deliveries.offer(delivery);
+        drain();
+      }
+    };
+  }
+
+  /** Runs the terminate action, after the terminal event was delivered to the Observer. */
+  void runAfterTerminate() {
+    try {
+      afterTerminate.run();
+    } catch (Throwable e) {
+      RxJavaPlugins.onError(e);
+    }
+  }
+
+  /** Forwards to {@code emitter} until it is disposed. */
+  static <T> Observer<T> emitterObserver(final ObservableEmitter<? super T> emitter) {
+    return new Observer<T>() {
+      @Override public void onSubscribe(@NonNull Disposable d) {
+      }
+
       @Override public void onNext(@NonNull T t) {
-        observer.onNext(t);
+        if (!emitter.isDisposed()) {
+          emitter.onNext(t);
+        }
       }
 
       @Override public void onError(@NonNull Throwable e) {
-        observer.onError(e);
+        if (!emitter.isDisposed()) {
+          emitter.onError(e);
+        }
       }
 
       @Override public void onComplete() {
-        observer.onComplete();
+        if (!emitter.isDisposed()) {
+          emitter.onComplete();
+        }
       }
     };
   }
-
 }
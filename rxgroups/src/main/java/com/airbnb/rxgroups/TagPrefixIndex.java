@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The Observables of an {@link ObservableGroup} sorted by observable tag, so the ones whose tag
+ * starts with a given prefix are found without looking at the others. Keys also hold the observer
+ * tag and the sequence of the Observable, so an Observable that replaced another one with the same
+ * tags is never removed along with it.
+ */
+final class TagPrefixIndex {
+  private static final char SEPARATOR = '\u0000';
+
+  private final ConcurrentNavigableMap<String, ManagedObservable<?>> observables =
+      new ConcurrentSkipListMap<>();
+
+  void add(ManagedObservable<?> managedObservable) {
+    observables.put(key(managedObservable.observableTag(), managedObservable.observerTag(),
+        managedObservable.sequence()), managedObservable);
+  }
+
+  void remove(ManagedObservable<?> managedObservable) {
+    remove(managedObservable.observableTag(), managedObservable.observerTag(),
+        managedObservable.sequence());
+  }
+
+  void remove(String observableTag, String observerTag, long sequence) {
+    observables.remove(key(observableTag, observerTag, sequence));
+  }
+
+  /** @return the Observables whose observable tag starts with {@code prefix}, sorted by tag. */
+  List<ManagedObservable<?>> withPrefix(String prefix) {
+    List<ManagedObservable<?>> result = new ArrayList<>();
+    for (Map.Entry<String, ManagedObservable<?>> entry
+        : observables.tailMap(prefix).entrySet()) {
+      if (!entry.getKey().startsWith(prefix)) {
+        break;
+      }
+      if (entry.getValue().observableTag().startsWith(prefix)) {
+        result.add(entry.getValue());
+      }
+    }
+    return result;
+  }
+
+  void clear() {
+    observables.clear();
+  }
+
+  private static String key(String observableTag, String observerTag, long sequence) {
+    return observableTag + SEPARATOR + observerTag + SEPARATOR + sequence;
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+/**
+ * Process wide registry of the observer tags generated by {@code rxgroups-processor}. Every
+ * generated tag table registers its tags once, when the table class is loaded, and receives a small
+ * integer id for each tag. {@link ObservableGroup} uses these ids to find the observables of an
+ * observer without hashing or comparing tag strings. <p> Registering a tag that is already known
+ * (eg.: the same tag generated in two modules) returns the id it was first registered with. The
+ * processor rejects duplicate tags only within a module, so two modules using the same tag share
+ * its Observables just like they would without generated ids.
+ */
+public final class TagRegistry {
+  /** Returned by {@link #idOf(String)} for tags that were never registered. */
+  public static final int NO_ID = -1;
+
+  private static final Object LOCK = new Object();
+  private static volatile Table table = new Table(16);
+
+  private TagRegistry() {
+  }
+
+  /**
+   * Registers {@code tags} with their precomputed {@link String#hashCode()}s and returns the id
+   * assigned to each of them, in the same order. Called from generated code only.
+   */
+  public static int[] register(String[] tags, int[] hashCodes) {
+    Preconditions.checkArgument(tags.length == hashCodes.length,
+        "Expected %s hash codes but got %s", tags.length, hashCodes.length);
+    int[] ids = new int[tags.length];
+    synchronized (LOCK) {
+      Table current = table;
+      Table updated = current.resize(current.size + tags.length);
+      for (int i = 0; i < tags.length; i++) {
+        ids[i] = updated.intern(Preconditions.checkNotNull(tags[i]), hashCodes[i]);
+      }
+      table = updated;
+    }
+    return ids;
+  }
+
+  /** @return the id of {@code tag}, or {@link #NO_ID} if it was never registered. */
+  static int idOf(String tag) {
+    return table.find(tag, tag.hashCode());
+  }
+
+  /** @return the tag registered with {@code id}. */
+  static String tagOf(int id) {
+    return table.tagsById[id];
+  }
+
+  /** @return the number of registered tags. Every id is smaller than this value. */
+  static int size() {
+    return table.size;
+  }
+
+  /**
+   * Snapshot of the registry. Lookups use open addressing over the precomputed hash codes. A
+   * snapshot is only modified while being built under {@link #LOCK}, before it is published.
+   */
+  private static final class Table {
+    final String[] tags;
+    final int[] hashCodes;
+    final int[] ids;
+    final String[] tagsById;
+    int size;
+
+    Table(int capacity) {
+      tags = new String[capacity];
+      hashCodes = new int[capacity];
+      ids = new int[capacity];
+      tagsById = new String[capacity / 2];
+    }
+
+    /** @return a copy of this table with enough room to hold {@code expectedSize} tags. */
+    Table resize(int expectedSize) {
+      int capacity = tags.length;
+      while (capacity < expectedSize * 2) {
+        capacity *= 2;
+      }
+      Table copy = new Table(capacity);
+      for (int i = 0; i < tags.length; i++) {
+        if (tags[i] != null) {
+          copy.insert(tags[i], hashCodes[i], ids[i]);
+        }
+      }
+      copy.size = size;
+      return copy;
+    }
+
+    int find(String tag, int hashCode) {
+      int mask = tags.length - 1;
+      for (int i = hashCode & mask; tags[i] != null; i = (i + 1) & mask) {
+        if (hashCodes[i] == hashCode && tags[i].equals(tag)) {
+          return ids[i];
+        }
+      }
+      return NO_ID;
+    }
+
+    int intern(String tag, int hashCode) {
+      int id = find(tag, hashCode);
+      if (id == NO_ID) {
+        id = size++;
+        insert(tag, hashCode, id);
+      }
+      return id;
+    }
+
+    private void insert(String tag, int hashCode, int id) {
+      int mask = tags.length - 1;
+      int i = hashCode & mask;
+      while (tags[i] != null) {
+        i = (i + 1) & mask;
+      }
+      tags[i] = tag;
+      hashCodes[i] = hashCode;
+      ids[i] = id;
+      tagsById[id] = tag;
+    }
+  }
+}
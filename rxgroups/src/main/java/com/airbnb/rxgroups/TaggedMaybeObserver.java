@@ -0,0 +1,19 @@
+package com.airbnb.rxgroups;
+
+
+import io.reactivex.MaybeObserver;
+
+/**
+ * A {@link MaybeObserver} which has a string "tag" which
+ * uniquely identifies this Observer.
+ */
+public interface TaggedMaybeObserver<T> extends MaybeObserver<T> {
+
+  /**
+   * @return A string which uniquely identifies this Observer. In order to use
+   * {@link ObservableGroup#resubscribe(TaggedMaybeObserver, String)} the tag must be
+   * stable across lifecycles of the observer.
+   */
+  String getTag();
+
+}
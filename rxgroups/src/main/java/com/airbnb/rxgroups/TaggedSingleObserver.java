@@ -0,0 +1,19 @@
+package com.airbnb.rxgroups;
+
+
+import io.reactivex.SingleObserver;
+
+/**
+ * A {@link SingleObserver} which has a string "tag" which
+ * uniquely identifies this Observer.
+ */
+public interface TaggedSingleObserver<T> extends SingleObserver<T> {
+
+  /**
+   * @return A string which uniquely identifies this Observer. In order to use
+   * {@link ObservableGroup#resubscribe(TaggedSingleObserver, String)} the tag must be
+   * stable across lifecycles of the observer.
+   */
+  String getTag();
+
+}
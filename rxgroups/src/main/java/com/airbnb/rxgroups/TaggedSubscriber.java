@@ -0,0 +1,19 @@
+package com.airbnb.rxgroups;
+
+
+import org.reactivestreams.Subscriber;
+
+/**
+ * A {@link Subscriber} which has a string "tag" which
+ * uniquely identifies this Subscriber.
+ */
+public interface TaggedSubscriber<T> extends Subscriber<T> {
+
+  /**
+   * @return A string which uniquely identifies this Subscriber. In order to use
+   * {@link ObservableGroup#resubscribe(TaggedSubscriber, String)} the tag must be
+   * stable across lifecycles of the subscriber.
+   */
+  String getTag();
+
+}
@@ -4,12 +4,23 @@ package com.airbnb.rxgroups;
 import io.reactivex.Observer;
 
 final class Utils {
-  static String getObserverTag(Observer<?> observer) {
+  /**
+   * @param observer an {@link Observer}, {@link io.reactivex.SingleObserver},
+   * {@link io.reactivex.MaybeObserver} or {@link org.reactivestreams.Subscriber}.
+   */
+  static String getObserverTag(Object observer) {
+    String definedTag = null;
     if (observer instanceof TaggedObserver) {
-      String definedTag = ((TaggedObserver) observer).getTag();
-      if (definedTag != null) {
-        return definedTag;
-      }
+      definedTag = ((TaggedObserver) observer).getTag();
+    } else if (observer instanceof TaggedSingleObserver) {
+      definedTag = ((TaggedSingleObserver) observer).getTag();
+    } else if (observer instanceof TaggedMaybeObserver) {
+      definedTag = ((TaggedMaybeObserver) observer).getTag();
+    } else if (observer instanceof TaggedSubscriber) {
+      definedTag = ((TaggedSubscriber) observer).getTag();
+    }
+    if (definedTag != null) {
+      return definedTag;
     }
     return NonResubscribableTag.create(observer);
   }
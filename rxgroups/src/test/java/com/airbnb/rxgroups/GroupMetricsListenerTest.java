@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.reactivex.Observable;
+import io.reactivex.subjects.PublishSubject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GroupMetricsListenerTest {
+  private final RecordingMetricsListener metrics = new RecordingMetricsListener();
+  private final ObservableManager observableManager = new ObservableManager(metrics);
+  private final TestAutoResubscribingObserver fooObserver =
+      new TestAutoResubscribingObserver("foo");
+
+  @Test public void testReportsAddAndTerminalDelivery() {
+    ObservableGroup group = observableManager.newGroup();
+    PublishSubject<String> sourceObservable = PublishSubject.create();
+
+    sourceObservable.compose(group.transform(fooObserver)).subscribe(fooObserver);
+    sourceObservable.onNext("Roberto");
+    sourceObservable.onComplete();
+
+    assertThat(metrics.events).containsExactly("add 1 foo foo", "terminal 1 foo foo");
+  }
+
+  @Test public void testReportsBufferedItemsAndReplayWhileLocked() {
+    ObservableGroup group = observableManager.newGroup();
+    PublishSubject<String> sourceObservable = PublishSubject.create();
+
+    sourceObservable.compose(group.transform(fooObserver)).subscribe(fooObserver);
+    group.lock();
+    sourceObservable.onNext("Roberto");
+    sourceObservable.onNext("Gomez");
+    group.unlock();
+
+    assertThat(metrics.events).containsExactly("add 1 foo foo", "lock 1",
+        "buffered 1 foo foo", "buffered 1 foo foo", "unlock 1", "replay 1 foo foo 2",
+        "drained 1 foo foo 2");
+  }
+
+  @Test public void testReportsOnlyItemsBufferedSinceLastDrain() {
+    ObservableGroup group = observableManager.newGroup();
+    PublishSubject<String> sourceObservable = PublishSubject.create();
+
+    sourceObservable.compose(group.transform(fooObserver)).subscribe(fooObserver);
+    group.lock();
+    sourceObservable.onNext("Roberto");
+    group.unlock();
+    metrics.events.clear();
+    group.lock();
+    sourceObservable.onNext("Gomez");
+    group.unlock();
+
+    assertThat(metrics.events).containsExactly("lock 1", "buffered 1 foo foo", "unlock 1",
+        "replay 1 foo foo 2", "drained 1 foo foo 1");
+  }
+
+  @Test public void testReportsBufferedItemsDrainedOnCancel() {
+    ObservableGroup group = observableManager.newGroup();
+    PublishSubject<String> sourceObservable = PublishSubject.create();
+
+    sourceObservable.compose(group.transform(fooObserver)).subscribe(fooObserver);
+    group.lock();
+    sourceObservable.onNext("Roberto");
+    group.cancelAllObservablesForObserver(fooObserver);
+
+    assertThat(metrics.events).containsExactly("add 1 foo foo", "lock 1",
+        "buffered 1 foo foo", "cancel 1 foo foo", "drained 1 foo foo 1");
+  }
+
+  @Test public void testReportsCancelOnlyOnce() {
+    ObservableGroup group = observableManager.newGroup();
+    Observable<String> sourceObservable = Observable.never();
+
+    sourceObservable.compose(group.transform(fooObserver)).subscribe(fooObserver);
+    SourceSubscription subscription = group.subscription(fooObserver);
+    subscription.cancel();
+    subscription.cancel();
+
+    assertThat(metrics.events).containsExactly("add 1 foo foo", "cancel 1 foo foo");
+  }
+
+  @Test public void testReportsItemsEmittedBeforeSubscription() {
+    ObservableGroup group = observableManager.newGroup();
+
+    Observable.just("Roberto").compose(group.transform(fooObserver)).subscribe(fooObserver);
+
+    assertThat(metrics.events).containsExactly("buffered 1 foo foo", "add 1 foo foo",
+        "replay 1 foo foo 1", "drained 1 foo foo 1", "terminal 1 foo foo");
+  }
+
+  @Test public void testReportsCancel() {
+    ObservableGroup group = observableManager.newGroup();
+    Observable<String> sourceObservable = Observable.never();
+
+    sourceObservable.compose(group.transform(fooObserver)).subscribe(fooObserver);
+    group.cancelAllObservablesForObserver(fooObserver);
+
+    assertThat(metrics.events).containsExactly("add 1 foo foo", "cancel 1 foo foo");
+  }
+
+  @Test public void testReportsCancelOfReplacedObservable() {
+    ObservableGroup group = observableManager.newGroup();
+    Observable<String> sourceObservable = Observable.never();
+
+    sourceObservable.compose(group.transform(fooObserver)).subscribe(fooObserver);
+    sourceObservable.compose(group.transform(fooObserver)).subscribe(fooObserver);
+
+    assertThat(metrics.events).containsExactly("add 1 foo foo", "cancel 1 foo foo",
+        "add 1 foo foo");
+  }
+
+  @Test public void testReportsJoin() {
+    ObservableGroup group = observableManager.newGroup();
+    Observable<String> sourceObservable = Observable.never();
+
+    sourceObservable.compose(group.transform(fooObserver, "foo", InFlightPolicy.JOIN))
+        .subscribe(fooObserver);
+    sourceObservable.compose(group.transform(fooObserver, "foo", InFlightPolicy.JOIN))
+        .subscribe(fooObserver);
+
+    assertThat(metrics.events).containsExactly("add 1 foo foo", "join 1 foo foo");
+  }
+
+  @Test public void testLockSkipsDescendantsWhoseStateDidNotChange() {
+    ObservableGroup parent = observableManager.newGroup();
+    ObservableGroup child = observableManager.newGroup(parent);
+    ObservableGroup lockedChild = observableManager.newGroup(parent);
+    observableManager.newGroup(lockedChild);
+    lockedChild.lock();
+    metrics.events.clear();
+
+    parent.lock();
+    parent.unlock();
+
+    assertThat(metrics.events).containsExactly("lock 1", "lock 2", "unlock 1", "unlock 2");
+    assertThat(child.isLocked()).isFalse();
+  }
+
+  private static class RecordingMetricsListener extends GroupMetricsListener {
+    final List<String> events = new ArrayList<>();
+
+    @Override public void onAdd(long groupId, String observerTag, String observableTag) {
+      events.add("add " + groupId + " " + observerTag + " " + observableTag);
+    }
+
+    @Override public void onCancel(long groupId, String observerTag, String observableTag) {
+      events.add("cancel " + groupId + " " + observerTag + " " + observableTag);
+    }
+
+    @Override public void onJoin(long groupId, String observerTag, String observableTag) {
+      events.add("join " + groupId + " " + observerTag + " " + observableTag);
+    }
+
+    @Override public void onLock(long groupId) {
+      events.add("lock " + groupId);
+    }
+
+    @Override public void onUnlock(long groupId) {
+      events.add("unlock " + groupId);
+    }
+
+    @Override public void onItemBuffered(long groupId, String observerTag, String observableTag) {
+      events.add("buffered " + groupId + " " + observerTag + " " + observableTag);
+    }
+
+    @Override public void onReplay(long groupId, String observerTag, String observableTag,
+        int itemCount) {
+      events.add("replay " + groupId + " " + observerTag + " " + observableTag + " " + itemCount);
+    }
+
+    @Override public void onBufferDrained(long groupId, String observerTag,
+        String observableTag, int itemCount) {
+      events.add("drained " + groupId + " " + observerTag + " " + observableTag + " "
+          + itemCount);
+    }
+
+    @Override
+    public void onTerminalDelivered(long groupId, String observerTag, String observableTag) {
+      events.add("terminal " + groupId + " " + observerTag + " " + observableTag);
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.subjects.PublishSubject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LatencyHistogramTest {
+  @Test public void testEmptyHistogram() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertThat(histogram.count()).isEqualTo(0);
+    assertThat(histogram.valueAtPercentile(99)).isEqualTo(0);
+    assertThat(histogram.meanNanos()).isEqualTo(0);
+  }
+
+  @Test public void testPercentilesAreWithinBucketPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long i = 1; i <= 1000; i++) {
+      histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+    }
+
+    assertThat(histogram.count()).isEqualTo(1000);
+    assertThat(histogram.maxNanos()).isEqualTo(TimeUnit.MICROSECONDS.toNanos(1000));
+    assertThat(histogram.meanNanos()).isEqualTo(500500.0);
+    long p50 = histogram.valueAtPercentile(50);
+    assertThat(p50).isBetween(500000L, 500000L + 500000L / LatencyHistogram.SUB_BUCKET_COUNT);
+    assertThat(histogram.valueAtPercentile(100)).isEqualTo(histogram.maxNanos());
+  }
+
+  @Test public void testBucketsCoverAllValues() {
+    assertThat(LatencyHistogram.bucketIndex(0)).isEqualTo(0);
+    assertThat(LatencyHistogram.bucketIndex(15)).isEqualTo(15);
+    assertThat(LatencyHistogram.bucketIndex(16)).isEqualTo(16);
+    for (long value : new long[] {16, 17, 31, 32, 1000, 123456789, Long.MAX_VALUE}) {
+      int index = LatencyHistogram.bucketIndex(value);
+      assertThat(LatencyHistogram.highestValueInBucket(index)).isGreaterThanOrEqualTo(value);
+      assertThat(LatencyHistogram.highestValueInBucket(index - 1)).isLessThan(value);
+    }
+  }
+
+  @Test public void testRecorderKeepsBoundedNumberOfPendingTimestamps() {
+    DeliveryLatencyTracker tracker = new DeliveryLatencyTracker();
+    DeliveryLatencyTracker.Recorder recorder = tracker.newRecorder("foo");
+    LatencyHistogram histogram = tracker.histograms().get("foo");
+    int pending = DeliveryLatencyTracker.Recorder.MAX_PENDING;
+
+    for (int i = 0; i < pending + 2; i++) {
+      recorder.onEmitted();
+    }
+    assertThat(histogram.overflowCount()).isEqualTo(2);
+
+    for (int i = 0; i < pending + 1; i++) {
+      recorder.onDelivered(i);
+    }
+    // The ring has room again, but the overflowed item before it is still pending.
+    recorder.onEmitted();
+    recorder.onDelivered(pending + 1);
+    recorder.onDelivered(pending + 2);
+
+    assertThat(histogram.count()).isEqualTo(pending);
+    assertThat(histogram.overflowCount()).isEqualTo(3);
+
+    recorder.onEmitted();
+    recorder.onDelivered(pending + 3);
+
+    assertThat(histogram.count()).isEqualTo(pending + 1);
+  }
+
+  @Test public void testRecordsDeliveryLatencyWhileLocked() throws InterruptedException {
+    ObservableManager observableManager =
+        new ObservableManager(GroupMetricsListener.NONE, true);
+    ObservableGroup group = observableManager.newGroup();
+    TestAutoResubscribingObserver observer = new TestAutoResubscribingObserver("foo");
+    PublishSubject<String> sourceObservable = PublishSubject.create();
+
+    sourceObservable.compose(group.transform(observer, "latency")).subscribe(observer);
+    group.lock();
+    sourceObservable.onNext("Roberto");
+    Thread.sleep(20);
+    group.unlock();
+
+    LatencyHistogram histogram = observableManager.deliveryLatency("latency");
+    assertThat(histogram.count()).isEqualTo(1);
+    assertThat(histogram.maxNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+
+    // Items are replayed on every unlock, but only their first delivery is recorded.
+    group.lock();
+    group.unlock();
+    sourceObservable.onNext("Gomez");
+    assertThat(histogram.count()).isEqualTo(2);
+    observer.assertionTarget.assertValues("Roberto", "Roberto", "Gomez");
+  }
+
+  @Test public void testNotTrackedByDefault() {
+    ObservableManager observableManager = new ObservableManager();
+    ObservableGroup group = observableManager.newGroup();
+    TestAutoResubscribingObserver observer = new TestAutoResubscribingObserver("foo");
+    PublishSubject<String> sourceObservable = PublishSubject.create();
+
+    sourceObservable.compose(group.transform(observer, "latency")).subscribe(observer);
+    sourceObservable.onNext("Roberto");
+
+    assertThat(observableManager.deliveryLatency("latency")).isNull();
+    assertThat(observableManager.deliveryLatencies()).isEmpty();
+  }
+}
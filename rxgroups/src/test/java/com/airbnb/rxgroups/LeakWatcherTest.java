@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import io.reactivex.subjects.PublishSubject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LeakWatcherTest {
+  private final ObservableManager observableManager = new ObservableManager();
+  private final LeakWatcher leakWatcher = new LeakWatcher();
+  private final PublishSubject<String> sourceObservable = PublishSubject.create();
+
+  @Test public void testReportsObserverReachableAfterDestroy() {
+    observableManager.setLeakWatcher(leakWatcher);
+    ObservableGroup group = observableManager.newGroup();
+    TestAutoResubscribingObserver observer = new TestAutoResubscribingObserver("foo");
+    sourceObservable.compose(group.transform(observer)).subscribe(observer);
+
+    observableManager.destroy(group);
+    leakWatcher.watch(group);
+
+    List<LeakWatcher.Leak> leaks = leakWatcher.check();
+    assertThat(leaks).hasSize(1);
+    assertThat(leaks.get(0).groupId()).isEqualTo(group.id());
+    assertThat(leaks.get(0).observerTag()).isEqualTo("foo");
+    assertThat(leaks.get(0).observerClassName())
+        .isEqualTo(TestAutoResubscribingObserver.class.getName());
+    assertThat(leaks.get(0).isRetainedByGroup()).isFalse();
+    assertThat(leaks.get(0).estimatedBytes()).isGreaterThan(0);
+    assertThat(LeakWatcher.leakedBytes(leaks)).isEqualTo(leaks.get(0).estimatedBytes());
+  }
+
+  @Test public void testReportsObserverRetainedByGroup() {
+    observableManager.setLeakWatcher(leakWatcher);
+    ObservableGroup group = observableManager.newGroup();
+    TestAutoResubscribingObserver observer = new TestAutoResubscribingObserver("foo");
+    sourceObservable.compose(group.transform(observer)).subscribe(observer);
+
+    leakWatcher.watch(group);
+
+    List<LeakWatcher.Leak> leaks = leakWatcher.check();
+    assertThat(leaks).hasSize(1);
+    assertThat(leaks.get(0).isRetainedByGroup()).isTrue();
+  }
+
+  @Test public void testDoesNotReportCollectedObserver() throws InterruptedException {
+    observableManager.setLeakWatcher(leakWatcher);
+    ObservableGroup group = observableManager.newGroup();
+    subscribeObserver(group);
+
+    observableManager.destroy(group);
+    leakWatcher.watch(group);
+
+    for (int i = 0; i < 50 && !leakWatcher.check().isEmpty(); i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertThat(leakWatcher.check()).isEmpty();
+  }
+
+  @Test public void testDoesNotTrackObserversWithoutWatcher() {
+    ObservableGroup group = observableManager.newGroup();
+    TestAutoResubscribingObserver observer = new TestAutoResubscribingObserver("foo");
+    sourceObservable.compose(group.transform(observer)).subscribe(observer);
+
+    observableManager.destroy(group);
+    leakWatcher.watch(group);
+
+    assertThat(group.watchedObservers()).isNull();
+    assertThat(leakWatcher.check()).isEmpty();
+  }
+
+  @Test public void testEstimateIncludesOuterInstance() {
+    Outer outer = new Outer();
+    long innerBytes = LeakWatcher.estimateRetainedBytes(outer.new Inner());
+    long staticBytes = LeakWatcher.estimateRetainedBytes(new Static());
+
+    assertThat(innerBytes).isGreaterThan(staticBytes + 10 * 8);
+  }
+
+  private void subscribeObserver(ObservableGroup group) {
+    TestAutoResubscribingObserver observer = new TestAutoResubscribingObserver("foo");
+    sourceObservable.compose(group.transform(observer)).subscribe(observer);
+  }
+
+  static class Static {
+  }
+
+  @SuppressWarnings("unused")
+  static class Outer {
+    // Stands in for the many fields of an Activity.
+    long f0, f1, f2, f3, f4, f5, f6, f7, f8, f9;
+
+    class Inner {
+    }
+  }
+}
@@ -15,19 +15,31 @@
  */
 package com.airbnb.rxgroups;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
 import io.reactivex.Observable;
 import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.SingleObserver;
 import io.reactivex.annotations.NonNull;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Consumer;
 import io.reactivex.functions.Function;
 import io.reactivex.observers.TestObserver;
 import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.subscribers.TestSubscriber;
 import io.reactivex.schedulers.Schedulers;
+import io.reactivex.schedulers.TestScheduler;
 import io.reactivex.subjects.PublishSubject;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -49,6 +61,11 @@ public class ObservableGroupTest {
     });
   }
 
+  @After public void tearDown() {
+    // Otherwise the handler breaks the initialization of Schedulers in tests that run later.
+    RxJavaPlugins.reset();
+  }
+
   @Test public void shouldNotHaveObservable() {
     ObservableGroup group = observableManager.newGroup();
     assertThat(group.hasObservables(fooObserver)).isEqualTo(false);
@@ -534,6 +551,431 @@ public class ObservableGroupTest {
     observer1.assertValue("Hello World 1");
   }
 
+  @Test public void shouldJoinInFlightObservableOfSameTag() {
+    ObservableGroup group = observableManager.newGroup();
+    PublishSubject<String> observable1 = PublishSubject.create();
+    PublishSubject<String> observable2 = PublishSubject.create();
+    TestAutoResubscribingObserver observer1 = new TestAutoResubscribingObserver("foo");
+    TestAutoResubscribingObserver observer2 = new TestAutoResubscribingObserver("foo");
+    observable1.compose(group.transform(observer1, "foo", InFlightPolicy.JOIN))
+        .subscribe(observer1);
+    observable1.onNext("Hello World 1");
+    observable2.compose(group.transform(observer2, "foo", InFlightPolicy.JOIN))
+        .subscribe(observer2);
+
+    assertThat(observable1.hasObservers()).isTrue();
+    assertThat(observable2.hasObservers()).isFalse();
+
+    observable1.onNext("Hello World 2");
+    observable1.onComplete();
+
+    observer2.assertionTarget.assertValues("Hello World 1", "Hello World 2");
+    observer2.assertionTarget.assertComplete();
+    observer1.assertionTarget.assertValue("Hello World 1");
+    observer1.assertionTarget.assertNotComplete();
+    assertThat(group.hasObservables(observer2)).isFalse();
+  }
+
+  @Test public void shouldJoinObservableWithUndeliveredResult() {
+    ObservableGroup group = observableManager.newGroup();
+    PublishSubject<String> observable1 = PublishSubject.create();
+    TestObserver<String> testObserver = new TestObserver<>();
+    TaggedSingleObserver<String> observer1 = taggedSingleObserver("single", testObserver);
+    observable1.singleOrError()
+        .compose(group.transformSingle(observer1, "single", InFlightPolicy.JOIN))
+        .subscribe(observer1);
+    group.lock();
+    observable1.onNext("Hello World 1");
+    observable1.onComplete();
+
+    TestObserver<String> joinedObserver = new TestObserver<>();
+    TaggedSingleObserver<String> observer2 = taggedSingleObserver("single", joinedObserver);
+    Single.just("Hello World 2")
+        .compose(group.transformSingle(observer2, "single", InFlightPolicy.JOIN))
+        .subscribe(observer2);
+    group.unlock();
+
+    joinedObserver.assertValue("Hello World 1");
+    testObserver.assertNoValues();
+  }
+
+  @Test public void shouldSubscribeNewObservableWhenJoiningAfterTermination() {
+    ObservableGroup group = observableManager.newGroup();
+    TestAutoResubscribingObserver observer1 = new TestAutoResubscribingObserver("foo");
+    TestAutoResubscribingObserver observer2 = new TestAutoResubscribingObserver("foo");
+    Observable.just("Hello World 1")
+        .compose(group.transform(observer1, "foo", InFlightPolicy.JOIN))
+        .subscribe(observer1);
+    Observable.just("Hello World 2")
+        .compose(group.transform(observer2, "foo", InFlightPolicy.JOIN))
+        .subscribe(observer2);
+
+    observer1.assertionTarget.assertValue("Hello World 1");
+    observer2.assertionTarget.assertValue("Hello World 2");
+  }
+
+  @Test public void shouldNotJoinCancelledObservable() {
+    ObservableGroup group = observableManager.newGroup();
+    PublishSubject<String> observable1 = PublishSubject.create();
+    TestAutoResubscribingObserver observer1 = new TestAutoResubscribingObserver("foo");
+    TestAutoResubscribingObserver observer2 = new TestAutoResubscribingObserver("foo");
+    observable1.compose(group.transform(observer1, "foo", InFlightPolicy.JOIN))
+        .subscribe(observer1);
+    group.subscription(observer1).cancel();
+
+    Observable.just("Hello World 2")
+        .compose(group.transform(observer2, "foo", InFlightPolicy.JOIN))
+        .subscribe(observer2);
+
+    observer2.assertionTarget.assertValue("Hello World 2");
+    observer2.assertionTarget.assertComplete();
+  }
+
+  @Test public void shouldQueueObservablesBeyondMaxInFlight() {
+    ObservableGroup group = observableManager.newGroup();
+    group.setMaxInFlight(2);
+    PublishSubject<String> observable1 = PublishSubject.create();
+    PublishSubject<String> observable2 = PublishSubject.create();
+    PublishSubject<String> observable3 = PublishSubject.create();
+    TestObserver<String> observer3 = new TestObserver<>();
+    observable1.compose(group.transform(fooObserver, "foo1")).subscribe(fooObserver);
+    observable2.compose(group.transform(fooObserver, "foo2")).subscribe(fooObserver);
+    observable3.compose(group.transform(observer3)).subscribe(observer3);
+
+    assertThat(observable3.hasObservers()).isFalse();
+    assertThat(group.pendingCount()).isEqualTo(1);
+
+    observable1.onComplete();
+
+    assertThat(observable3.hasObservers()).isTrue();
+    assertThat(group.pendingCount()).isEqualTo(0);
+    observable3.onNext("Hello World");
+    observer3.assertValue("Hello World");
+  }
+
+  @Test public void shouldStartQueuedObservableWhenRunningOneIsCancelled() {
+    ObservableGroup group = observableManager.newGroup();
+    group.setMaxInFlight(1);
+    PublishSubject<String> observable1 = PublishSubject.create();
+    PublishSubject<String> observable2 = PublishSubject.create();
+    TestObserver<String> observer2 = new TestObserver<>();
+    observable1.compose(group.transform(fooObserver)).subscribe(fooObserver);
+    observable2.compose(group.transform(observer2)).subscribe(observer2);
+
+    group.cancelAllObservablesForObserver(fooObserver);
+
+    assertThat(observable1.hasObservers()).isFalse();
+    assertThat(observable2.hasObservers()).isTrue();
+  }
+
+  @Test public void shouldNeverStartCancelledQueuedObservable() {
+    ObservableGroup group = observableManager.newGroup();
+    group.setMaxInFlight(1);
+    PublishSubject<String> observable1 = PublishSubject.create();
+    PublishSubject<String> observable2 = PublishSubject.create();
+    TestObserver<String> observer2 = new TestObserver<>();
+    observable1.compose(group.transform(fooObserver)).subscribe(fooObserver);
+    observable2.compose(group.transform(observer2)).subscribe(observer2);
+
+    group.cancelAllObservablesForObserver(observer2);
+    assertThat(group.pendingCount()).isEqualTo(0);
+    observable1.onComplete();
+
+    assertThat(observable2.hasObservers()).isFalse();
+  }
+
+  @Test public void shouldStartQueuedObservablesWhenMaxInFlightRaised() {
+    ObservableGroup group = observableManager.newGroup();
+    group.setMaxInFlight(1);
+    PublishSubject<String> observable1 = PublishSubject.create();
+    PublishSubject<String> observable2 = PublishSubject.create();
+    TestObserver<String> observer2 = new TestObserver<>();
+    observable1.compose(group.transform(fooObserver)).subscribe(fooObserver);
+    observable2.compose(group.transform(observer2)).subscribe(observer2);
+
+    group.setMaxInFlight(2);
+
+    assertThat(group.maxInFlight()).isEqualTo(2);
+    assertThat(observable2.hasObservers()).isTrue();
+  }
+
+  @Test public void shouldDeliverQueuedObservableAfterUnlock() {
+    ObservableGroup group = observableManager.newGroup();
+    group.setMaxInFlight(1);
+    TestObserver<String> observer2 = new TestObserver<>();
+    Observable.just("Roberto").compose(group.transform(fooObserver)).subscribe(fooObserver);
+    group.lock();
+    Observable.just("Gomez").compose(group.transform(observer2)).subscribe(observer2);
+    observer2.assertNoValues();
+
+    group.unlock();
+
+    fooObserver.assertionTarget.assertValue("Roberto");
+    observer2.assertValue("Gomez");
+    observer2.assertComplete();
+  }
+
+  @Test public void shouldUnlockObservablesInPriorityOrder() {
+    ObservableGroup group = observableManager.newGroup();
+    TestObserver<String> deliveries = new TestObserver<>();
+    group.lock();
+    addWithPriority(group, "low", -1, deliveries);
+    addWithPriority(group, "default1", ObservableGroup.DEFAULT_PRIORITY, deliveries);
+    addWithPriority(group, "high", 10, deliveries);
+    addWithPriority(group, "default2", ObservableGroup.DEFAULT_PRIORITY, deliveries);
+    addWithPriority(group, "medium", 5, deliveries);
+
+    group.unlock();
+
+    deliveries.assertValues("high", "medium", "default1", "default2", "low");
+  }
+
+  private static void addWithPriority(ObservableGroup group, String value, int priority,
+      final TestObserver<String> deliveries) {
+    TestObserver<String> observer = new TestObserver<>();
+    Observable.just(value).compose(group.transform(observer, value, priority))
+        .doOnNext(new Consumer<String>() {
+          @Override public void accept(String value) {
+            deliveries.onNext(value);
+          }
+        })
+        .subscribe(observer);
+  }
+
+  @Test public void shouldStartQueuedObservablesInPriorityOrder() {
+    ObservableGroup group = observableManager.newGroup();
+    group.setMaxInFlight(1);
+    PublishSubject<String> running = PublishSubject.create();
+    PublishSubject<String> low = PublishSubject.create();
+    PublishSubject<String> high = PublishSubject.create();
+    running.compose(group.transform(fooObserver, "running")).subscribe(fooObserver);
+    low.compose(group.transform(fooObserver, "low")).subscribe(fooObserver);
+    high.compose(group.transform(fooObserver, "high", 1)).subscribe(fooObserver);
+
+    running.onComplete();
+
+    assertThat(high.hasObservers()).isTrue();
+    assertThat(low.hasObservers()).isFalse();
+
+    high.onComplete();
+
+    assertThat(low.hasObservers()).isTrue();
+  }
+
+  @Test public void shouldShedRunningObservablesAfterMaxLockedDuration() {
+    ObservableGroup group = observableManager.newGroup();
+    TestScheduler scheduler = new TestScheduler();
+    final List<ObservableSnapshot> shed = new ArrayList<>();
+    group.setMaxLockedDuration(1, TimeUnit.MINUTES, scheduler, new ShedListener() {
+      @Override public void onShed(long groupId, List<ObservableSnapshot> observables) {
+        shed.addAll(observables);
+      }
+    });
+    PublishSubject<String> running = PublishSubject.create();
+    TestObserver<String> completedObserver = new TestObserver<>();
+    running.compose(group.transform(fooObserver, "running")).subscribe(fooObserver);
+    group.lock();
+    Observable.just("Roberto").compose(group.transform(completedObserver, "completed"))
+        .subscribe(completedObserver);
+    running.onNext("Gomez");
+
+    scheduler.advanceTimeBy(59, TimeUnit.SECONDS);
+    assertThat(running.hasObservers()).isTrue();
+    scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+    assertThat(running.hasObservers()).isFalse();
+    assertThat(group.hasObservables(fooObserver)).isFalse();
+    assertThat(shed).hasSize(1);
+    assertThat(shed.get(0).observableTag()).isEqualTo("running");
+    assertThat(shed.get(0).bufferedCount()).isEqualTo(1);
+
+    group.unlock();
+    completedObserver.assertValue("Roberto");
+    fooObserver.assertionTarget.assertNoValues();
+  }
+
+  @Test public void shouldNotShedObservablesWhenUnlockedInTime() {
+    ObservableGroup group = observableManager.newGroup();
+    TestScheduler scheduler = new TestScheduler();
+    group.setMaxLockedDuration(1, TimeUnit.MINUTES, scheduler, null);
+    PublishSubject<String> running = PublishSubject.create();
+    running.compose(group.transform(fooObserver)).subscribe(fooObserver);
+
+    group.lock();
+    scheduler.advanceTimeBy(30, TimeUnit.SECONDS);
+    group.unlock();
+    group.lock();
+    scheduler.advanceTimeBy(59, TimeUnit.SECONDS);
+
+    assertThat(running.hasObservers()).isTrue();
+    scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+    assertThat(running.hasObservers()).isFalse();
+  }
+
+  @Test public void shouldMeasureMaxLockedDurationFromNowIfLocked() {
+    ObservableGroup group = observableManager.newGroup();
+    TestScheduler scheduler = new TestScheduler();
+    PublishSubject<String> running = PublishSubject.create();
+    running.compose(group.transform(fooObserver)).subscribe(fooObserver);
+    group.lock();
+    scheduler.advanceTimeBy(1, TimeUnit.HOURS);
+
+    group.setMaxLockedDuration(1, TimeUnit.MINUTES, scheduler, null);
+    assertThat(running.hasObservers()).isTrue();
+    scheduler.advanceTimeBy(1, TimeUnit.MINUTES);
+    assertThat(running.hasObservers()).isFalse();
+  }
+
+  @Test public void shouldDisableMaxLockedDuration() {
+    ObservableGroup group = observableManager.newGroup();
+    TestScheduler scheduler = new TestScheduler();
+    group.setMaxLockedDuration(1, TimeUnit.MINUTES, scheduler, null);
+    PublishSubject<String> running = PublishSubject.create();
+    running.compose(group.transform(fooObserver)).subscribe(fooObserver);
+    group.lock();
+
+    group.setMaxLockedDuration(0, TimeUnit.MINUTES, scheduler, null);
+    scheduler.advanceTimeBy(1, TimeUnit.HOURS);
+
+    assertThat(running.hasObservers()).isTrue();
+  }
+
+  @Test public void shouldDeliverOnDeliverySchedulerWithOneTaskPerBurst() {
+    ObservableGroup group = observableManager.newGroup();
+    CountingScheduler scheduler = new CountingScheduler();
+    group.setDeliveryScheduler(scheduler);
+    PublishSubject<String> observable1 = PublishSubject.create();
+    PublishSubject<String> observable2 = PublishSubject.create();
+    TestObserver<String> observer1 = new TestObserver<>();
+    TestObserver<String> observer2 = new TestObserver<>();
+    observable1.compose(group.transform(observer1)).subscribe(observer1);
+    observable2.compose(group.transform(observer2)).subscribe(observer2);
+
+    observable1.onNext("Roberto");
+    observable2.onNext("Gomez");
+    observable1.onNext("Bolanos");
+    observable1.onComplete();
+    observer1.assertNoValues();
+    observer2.assertNoValues();
+
+    scheduler.delegate.triggerActions();
+
+    observer1.assertValues("Roberto", "Bolanos");
+    observer1.assertComplete();
+    observer2.assertValue("Gomez");
+    assertThat(scheduler.scheduledCount).isEqualTo(1);
+
+    observable2.onNext("Chespirito");
+    scheduler.delegate.triggerActions();
+    observer2.assertValues("Gomez", "Chespirito");
+    assertThat(scheduler.scheduledCount).isEqualTo(2);
+  }
+
+  @Test public void shouldNotDeliverQueuedEventsAfterLock() {
+    ObservableGroup group = observableManager.newGroup();
+    CountingScheduler scheduler = new CountingScheduler();
+    group.setDeliveryScheduler(scheduler);
+    PublishSubject<String> sourceObservable = PublishSubject.create();
+    TestObserver<String> testObserver = new TestObserver<>();
+    sourceObservable.compose(group.transform(testObserver)).subscribe(testObserver);
+
+    sourceObservable.onNext("Roberto");
+    group.lock();
+    scheduler.delegate.triggerActions();
+    testObserver.assertNoValues();
+
+    group.unlock();
+    scheduler.delegate.triggerActions();
+    testObserver.assertValue("Roberto");
+  }
+
+  @Test public void shouldKeepObservableWhenQueuedTerminalEventDroppedByLock() {
+    ObservableGroup group = observableManager.newGroup();
+    CountingScheduler scheduler = new CountingScheduler();
+    group.setDeliveryScheduler(scheduler);
+    PublishSubject<String> sourceObservable = PublishSubject.create();
+    TestObserver<String> testObserver = new TestObserver<>();
+    sourceObservable.compose(group.transform(testObserver)).subscribe(testObserver);
+
+    sourceObservable.onNext("Roberto");
+    sourceObservable.onComplete();
+    group.lock();
+    scheduler.delegate.triggerActions();
+    testObserver.assertNoValues();
+    testObserver.assertNotComplete();
+    assertThat(group.hasObservables(testObserver)).isTrue();
+
+    group.unlock();
+    scheduler.delegate.triggerActions();
+    testObserver.assertValue("Roberto");
+    testObserver.assertComplete();
+    assertThat(group.hasObservables(testObserver)).isFalse();
+  }
+
+  @Test public void shouldDeliverQueuedItemThenTerminalEventEmittedWhileLocked() {
+    ObservableGroup group = observableManager.newGroup();
+    CountingScheduler scheduler = new CountingScheduler();
+    group.setDeliveryScheduler(scheduler);
+    PublishSubject<String> sourceObservable = PublishSubject.create();
+    TestObserver<String> testObserver = new TestObserver<>();
+    sourceObservable.compose(group.transform(testObserver)).subscribe(testObserver);
+
+    sourceObservable.onNext("Roberto");
+    group.lock();
+    sourceObservable.onNext("Gomez");
+    sourceObservable.onComplete();
+    scheduler.delegate.triggerActions();
+    testObserver.assertNoValues();
+    assertThat(group.hasObservables(testObserver)).isTrue();
+
+    group.unlock();
+    scheduler.delegate.triggerActions();
+    testObserver.assertValues("Roberto", "Gomez");
+    testObserver.assertComplete();
+    assertThat(group.hasObservables(testObserver)).isFalse();
+  }
+
+  @Test public void shouldDeliverDirectlyAfterDeliverySchedulerRemoved() {
+    ObservableGroup group = observableManager.newGroup();
+    CountingScheduler scheduler = new CountingScheduler();
+    group.setDeliveryScheduler(scheduler);
+    PublishSubject<String> sourceObservable = PublishSubject.create();
+    TestObserver<String> testObserver = new TestObserver<>();
+    sourceObservable.compose(group.transform(testObserver)).subscribe(testObserver);
+    sourceObservable.onNext("Roberto");
+
+    group.setDeliveryScheduler(null);
+    scheduler.delegate.triggerActions();
+    sourceObservable.onNext("Gomez");
+
+    testObserver.assertValues("Roberto", "Gomez");
+  }
+
+  /** Counts the tasks scheduled on a {@link TestScheduler}. */
+  private static class CountingScheduler extends Scheduler {
+    final TestScheduler delegate = new TestScheduler();
+    int scheduledCount;
+
+    @Override public Worker createWorker() {
+      final Worker worker = delegate.createWorker();
+      return new Worker() {
+        @Override public Disposable schedule(@NonNull Runnable run, long delay,
+            @NonNull TimeUnit unit) {
+          scheduledCount++;
+          return worker.schedule(run, delay, unit);
+        }
+
+        @Override public void dispose() {
+          worker.dispose();
+        }
+
+        @Override public boolean isDisposed() {
+          return worker.isDisposed();
+        }
+      };
+    }
+  }
+
   @Test public void testCancelAndReAddSubscription() {
     ObservableGroup group = observableManager.newGroup();
     PublishSubject<String> sourceObservable = PublishSubject.create();
@@ -579,4 +1021,217 @@ public class ObservableGroupTest {
     testObserver.assertionTarget.assertValue("Chespirito");
   }
 
+  @Test public void testResubscribeAllByTagId() {
+    int tagId = TagRegistry.register(new String[] {"ObservableGroupTest_byId"},
+        new int[] {"ObservableGroupTest_byId".hashCode()})[0];
+    ObservableGroup group = observableManager.newGroup();
+    TestAutoResubscribingObserver testObserver =
+        new TestAutoResubscribingObserver("ObservableGroupTest_byId");
+    PublishSubject<String> sourceObservable = PublishSubject.create();
+
+    sourceObservable.compose(group.transform(testObserver)).subscribe(testObserver);
+    testObserver.dispose();
+    sourceObservable.onNext("Chespirito");
+
+    testObserver = new TestAutoResubscribingObserver("ObservableGroupTest_byId");
+    group.resubscribeAll(testObserver, tagId);
+    testObserver.assertionTarget.assertValue("Chespirito");
+  }
+
+  @Test public void testResubscribeAllByTagIdRegisteredAfterAdd() {
+    ObservableGroup group = observableManager.newGroup();
+    TestAutoResubscribingObserver testObserver =
+        new TestAutoResubscribingObserver("ObservableGroupTest_lateId");
+    PublishSubject<String> sourceObservable = PublishSubject.create();
+
+    sourceObservable.compose(group.transform(testObserver)).subscribe(testObserver);
+    testObserver.dispose();
+    sourceObservable.onNext("Chespirito");
+
+    int tagId = TagRegistry.register(new String[] {"ObservableGroupTest_lateId"},
+        new int[] {"ObservableGroupTest_lateId".hashCode()})[0];
+    testObserver = new TestAutoResubscribingObserver("ObservableGroupTest_lateId");
+    group.resubscribeAll(testObserver, tagId);
+    testObserver.assertionTarget.assertValue("Chespirito");
+  }
+
+  @Test public void testHasObservablesByTagId() {
+    int tagId = TagRegistry.register(new String[] {"ObservableGroupTest_hasById"},
+        new int[] {"ObservableGroupTest_hasById".hashCode()})[0];
+    ObservableGroup group = observableManager.newGroup();
+    TestAutoResubscribingObserver testObserver =
+        new TestAutoResubscribingObserver("ObservableGroupTest_hasById");
+    PublishSubject<String> sourceObservable = PublishSubject.create();
+    assertThat(group.hasObservables(tagId)).isFalse();
+
+    sourceObservable.compose(group.transform(testObserver)).subscribe(testObserver);
+    assertThat(group.hasObservables(tagId)).isTrue();
+
+    sourceObservable.onComplete();
+    assertThat(group.hasObservables(tagId)).isFalse();
+  }
+
+  @Test public void testResubscribeAllWithoutObservablesDoesNothing() {
+    ObservableGroup group = observableManager.newGroup();
+
+    group.resubscribeAll(fooObserver);
+
+    fooObserver.assertionTarget.assertNotSubscribed();
+    assertThat(group.hasObservables(fooObserver)).isFalse();
+  }
+
+  @Test public void shouldDeliverSingleAfterUnlock() {
+    ObservableGroup group = observableManager.newGroup();
+    PublishSubject<String> sourceObservable = PublishSubject.create();
+    TestObserver<String> testObserver = new TestObserver<>();
+
+    group.lock();
+    sourceObservable.singleOrError()
+        .compose(group.transformSingle(testObserver, "single"))
+        .subscribe(testObserver);
+    sourceObservable.onNext("Roberto");
+    sourceObservable.onComplete();
+    testObserver.assertNoValues();
+
+    group.unlock();
+    testObserver.assertValue("Roberto");
+    testObserver.assertComplete();
+    assertThat(group.hasObservables(testObserver)).isFalse();
+  }
+
+  @Test public void shouldDeliverEmptyMaybe() {
+    ObservableGroup group = observableManager.newGroup();
+    TestObserver<String> testObserver = new TestObserver<>();
+
+    Maybe.<String>empty().compose(group.transformMaybe(testObserver)).subscribe(testObserver);
+
+    testObserver.assertNoValues();
+    testObserver.assertComplete();
+  }
+
+  @Test public void shouldDeliverFlowable() {
+    ObservableGroup group = observableManager.newGroup();
+    TestSubscriber<String> testSubscriber = new TestSubscriber<>();
+
+    Flowable.just("Roberto", "Gomez", "Bolanos")
+        .compose(group.transformFlowable(testSubscriber))
+        .subscribe(testSubscriber);
+
+    testSubscriber.assertValues("Roberto", "Gomez", "Bolanos");
+    testSubscriber.assertComplete();
+  }
+
+  @Test public void shouldResubscribeTaggedSingleObserver() {
+    ObservableGroup group = observableManager.newGroup();
+    PublishSubject<String> sourceObservable = PublishSubject.create();
+    TestObserver<String> testObserver = new TestObserver<>();
+    TaggedSingleObserver<String> taggedObserver = taggedSingleObserver("taggedSingle", testObserver);
+
+    sourceObservable.singleOrError()
+        .compose(group.transformSingle(taggedObserver))
+        .subscribe(taggedObserver);
+    group.dispose();
+    sourceObservable.onNext("Chespirito");
+    sourceObservable.onComplete();
+    testObserver.assertNoValues();
+
+    testObserver = new TestObserver<>();
+    group.resubscribeAll(taggedSingleObserver("taggedSingle", testObserver));
+    testObserver.assertValue("Chespirito");
+  }
+
+  @Test public void shouldCancelObservablesByPrefix() {
+    ObservableGroup group = observableManager.newGroup();
+    PublishSubject<String> page1 = PublishSubject.create();
+    PublishSubject<String> page2 = PublishSubject.create();
+    PublishSubject<String> user = PublishSubject.create();
+    TestAutoResubscribingObserver page1Observer = new TestAutoResubscribingObserver("foo");
+    TestAutoResubscribingObserver page2Observer = new TestAutoResubscribingObserver("bar");
+    TestAutoResubscribingObserver userObserver = new TestAutoResubscribingObserver("foo");
+
+    page1.compose(group.transform(page1Observer, "listing_1")).subscribe(page1Observer);
+    page2.compose(group.transform(page2Observer, "listing_2")).subscribe(page2Observer);
+    user.compose(group.transform(userObserver, "user")).subscribe(userObserver);
+
+    group.cancelByPrefix("listing_");
+
+    assertThat(group.hasObservable(fooObserver, "listing_1")).isFalse();
+    assertThat(group.hasObservable(barObserver, "listing_2")).isFalse();
+    assertThat(group.hasObservable(fooObserver, "user")).isTrue();
+    assertThat(group.hasObservablesWithPrefix("listing_")).isFalse();
+    assertThat(page1.hasObservers()).isFalse();
+    assertThat(page2.hasObservers()).isFalse();
+    assertThat(user.hasObservers()).isTrue();
+  }
+
+  @Test public void shouldIndexObservablesAddedAfterPrefixLookup() {
+    ObservableGroup group = observableManager.newGroup();
+    PublishSubject<String> sourceObservable = PublishSubject.create();
+    TestAutoResubscribingObserver observer1 = new TestAutoResubscribingObserver("foo");
+    TestAutoResubscribingObserver observer2 = new TestAutoResubscribingObserver("foo");
+
+    assertThat(group.hasObservablesWithPrefix("listing_")).isFalse();
+
+    sourceObservable.compose(group.transform(observer1, "listing_1")).subscribe(observer1);
+    // Replaces the first one, which must not remove it from the index.
+    sourceObservable.compose(group.transform(observer2, "listing_1")).subscribe(observer2);
+
+    assertThat(group.hasObservablesWithPrefix("listing_")).isTrue();
+    assertThat(group.hasObservablesWithPrefix("listing_2")).isFalse();
+
+    group.cancelByPrefix("listing");
+
+    assertThat(group.hasObservable(fooObserver, "listing_1")).isFalse();
+    assertThat(sourceObservable.hasObservers()).isFalse();
+  }
+
+  @Test public void shouldNotFindTerminatedObservablesByPrefix() {
+    ObservableGroup group = observableManager.newGroup();
+    PublishSubject<String> sourceObservable = PublishSubject.create();
+    sourceObservable.compose(group.transform(fooObserver, "listing_1")).subscribe(fooObserver);
+
+    assertThat(group.hasObservablesWithPrefix("listing_")).isTrue();
+
+    sourceObservable.onComplete();
+
+    assertThat(group.hasObservablesWithPrefix("listing_")).isFalse();
+  }
+
+  @Test public void shouldDisposeObservablesByPrefix() {
+    ObservableGroup group = observableManager.newGroup();
+    PublishSubject<String> sourceObservable = PublishSubject.create();
+    sourceObservable.compose(group.transform(fooObserver, "listing_1")).subscribe(fooObserver);
+
+    group.disposeByPrefix("listing_");
+    sourceObservable.onNext("Roberto");
+
+    fooObserver.assertionTarget.assertNoValues();
+    assertThat(group.hasObservable(fooObserver, "listing_1")).isTrue();
+
+    TestAutoResubscribingObserver resubscribed = new TestAutoResubscribingObserver("foo");
+    group.observable(resubscribed, "listing_1").subscribe(resubscribed);
+
+    resubscribed.assertionTarget.assertValue("Roberto");
+  }
+
+  private static <T> TaggedSingleObserver<T> taggedSingleObserver(final String tag,
+      final SingleObserver<T> delegate) {
+    return new TaggedSingleObserver<T>() {
+      @Override public String getTag() {
+        return tag;
+      }
+
+      @Override public void onSubscribe(@NonNull Disposable d) {
+        delegate.onSubscribe(d);
+      }
+
+      @Override public void onSuccess(@NonNull T t) {
+        delegate.onSuccess(t);
+      }
+
+      @Override public void onError(@NonNull Throwable e) {
+        delegate.onError(e);
+      }
+    };
+  }
 }
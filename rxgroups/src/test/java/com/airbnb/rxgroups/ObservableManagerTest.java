@@ -17,11 +17,31 @@ package com.airbnb.rxgroups;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Consumer;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.subjects.PublishSubject;
+
 import static junit.framework.TestCase.fail;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class ObservableManagerTest {
   private final ObservableManager observableManager = new ObservableManager();
+  private int subscriptionCount;
+  private final Consumer<Disposable> subscriptionCounter = new Consumer<Disposable>() {
+    @Override public void accept(Disposable disposable) {
+      subscriptionCount++;
+    }
+  };
 
   @Test public void testNewGroup() {
     ObservableGroup group = observableManager.newGroup();
@@ -82,4 +102,329 @@ public class ObservableManagerTest {
     } catch (IllegalArgumentException ignored) {
     }
   }
+
+  @Test public void testSnapshot() {
+    ObservableGroup group = observableManager.newGroup();
+    TestAutoResubscribingObserver observer = new TestAutoResubscribingObserver("foo");
+    PublishSubject<String> sourceObservable = PublishSubject.create();
+    sourceObservable.compose(group.transform(observer, "bar")).subscribe(observer);
+    group.lock();
+    sourceObservable.onNext("Roberto");
+    sourceObservable.onNext("Gomez");
+    sourceObservable.onComplete();
+
+    List<GroupSnapshot> snapshot = observableManager.snapshot();
+
+    assertThat(snapshot).hasSize(1);
+    GroupSnapshot groupSnapshot = snapshot.get(0);
+    assertThat(groupSnapshot.groupId()).isEqualTo(group.id());
+    assertThat(groupSnapshot.isLocked()).isTrue();
+    assertThat(groupSnapshot.isDestroyed()).isFalse();
+    assertThat(groupSnapshot.observables()).hasSize(1);
+    ObservableSnapshot observableSnapshot = groupSnapshot.observables().get(0);
+    assertThat(observableSnapshot.observerTag()).isEqualTo("foo");
+    assertThat(observableSnapshot.observableTag()).isEqualTo("bar");
+    assertThat(observableSnapshot.isLocked()).isTrue();
+    assertThat(observableSnapshot.isDisposed()).isTrue();
+    assertThat(observableSnapshot.bufferedCount()).isEqualTo(2);
+    assertThat(observableSnapshot.terminalState())
+        .isEqualTo(ObservableSnapshot.TerminalState.COMPLETED);
+    assertThat(observableSnapshot.age(TimeUnit.NANOSECONDS)).isGreaterThanOrEqualTo(0);
+
+    // The snapshot does not change with the group.
+    group.unlock();
+    assertThat(groupSnapshot.observables()).hasSize(1);
+    assertThat(observableManager.snapshot().get(0).observables()).isEmpty();
+  }
+
+  @Test public void testSharedRequestSubscribesSourceOnce() {
+    ObservableGroup group1 = observableManager.newGroup();
+    ObservableGroup group2 = observableManager.newGroup();
+    PublishSubject<String> sourceObservable = PublishSubject.create();
+    Observable<String> request = sourceObservable.doOnSubscribe(subscriptionCounter);
+    TestAutoResubscribingObserver observer1 = new TestAutoResubscribingObserver("foo");
+    TestAutoResubscribingObserver observer2 = new TestAutoResubscribingObserver("bar");
+
+    observableManager.shared("user/1", request).compose(group1.transform(observer1))
+        .subscribe(observer1);
+    sourceObservable.onNext("Roberto");
+    observableManager.shared("user/1", request).compose(group2.transform(observer2))
+        .subscribe(observer2);
+    sourceObservable.onNext("Gomez");
+    sourceObservable.onComplete();
+
+    assertThat(subscriptionCount).isEqualTo(1);
+    observer1.assertionTarget.assertValues("Roberto", "Gomez");
+    observer1.assertionTarget.assertComplete();
+    observer2.assertionTarget.assertValues("Roberto", "Gomez");
+    observer2.assertionTarget.assertComplete();
+    assertThat(observableManager.sharedSubscriberCount("user/1")).isEqualTo(0);
+  }
+
+  @Test public void testSharedRequestReleasedByLastGroup() {
+    ObservableGroup group1 = observableManager.newGroup();
+    ObservableGroup group2 = observableManager.newGroup();
+    PublishSubject<String> sourceObservable = PublishSubject.create();
+    TestAutoResubscribingObserver observer1 = new TestAutoResubscribingObserver("foo");
+    TestAutoResubscribingObserver observer2 = new TestAutoResubscribingObserver("bar");
+
+    observableManager.shared("user/1", sourceObservable).compose(group1.transform(observer1))
+        .subscribe(observer1);
+    observableManager.shared("user/1", sourceObservable).compose(group2.transform(observer2))
+        .subscribe(observer2);
+    assertThat(observableManager.sharedSubscriberCount("user/1")).isEqualTo(2);
+
+    observableManager.destroy(group1);
+    assertThat(observableManager.sharedSubscriberCount("user/1")).isEqualTo(1);
+    assertThat(sourceObservable.hasObservers()).isTrue();
+
+    group2.lock();
+    sourceObservable.onNext("Roberto");
+    assertThat(sourceObservable.hasObservers()).isTrue();
+
+    observableManager.destroy(group2);
+    assertThat(observableManager.sharedSubscriberCount("user/1")).isEqualTo(0);
+    assertThat(sourceObservable.hasObservers()).isFalse();
+  }
+
+  @Test public void testSharedRequestRestartsAfterTermination() {
+    ObservableGroup group = observableManager.newGroup();
+    Observable<String> request = Observable.just("Roberto").doOnSubscribe(subscriptionCounter);
+    TestAutoResubscribingObserver observer1 = new TestAutoResubscribingObserver("foo");
+    TestAutoResubscribingObserver observer2 = new TestAutoResubscribingObserver("bar");
+
+    observableManager.shared("user/1", request).compose(group.transform(observer1))
+        .subscribe(observer1);
+    observableManager.shared("user/1", request).compose(group.transform(observer2))
+        .subscribe(observer2);
+
+    assertThat(subscriptionCount).isEqualTo(2);
+    observer1.assertionTarget.assertValue("Roberto");
+    observer2.assertionTarget.assertValue("Roberto");
+  }
+
+  @Test public void testSharedRequestsWithDifferentKeys() {
+    ObservableGroup group = observableManager.newGroup();
+    PublishSubject<String> sourceObservable = PublishSubject.create();
+    Observable<String> request = sourceObservable.doOnSubscribe(subscriptionCounter);
+    TestAutoResubscribingObserver observer1 = new TestAutoResubscribingObserver("foo");
+    TestAutoResubscribingObserver observer2 = new TestAutoResubscribingObserver("bar");
+
+    observableManager.shared("user/1", request).compose(group.transform(observer1))
+        .subscribe(observer1);
+    observableManager.shared("user/2", request).compose(group.transform(observer2))
+        .subscribe(observer2);
+
+    assertThat(subscriptionCount).isEqualTo(2);
+  }
+
+  @Test public void testSharedRequestServedFromResultCache() {
+    ResultCache resultCache = new ResultCache(10, 1, TimeUnit.MINUTES);
+    observableManager.setResultCache(resultCache);
+    ObservableGroup group = observableManager.newGroup();
+    Observable<String> request =
+        Observable.just("Roberto", "Gomez").doOnSubscribe(subscriptionCounter);
+    TestAutoResubscribingObserver observer1 = new TestAutoResubscribingObserver("foo");
+    TestAutoResubscribingObserver observer2 = new TestAutoResubscribingObserver("bar");
+
+    observableManager.shared("user/1", request).compose(group.transform(observer1))
+        .subscribe(observer1);
+    observableManager.shared("user/1", request).compose(group.transform(observer2))
+        .subscribe(observer2);
+
+    assertThat(subscriptionCount).isEqualTo(1);
+    observer2.assertionTarget.assertValues("Roberto", "Gomez");
+    observer2.assertionTarget.assertComplete();
+    assertThat(resultCache.hitCount()).isEqualTo(1);
+    assertThat(resultCache.missCount()).isEqualTo(1);
+  }
+
+  @Test public void testFailedSharedRequestNotCached() {
+    ResultCache resultCache = new ResultCache(10, 1, TimeUnit.MINUTES);
+    observableManager.setResultCache(resultCache);
+    ObservableGroup group = observableManager.newGroup();
+    Observable<String> request = Observable.<String>error(new RuntimeException())
+        .doOnSubscribe(subscriptionCounter);
+    TestAutoResubscribingObserver observer1 = new TestAutoResubscribingObserver("foo");
+    TestAutoResubscribingObserver observer2 = new TestAutoResubscribingObserver("bar");
+
+    observableManager.shared("user/1", request).compose(group.transform(observer1))
+        .subscribe(observer1);
+    observableManager.shared("user/1", request).compose(group.transform(observer2))
+        .subscribe(observer2);
+
+    assertThat(subscriptionCount).isEqualTo(2);
+    assertThat(resultCache.size()).isEqualTo(0);
+  }
+
+  @Test public void testChildIsLockedWhileParentIsLocked() {
+    ObservableGroup parent = observableManager.newGroup();
+    ObservableGroup child = observableManager.newGroup(parent);
+    PublishSubject<String> sourceObservable = PublishSubject.create();
+    TestAutoResubscribingObserver observer = new TestAutoResubscribingObserver("foo");
+    sourceObservable.compose(child.transform(observer)).subscribe(observer);
+
+    parent.lock();
+    sourceObservable.onNext("Roberto");
+
+    assertThat(child.isLocked()).isTrue();
+    observer.assertionTarget.assertNoValues();
+
+    parent.unlock();
+
+    assertThat(child.isLocked()).isFalse();
+    observer.assertionTarget.assertValue("Roberto");
+  }
+
+  @Test public void testNewChildOfLockedParentIsLocked() {
+    ObservableGroup parent = observableManager.newGroup();
+    parent.lock();
+    ObservableGroup child = observableManager.newGroup(parent);
+    TestAutoResubscribingObserver observer = new TestAutoResubscribingObserver("foo");
+
+    Observable.just("Roberto").compose(child.transform(observer)).subscribe(observer);
+
+    assertThat(child.parent()).isSameAs(parent);
+    assertThat(parent.children()).containsExactly(child);
+    observer.assertionTarget.assertNoValues();
+
+    parent.unlock();
+
+    observer.assertionTarget.assertValue("Roberto");
+  }
+
+  @Test public void testLockedChildStaysLockedWhenParentIsUnlocked() {
+    ObservableGroup parent = observableManager.newGroup();
+    ObservableGroup child = observableManager.newGroup(parent);
+    ObservableGroup grandchild = observableManager.newGroup(child);
+    TestAutoResubscribingObserver observer = new TestAutoResubscribingObserver("foo");
+    child.lock();
+    Observable.just("Roberto").compose(grandchild.transform(observer)).subscribe(observer);
+
+    parent.lock();
+    parent.unlock();
+
+    assertThat(grandchild.isLocked()).isTrue();
+    observer.assertionTarget.assertNoValues();
+
+    child.unlock();
+
+    observer.assertionTarget.assertValue("Roberto");
+  }
+
+  @Test public void testUnlockedChildStaysLockedWhileParentIsLocked() {
+    ObservableGroup parent = observableManager.newGroup();
+    ObservableGroup child = observableManager.newGroup(parent);
+    TestAutoResubscribingObserver observer = new TestAutoResubscribingObserver("foo");
+    parent.lock();
+    child.lock();
+    Observable.just("Roberto").compose(child.transform(observer)).subscribe(observer);
+
+    child.unlock();
+
+    assertThat(child.isLocked()).isTrue();
+    observer.assertionTarget.assertNoValues();
+  }
+
+  @Test public void testDestroyCascadesToDescendants() {
+    ObservableGroup parent = observableManager.newGroup();
+    ObservableGroup child = observableManager.newGroup(parent);
+    ObservableGroup grandchild = observableManager.newGroup(child);
+    PublishSubject<String> sourceObservable = PublishSubject.create();
+    TestAutoResubscribingObserver observer = new TestAutoResubscribingObserver("foo");
+    sourceObservable.compose(grandchild.transform(observer)).subscribe(observer);
+
+    observableManager.destroy(parent);
+
+    assertThat(child.isDestroyed()).isTrue();
+    assertThat(grandchild.isDestroyed()).isTrue();
+    assertThat(sourceObservable.hasObservers()).isFalse();
+    assertThat(observableManager.snapshot()).isEmpty();
+  }
+
+  @Test public void testDestroyChildDetachesItFromParent() {
+    ObservableGroup parent = observableManager.newGroup();
+    ObservableGroup child = observableManager.newGroup(parent);
+
+    observableManager.destroy(child);
+
+    assertThat(parent.children()).isEmpty();
+    assertThat(parent.isDestroyed()).isFalse();
+  }
+
+  @Test public void testNewGroupThrowsIfParentIsDestroyed() {
+    ObservableGroup parent = observableManager.newGroup();
+    observableManager.destroy(parent);
+
+    try {
+      observableManager.newGroup(parent);
+      fail();
+    } catch (IllegalArgumentException ignored) {
+    }
+  }
+
+  @Test public void testShardedManagerAllocatesUniqueIdsAcrossThreads() throws Exception {
+    final ObservableManager shardedManager = ObservableManager.builder().shardCount(4).build();
+    final Set<Long> ids = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      Thread thread = new Thread(new Runnable() {
+        @Override public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+          for (int j = 0; j < 500; j++) {
+            ids.add(shardedManager.newGroup().id());
+          }
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(ids).hasSize(4000);
+    for (long id : ids) {
+      ObservableGroup group = shardedManager.getGroup(id);
+      assertThat(group.id()).isEqualTo(id);
+      shardedManager.destroy(group);
+    }
+    assertThat(shardedManager.snapshot()).isEmpty();
+  }
+
+  @Test public void testShardedManagerGetGroupThrowsIfNonExistent() {
+    ObservableManager shardedManager = ObservableManager.builder().shardCount(4).build();
+    try {
+      shardedManager.getGroup(-1);
+      fail();
+    } catch (IllegalArgumentException ignored) {
+    }
+  }
+
+  @Test public void testBuilderAppliesAllOptions() {
+    ObservableManager builtManager = ObservableManager.builder()
+        .metrics(GroupMetricsListener.NONE)
+        .trackDeliveryLatency(true)
+        .shardCount(2)
+        .build();
+    ObservableGroup group = builtManager.newGroup();
+    TestObserver<String> observer = new TestObserver<>();
+
+    Observable.just("Avanti!").compose(group.transform(observer, "built")).subscribe(observer);
+
+    observer.assertValue("Avanti!");
+    assertThat(builtManager.deliveryLatency("built").count()).isEqualTo(1);
+    assertThat(builtManager.getGroup(group.id())).isSameAs(group);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testShardCountMustBePositive() {
+    ObservableManager.builder().shardCount(0);
+  }
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResultCacheTest {
+  private long nowNanos;
+  private final ResultCache.Ticker ticker = new ResultCache.Ticker() {
+    @Override public long nanoTime() {
+      return nowNanos;
+    }
+  };
+  private final ResultCache cache = new ResultCache(2, 10, TimeUnit.SECONDS, ticker);
+
+  @Test public void testHitAndMiss() {
+    assertThat(cache.get("user/1")).isNull();
+    cache.put("user/1", Arrays.asList("Roberto", "Gomez"));
+
+    assertThat(cache.get("user/1")).isEqualTo(Arrays.asList("Roberto", "Gomez"));
+    assertThat(cache.hitCount()).isEqualTo(1);
+    assertThat(cache.missCount()).isEqualTo(1);
+  }
+
+  @Test public void testExpiresAfterTtl() {
+    cache.put("user/1", Collections.singletonList("Roberto"));
+
+    nowNanos += TimeUnit.SECONDS.toNanos(10) - 1;
+    assertThat(cache.get("user/1")).isEqualTo(Arrays.asList("Roberto"));
+    nowNanos += 1;
+    assertThat(cache.get("user/1")).isNull();
+    assertThat(cache.size()).isEqualTo(0);
+    assertThat(cache.missCount()).isEqualTo(1);
+  }
+
+  @Test public void testRemoveExpired() {
+    cache.put("user/1", Collections.singletonList("Roberto"));
+    nowNanos += TimeUnit.SECONDS.toNanos(5);
+    cache.put("user/2", Collections.singletonList("Gomez"));
+    nowNanos += TimeUnit.SECONDS.toNanos(5);
+
+    cache.removeExpired();
+
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(cache.get("user/2")).isEqualTo(Arrays.asList("Gomez"));
+  }
+
+  @Test public void testEvictsLeastRecentlyUsed() {
+    cache.put("user/1", Collections.singletonList("Roberto"));
+    cache.put("user/2", Collections.singletonList("Gomez"));
+    cache.get("user/1");
+    cache.put("user/3", Collections.singletonList("Bolanos"));
+
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.get("user/2")).isNull();
+    assertThat(cache.get("user/1")).isEqualTo(Arrays.asList("Roberto"));
+    assertThat(cache.get("user/3")).isEqualTo(Arrays.asList("Bolanos"));
+  }
+
+  @Test public void testInvalidate() {
+    cache.put("user/1", Collections.singletonList("Roberto"));
+    cache.put("user/2", Collections.singletonList("Gomez"));
+
+    cache.invalidate("user/1");
+    assertThat(cache.get("user/1")).isNull();
+    assertThat(cache.get("user/2")).isEqualTo(Arrays.asList("Gomez"));
+
+    cache.clear();
+    assertThat(cache.size()).isEqualTo(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRejectsNonPositiveMaxSize() {
+    new ResultCache(0, 1, TimeUnit.SECONDS);
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.PublishSubject;
+
+import static junit.framework.TestCase.fail;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResultStoreTest {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final ResultCodec<String> STRING_CODEC = new ResultCodec<String>() {
+    @Override public byte[] encode(List<String> items) {
+      StringBuilder builder = new StringBuilder();
+      for (String item : items) {
+        builder.append(item).append('\n');
+      }
+      return builder.toString().getBytes(UTF_8);
+    }
+
+    @Override public List<String> decode(byte[] bytes) {
+      String text = new String(bytes, UTF_8);
+      return Arrays.asList(text.substring(0, text.length() - 1).split("\n"));
+    }
+  };
+
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+  private final ObservableManager observableManager = new ObservableManager();
+
+  @Test public void testRestoresCompletedResultsIntoNewGroup() throws IOException {
+    ResultStore store = new ResultStore(folder.getRoot());
+    store.register("foo", STRING_CODEC);
+    ObservableGroup group = observableManager.newGroup();
+    group.lock();
+    TestAutoResubscribingObserver observer = new TestAutoResubscribingObserver("foo");
+    Observable.just("Roberto", "Gomez").compose(group.transform(observer)).subscribe(observer);
+
+    store.save("state", group);
+
+    // As if the process was restarted.
+    ObservableGroup restoredGroup = new ObservableManager().newGroup();
+    assertThat(store.restore("state", restoredGroup)).isEqualTo(1);
+    assertThat(new File(folder.getRoot(), "state.rxresults").exists()).isFalse();
+
+    TestAutoResubscribingObserver restoredObserver = new TestAutoResubscribingObserver("foo");
+    restoredGroup.observable(restoredObserver).subscribe(restoredObserver);
+
+    restoredObserver.assertionTarget.assertValues("Roberto", "Gomez");
+    restoredObserver.assertionTarget.assertComplete();
+    assertThat(restoredGroup.hasObservables(restoredObserver)).isFalse();
+  }
+
+  @Test public void testOnlySavesCompletedResultsOfRegisteredTags() throws IOException {
+    ResultStore store = new ResultStore(folder.getRoot());
+    store.register("running", STRING_CODEC);
+    store.register("unstable", STRING_CODEC);
+    ObservableGroup group = observableManager.newGroup();
+    group.lock();
+    TestAutoResubscribingObserver observer = new TestAutoResubscribingObserver("foo");
+    PublishSubject.<String>create().compose(group.transform(observer, "running"))
+        .subscribe(observer);
+    Observable.just("Roberto").compose(group.transform(observer, "unregistered"))
+        .subscribe(observer);
+    // Its tag is based on its identity, so it would not be found after a restart.
+    TestObserver<String> unstableObserver = new TestObserver<>();
+    Observable.just("Roberto").compose(group.transform(unstableObserver, "unstable"))
+        .subscribe(unstableObserver);
+
+    store.save("state", group);
+
+    assertThat(new File(folder.getRoot(), "state.rxresults").exists()).isFalse();
+  }
+
+  @Test public void testSaveWithoutResultsDeletesPreviousResults() throws IOException {
+    ResultStore store = new ResultStore(folder.getRoot());
+    store.register("foo", STRING_CODEC);
+    ObservableGroup group = observableManager.newGroup();
+    group.lock();
+    TestAutoResubscribingObserver observer = new TestAutoResubscribingObserver("foo");
+    Observable.just("Roberto").compose(group.transform(observer)).subscribe(observer);
+    store.save("state", group);
+
+    group.unlock();
+    store.save("state", group);
+
+    assertThat(new File(folder.getRoot(), "state.rxresults").exists()).isFalse();
+    assertThat(store.restore("state", observableManager.newGroup())).isEqualTo(0);
+  }
+
+  @Test public void testSkipsResultsWhoseItemsWereEvicted() throws IOException {
+    ResultStore store = new ResultStore(folder.getRoot());
+    store.register("evicted", STRING_CODEC);
+    store.register("kept", STRING_CODEC);
+    ObservableGroup group = observableManager.newGroup();
+    group.setSoftBuffering(true);
+    group.lock();
+    TestAutoResubscribingObserver observer = new TestAutoResubscribingObserver("foo");
+    Observable.just("Roberto").compose(group.transform(observer, "evicted"))
+        .subscribe(observer);
+    group.evictSoftBuffers();
+    Observable.just("Gomez").compose(group.transform(observer, "kept")).subscribe(observer);
+
+    store.save("state", group);
+
+    ObservableGroup restoredGroup = new ObservableManager().newGroup();
+    assertThat(store.restore("state", restoredGroup)).isEqualTo(1);
+    assertThat(restoredGroup.hasObservable(observer, "evicted")).isFalse();
+    assertThat(restoredGroup.hasObservable(observer, "kept")).isTrue();
+  }
+
+  @Test public void testRestoreDropsResultsOfUnregisteredTags() throws IOException {
+    ResultStore store = new ResultStore(folder.getRoot());
+    store.register("foo", STRING_CODEC);
+    ObservableGroup group = observableManager.newGroup();
+    group.lock();
+    TestAutoResubscribingObserver observer = new TestAutoResubscribingObserver("foo");
+    Observable.just("Roberto").compose(group.transform(observer)).subscribe(observer);
+    store.save("state", group);
+
+    ResultStore newStore = new ResultStore(folder.getRoot());
+    ObservableGroup restoredGroup = observableManager.newGroup();
+
+    assertThat(newStore.restore("state", restoredGroup)).isEqualTo(0);
+    assertThat(restoredGroup.hasObservables(observer)).isFalse();
+  }
+
+  @Test public void testDeletesTempFileWhenWritingFails() throws IOException {
+    ResultStore store = new ResultStore(folder.getRoot());
+    // Fails on the second result, once the temp file was created for the first one.
+    ResultCodec<String> failingCodec = new ResultCodec<String>() {
+      private int encodedCount;
+
+      @Override public byte[] encode(List<String> items) throws IOException {
+        if (++encodedCount > 1) {
+          throw new IOException("disk full");
+        }
+        return STRING_CODEC.encode(items);
+      }
+
+      @Override public List<String> decode(byte[] bytes) {
+        throw new AssertionError();
+      }
+    };
+    store.register("foo", failingCodec);
+    store.register("bar", failingCodec);
+    ObservableGroup group = observableManager.newGroup();
+    group.lock();
+    TestAutoResubscribingObserver observer = new TestAutoResubscribingObserver("foo");
+    Observable.just("Roberto").compose(group.transform(observer, "foo")).subscribe(observer);
+    Observable.just("Gomez").compose(group.transform(observer, "bar")).subscribe(observer);
+
+    try {
+      store.save("state", group);
+      fail();
+    } catch (IOException expected) {
+    }
+
+    assertThat(folder.getRoot().list()).isEmpty();
+  }
+
+  @Test public void testRemovesTempFilesAndOldResults() throws IOException {
+    ResultStore store = new ResultStore(folder.getRoot(), Schedulers.trampoline());
+    long cutoffMillis = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1);
+    File oldResults = folder.newFile("old.rxresults");
+    assertThat(oldResults.setLastModified(cutoffMillis - 1000)).isTrue();
+    File recentResults = folder.newFile("recent.rxresults");
+    File tempFile = folder.newFile("recent.rxresults.tmp");
+    File otherFile = folder.newFile("other");
+    assertThat(otherFile.setLastModified(cutoffMillis - 1000)).isTrue();
+
+    store.removeStaleFiles();
+
+    assertThat(oldResults.exists()).isFalse();
+    assertThat(tempFile.exists()).isFalse();
+    assertThat(recentResults.exists()).isTrue();
+    assertThat(otherFile.exists()).isTrue();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testKeyMustBeAFileName() throws IOException {
+    new ResultStore(folder.getRoot()).delete("../state");
+  }
+}
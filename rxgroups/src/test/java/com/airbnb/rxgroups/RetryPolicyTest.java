@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Observable;
+import io.reactivex.functions.Predicate;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RetryPolicyTest {
+  private final TestScheduler scheduler = new TestScheduler();
+  private final ObservableManager observableManager = new ObservableManager();
+  private final AtomicInteger attempts = new AtomicInteger();
+
+  @Test public void testDelaysDoubleUpToMaxDelay() {
+    RetryPolicy policy = RetryPolicy.exponentialBackoff(10, 1, TimeUnit.SECONDS)
+        .withMaxDelay(5, TimeUnit.SECONDS);
+
+    assertThat(policy.delayNanos(1)).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+    assertThat(policy.delayNanos(2)).isEqualTo(TimeUnit.SECONDS.toNanos(2));
+    assertThat(policy.delayNanos(3)).isEqualTo(TimeUnit.SECONDS.toNanos(4));
+    assertThat(policy.delayNanos(4)).isEqualTo(TimeUnit.SECONDS.toNanos(5));
+    assertThat(policy.delayNanos(100)).isEqualTo(TimeUnit.SECONDS.toNanos(5));
+  }
+
+  @Test public void testRetriesWhileLockedAndDeliversOnlyTheResult() {
+    ObservableGroup group = observableManager.newGroup();
+    group.setRetryPolicy(RetryPolicy.exponentialBackoff(3, 1, TimeUnit.SECONDS)
+        .withScheduler(scheduler));
+    TestObserver<String> testObserver = new TestObserver<>();
+    group.lock();
+    failingRequest(2).compose(group.transform(testObserver)).subscribe(testObserver);
+
+    scheduler.advanceTimeBy(3, TimeUnit.SECONDS);
+    group.unlock();
+
+    assertThat(attempts.get()).isEqualTo(3);
+    testObserver.assertValue("Roberto");
+    testObserver.assertComplete();
+  }
+
+  @Test public void testDeliversErrorAfterMaxAttempts() {
+    ObservableGroup group = observableManager.newGroup();
+    group.setRetryPolicy(RetryPolicy.exponentialBackoff(2, 1, TimeUnit.SECONDS)
+        .withScheduler(scheduler));
+    TestObserver<String> testObserver = new TestObserver<>();
+    failingRequest(5).compose(group.transform(testObserver)).subscribe(testObserver);
+
+    scheduler.advanceTimeBy(1, TimeUnit.HOURS);
+
+    assertThat(attempts.get()).isEqualTo(2);
+    testObserver.assertError(IOException.class);
+  }
+
+  @Test public void testDoesNotRetryErrorsNotMatchingPredicate() {
+    ObservableGroup group = observableManager.newGroup();
+    group.setRetryPolicy(RetryPolicy.exponentialBackoff(3, 1, TimeUnit.SECONDS)
+        .withScheduler(scheduler)
+        .withRetryIf(new Predicate<Throwable>() {
+          @Override public boolean test(Throwable throwable) {
+            return !(throwable instanceof IOException);
+          }
+        }));
+    TestObserver<String> testObserver = new TestObserver<>();
+    failingRequest(1).compose(group.transform(testObserver)).subscribe(testObserver);
+
+    assertThat(attempts.get()).isEqualTo(1);
+    testObserver.assertError(IOException.class);
+  }
+
+  @Test public void testDeliversItemsOfFailedAttemptsAsTheyAreEmitted() {
+    ObservableGroup group = observableManager.newGroup();
+    group.setRetryPolicy(RetryPolicy.exponentialBackoff(3, 1, TimeUnit.SECONDS)
+        .withScheduler(scheduler));
+    TestObserver<String> testObserver = new TestObserver<>();
+    Observable<String> partiallyFailingRequest =
+        Observable.defer(new Callable<Observable<String>>() {
+          @Override public Observable<String> call() {
+            Observable<String> page = Observable.just("page " + attempts.incrementAndGet());
+            return attempts.get() == 1
+                ? page.concatWith(Observable.<String>error(new IOException("attempt 1")))
+                : page.concatWith(Observable.just("last page"));
+          }
+        });
+    partiallyFailingRequest.compose(group.transform(testObserver)).subscribe(testObserver);
+
+    testObserver.assertValue("page 1");
+    testObserver.assertNoErrors();
+    scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+    assertThat(attempts.get()).isEqualTo(2);
+    testObserver.assertValues("page 1", "page 2", "last page");
+    testObserver.assertComplete();
+  }
+
+  /** @return a request that fails {@code failures} times before emitting a value. */
+  private Observable<String> failingRequest(final int failures) {
+    return Observable.fromCallable(new Callable<String>() {
+      @Override public String call() throws Exception {
+        if (attempts.incrementAndGet() <= failures) {
+          throw new IOException("attempt " + attempts.get());
+        }
+        return "Roberto";
+      }
+    });
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.ObservableOnSubscribe;
+import io.reactivex.annotations.NonNull;
+import io.reactivex.functions.Action;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.subjects.PublishSubject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SoftItemBufferTest {
+  private static final Action NO_OP = new Action() {
+    @Override public void run() {
+    }
+  };
+
+  private final PublishSubject<String> sourceObservable = PublishSubject.create();
+  private final SoftItemBuffer<String> buffer = new SoftItemBuffer<>("foo");
+  private final SubscriptionProxy<String> proxy =
+      SubscriptionProxy.create(sourceObservable, NO_OP, buffer);
+
+  @Test public void testDeliversHeldItems() {
+    TestObserver<String> observer = new TestObserver<>();
+    sourceObservable.onNext("Roberto");
+    sourceObservable.onNext("Gomez");
+    sourceObservable.onComplete();
+
+    proxy.subscribe(observer);
+
+    observer.assertValues("Roberto", "Gomez");
+    observer.assertComplete();
+    assertThat(buffer.isEvicted()).isFalse();
+  }
+
+  @Test public void testDeliversErrorWhenItemWasCleared() {
+    TestObserver<String> observer = new TestObserver<>();
+    sourceObservable.onNext("Roberto");
+    buffer.evict();
+
+    assertThat(buffer.isEvicted()).isTrue();
+
+    proxy.observable().subscribe(observer);
+
+    observer.assertNoValues();
+    observer.assertError(ResultEvictedException.class);
+    assertThat(((ResultEvictedException) observer.errors().get(0)).observableTag())
+        .isEqualTo("foo");
+  }
+
+  @Test public void testResubscribeDeliversOnlyErrorWhenLaterItemWasCleared() {
+    final LastItemEvictingBuffer evictingBuffer = new LastItemEvictingBuffer();
+    final List<ManagedObservable<String>> managedObservables = new ArrayList<>();
+    TestObserver<String> observer = new TestObserver<>();
+    Observable.create(new ObservableOnSubscribe<String>() {
+      @Override public void subscribe(@NonNull ObservableEmitter<String> emitter) {
+        managedObservables.add(new ManagedObservable<>("observer", "foo", sourceObservable,
+            emitter, NO_OP, 0, GroupMetricsListener.NONE, null, null,
+            ObservableGroup.DEFAULT_PRIORITY, 0, evictingBuffer));
+      }
+    }).subscribe(observer);
+    ManagedObservable<String> managedObservable = managedObservables.get(0);
+
+    sourceObservable.onNext("Roberto");
+    sourceObservable.onNext("Gomez");
+    sourceObservable.onNext("Bolanos");
+    evictingBuffer.evict();
+    managedObservable.unlock();
+
+    observer.assertNoValues();
+    observer.assertError(ResultEvictedException.class);
+  }
+
+  @Test public void testNotEvictedOnceReleased() {
+    sourceObservable.onNext("Roberto");
+    buffer.evict();
+    proxy.cancel();
+
+    assertThat(buffer.isEvicted()).isFalse();
+  }
+
+  @Test public void testGroupNeedsRefetchOnlyWithEvictedItems() {
+    ObservableGroup group = new ObservableManager().newGroup();
+    TestAutoResubscribingObserver observer = new TestAutoResubscribingObserver("foo");
+    group.setSoftBuffering(true);
+
+    sourceObservable.compose(group.transform(observer)).subscribe(observer);
+    group.lock();
+    sourceObservable.onNext("Roberto");
+
+    assertThat(group.needsRefetch(observer, "foo")).isFalse();
+
+    group.unlock();
+
+    observer.assertionTarget.assertValue("Roberto");
+    assertThat(group.needsRefetch(observer, "bar")).isFalse();
+  }
+
+  /** Clears only the last item it holds, like the garbage collector may. */
+  private static final class LastItemEvictingBuffer implements ItemBuffer<String> {
+    private final List<String[]> items = new ArrayList<>();
+
+    @Override public Object hold(String item) {
+      String[] held = {item};
+      items.add(held);
+      return held;
+    }
+
+    @Override public String get(Object held) {
+      String item = ((String[]) held)[0];
+      if (item == null) {
+        throw new ResultEvictedException("foo");
+      }
+      return item;
+    }
+
+    @Override public void evict() {
+      items.get(items.size() - 1)[0] = null;
+    }
+
+    @Override public boolean isEvicted() {
+      for (String[] item : items) {
+        if (item[0] == null) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override public void release() {
+    }
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+
+import io.reactivex.subjects.PublishSubject;
+
+import static junit.framework.TestCase.fail;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SpillStoreTest {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final ResultCodec<String> STRING_CODEC = new ResultCodec<String>() {
+    @Override public byte[] encode(List<String> items) {
+      return items.get(0).getBytes(UTF_8);
+    }
+
+    @Override public List<String> decode(byte[] bytes) {
+      return Collections.singletonList(new String(bytes, UTF_8));
+    }
+  };
+  private static final String LARGE = "Roberto Gomez Bolanos";
+  private static final String SMALL = "Chavo";
+
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+  private final ObservableManager observableManager = new ObservableManager();
+  private final PublishSubject<String> sourceObservable = PublishSubject.create();
+  private final TestAutoResubscribingObserver observer = new TestAutoResubscribingObserver("foo");
+  private ObservableGroup group;
+  private SpillStore spillStore;
+
+  @Before public void setUp() throws IOException {
+    spillStore = new SpillStore(folder.newFile(), 32, 10);
+    spillStore.register("foo", STRING_CODEC);
+    group = observableManager.newGroup();
+    group.setSpillStore(spillStore);
+  }
+
+  @After public void tearDown() throws IOException {
+    spillStore.close();
+  }
+
+  @Test public void testSpillsLargeItemsUntilDelivered() {
+    sourceObservable.compose(group.transform(observer)).subscribe(observer);
+    group.lock();
+
+    sourceObservable.onNext(SMALL);
+    sourceObservable.onNext(LARGE);
+
+    assertThat(spillStore.spilledCount()).isEqualTo(1);
+    assertThat(spillStore.spilledBytes()).isEqualTo(LARGE.length());
+
+    group.unlock();
+    observer.assertionTarget.assertValues(SMALL, LARGE);
+
+    sourceObservable.onComplete();
+
+    observer.assertionTarget.assertComplete();
+    assertThat(spillStore.spilledCount()).isEqualTo(0);
+    assertThat(spillStore.spilledBytes()).isEqualTo(0);
+  }
+
+  @Test public void testReleasesSpilledItemsWhenCancelled() {
+    sourceObservable.compose(group.transform(observer)).subscribe(observer);
+    group.lock();
+    sourceObservable.onNext(LARGE);
+
+    group.cancelAllObservablesForObserver(observer);
+
+    assertThat(spillStore.spilledCount()).isEqualTo(0);
+  }
+
+  @Test public void testKeepsItemsInHeapWhenFull() {
+    sourceObservable.compose(group.transform(observer)).subscribe(observer);
+    group.lock();
+
+    sourceObservable.onNext(LARGE);
+    sourceObservable.onNext(LARGE + "!");
+
+    assertThat(spillStore.spilledCount()).isEqualTo(1);
+
+    group.unlock();
+
+    observer.assertionTarget.assertValues(LARGE, LARGE + "!");
+  }
+
+  @Test public void testDoesNotSpillItemsOfUnregisteredTags() {
+    sourceObservable.compose(group.transform(observer, "bar")).subscribe(observer);
+    group.lock();
+
+    sourceObservable.onNext(LARGE);
+
+    assertThat(spillStore.spilledCount()).isEqualTo(0);
+  }
+
+  @Test public void testReplaysSpilledItemsToResubscribedObserver() {
+    sourceObservable.compose(group.transform(observer)).subscribe(observer);
+    sourceObservable.onNext(LARGE);
+    group.dispose();
+
+    TestAutoResubscribingObserver resubscribed = new TestAutoResubscribingObserver("foo");
+    group.observable(resubscribed).subscribe(resubscribed);
+
+    observer.assertionTarget.assertValue(LARGE);
+    resubscribed.assertionTarget.assertValue(LARGE);
+  }
+
+  @Test public void testReadingReleasedItemFailsWithIOException() {
+    ItemBuffer<String> spiller = spillStore.spiller("foo");
+    Object held = spiller.hold(LARGE);
+    spiller.release();
+
+    try {
+      spiller.get(held);
+      fail();
+    } catch (IOException expected) {
+      assertThat(expected).hasMessage("Spilled items were already released");
+    }
+  }
+}
@@ -25,6 +25,7 @@ import io.reactivex.ObservableOnSubscribe;
 import io.reactivex.annotations.NonNull;
 import io.reactivex.disposables.Disposable;
 import io.reactivex.functions.Action;
+import io.reactivex.internal.functions.Functions;
 import io.reactivex.observers.TestObserver;
 import io.reactivex.subjects.PublishSubject;
 import io.reactivex.subjects.ReplaySubject;
@@ -134,6 +135,63 @@ public class SubscriptionProxyTest {
     assertThat(onUnsubscribe.called).isEqualTo(true);
   }
 
+  @Test public void testCancelBeforeConnectShouldNeverSubscribeToSourceObservable() {
+    PublishSubject<String> subject = PublishSubject.create();
+    SubscriptionProxy<String> proxy =
+        SubscriptionProxy.createUnconnected(subject, Functions.EMPTY_ACTION, null);
+
+    proxy.cancel();
+    proxy.connect();
+
+    assertThat(subject.hasObservers()).isEqualTo(false);
+  }
+
+  @Test public void testSubscribeAfterCancelShouldBeDisposed() {
+    TestObserver<String> observer = new TestObserver<>();
+    ReplaySubject<String> subject = ReplaySubject.create();
+    subject.onNext("Avanti!");
+    SubscriptionProxy<String> proxy = SubscriptionProxy.create(subject);
+
+    proxy.cancel();
+    Disposable disposable = proxy.subscribe(observer);
+
+    assertThat(disposable.isDisposed()).isEqualTo(true);
+    assertThat(proxy.isCancelled()).isEqualTo(true);
+    observer.assertNoValues();
+  }
+
+  @Test public void testDeliversWithoutHoldingTheLock() throws Exception {
+    final PublishSubject<String> subject = PublishSubject.create();
+    final SubscriptionProxy<String> proxy = SubscriptionProxy.create(subject);
+    final boolean[] deadlocked = new boolean[1];
+    final TestObserver<String> observer = new TestObserver<String>() {
+      @Override public void onNext(String value) {
+        super.onNext(value);
+        // Deadlocks if the proxy holds its lock while delivering.
+        Thread other = new Thread(new Runnable() {
+          @Override public void run() {
+            proxy.dispose();
+          }
+        });
+        other.start();
+        try {
+          other.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+          throw new AssertionError(e);
+        }
+        deadlocked[0] = other.isAlive();
+      }
+    };
+    proxy.subscribe(observer);
+
+    subject.onNext("Avanti!");
+    subject.onNext("Avanti 2");
+
+    assertThat(deadlocked[0]).isEqualTo(false);
+    observer.assertValue("Avanti!");
+    assertThat(proxy.isDisposed()).isEqualTo(true);
+  }
+
   @Test public void testUnsubscribeShouldNotUnsubscribeFromSourceObservable() {
     TestObserver<String> observer = new TestObserver<>();
     final TestOnUnsubscribe dispose = new TestOnUnsubscribe();
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2016 Airbnb, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.airbnb.rxgroups;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TagRegistryTest {
+  @Test public void testRegisterAssignsIds() {
+    String[] tags = {"TagRegistryTest_a", "TagRegistryTest_b"};
+    int[] ids = TagRegistry.register(tags, hashCodes(tags));
+
+    assertThat(ids[0]).isNotEqualTo(ids[1]);
+    assertThat(TagRegistry.idOf("TagRegistryTest_a")).isEqualTo(ids[0]);
+    assertThat(TagRegistry.idOf("TagRegistryTest_b")).isEqualTo(ids[1]);
+    assertThat(TagRegistry.tagOf(ids[0])).isEqualTo("TagRegistryTest_a");
+    assertThat(TagRegistry.tagOf(ids[1])).isEqualTo("TagRegistryTest_b");
+    assertThat(TagRegistry.size()).isGreaterThan(Math.max(ids[0], ids[1]));
+  }
+
+  @Test public void testRegisterSameTagTwiceReturnsSameId() {
+    String[] tags = {"TagRegistryTest_c"};
+    int[] ids = TagRegistry.register(tags, hashCodes(tags));
+    int[] otherIds = TagRegistry.register(new String[] {"TagRegistryTest_d", "TagRegistryTest_c"},
+        hashCodes(new String[] {"TagRegistryTest_d", "TagRegistryTest_c"}));
+
+    assertThat(otherIds[1]).isEqualTo(ids[0]);
+    assertThat(otherIds[0]).isNotEqualTo(ids[0]);
+  }
+
+  @Test public void testUnknownTag() {
+    assertThat(TagRegistry.idOf("TagRegistryTest_unknown")).isEqualTo(TagRegistry.NO_ID);
+  }
+
+  @Test public void testGrowsBeyondInitialCapacity() {
+    String[] tags = new String[100];
+    for (int i = 0; i < tags.length; i++) {
+      tags[i] = "TagRegistryTest_many_" + i;
+    }
+    int[] ids = TagRegistry.register(tags, hashCodes(tags));
+
+    for (int i = 0; i < tags.length; i++) {
+      assertThat(TagRegistry.idOf(tags[i])).isEqualTo(ids[i]);
+      assertThat(TagRegistry.tagOf(ids[i])).isEqualTo(tags[i]);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRegisterThrowsIfHashCodesDoNotMatchTags() {
+    TagRegistry.register(new String[] {"TagRegistryTest_e"}, new int[0]);
+  }
+
+  private static int[] hashCodes(String[] tags) {
+    int[] hashCodes = new int[tags.length];
+    for (int i = 0; i < tags.length; i++) {
+      hashCodes[i] = tags[i].hashCode();
+    }
+    return hashCodes;
+  }
+}